@@ -0,0 +1,168 @@
+/**
+ * Project: ICON Lab - Kinect Hand to Shoulder Tracking
+ * Author: Eduardo Monteiro @ ICON LAB
+ * License: MIT License
+ */
+
+package com.icon.chick.utils.kinect;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import processing.core.PVector;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the CoordinateMapper stages, for one synthetic frame of all
+ * the tracked bodies per operation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CoordinateMapperBenchmark {
+    private static final int HISTORY = 5;
+
+    /**
+     * Hand and shoulder positions mapped from the snapshots, and the hand
+     * histories smoothHandPositions takes.
+     */
+    @State(Scope.Thread)
+    public static class MappedState {
+        PVector[][] hands;
+        PVector[][] shoulders;
+        float[][] shoulderDistances;
+        // Per frame and body: left hand, right hand, left shoulder and right shoulder, three floats each.
+        float[][] vectors;
+        final float[] scratch = new float[6];
+        final MappedCoordinates target = new MappedCoordinates();
+        List<List<PVector>> histories;
+        int next;
+
+        /**
+         * Maps the snapshots of the tracking state.
+         *
+         * @param tracking The tracking state.
+         */
+        @Setup(Level.Trial)
+        public void setup(TrackingState tracking) {
+            int bodies = tracking.bodies;
+            this.hands = new PVector[TrackingState.FRAMES][bodies * 2];
+            this.shoulders = new PVector[TrackingState.FRAMES][bodies * 2];
+            this.shoulderDistances = new float[TrackingState.FRAMES][bodies];
+            this.vectors = new float[TrackingState.FRAMES][bodies * 12];
+            this.histories = new ArrayList<>();
+            for (int i = 0; i < TrackingState.FRAMES; i++) {
+                FrameSnapshot snapshot = tracking.snapshots[i];
+                for (int index = 0; index < bodies; index++) {
+                    this.hands[i][index * 2] = map(tracking.mapper, snapshot, index, FrameSnapshot.HAND_LEFT);
+                    this.hands[i][index * 2 + 1] = map(tracking.mapper, snapshot, index, FrameSnapshot.HAND_RIGHT);
+                    this.shoulders[i][index * 2] = map(tracking.mapper, snapshot, index, FrameSnapshot.SHOULDER_LEFT);
+                    this.shoulders[i][index * 2 + 1] = map(tracking.mapper, snapshot, index, FrameSnapshot.SHOULDER_RIGHT);
+                    this.shoulderDistances[i][index] = PVector.dist(this.shoulders[i][index * 2], this.shoulders[i][index * 2 + 1]) * 1.2f;
+                    PVector[] joints = {this.hands[i][index * 2], this.hands[i][index * 2 + 1],
+                            this.shoulders[i][index * 2], this.shoulders[i][index * 2 + 1]};
+                    for (int joint = 0; joint < joints.length; joint++) {
+                        int offset = index * 12 + joint * 3;
+                        this.vectors[i][offset] = joints[joint].x;
+                        this.vectors[i][offset + 1] = joints[joint].y;
+                        this.vectors[i][offset + 2] = joints[joint].z;
+                    }
+                }
+            }
+            for (int i = 0; i < TrackingState.FRAMES; i++) {
+                for (int hand = 0; hand < bodies * 2; hand++) {
+                    List<PVector> history = new ArrayList<>(HISTORY);
+                    for (int j = 0; j < HISTORY; j++) {
+                        history.add(this.hands[(i + j) % TrackingState.FRAMES][hand]);
+                    }
+                    this.histories.add(history);
+                }
+            }
+        }
+
+        int nextFrame() {
+            int frame = this.next;
+            this.next = (this.next + 1) % TrackingState.FRAMES;
+            return frame;
+        }
+
+        private static PVector map(CoordinateMapper mapper, FrameSnapshot snapshot, int index, int joint) {
+            return mapper.mapCoordinates(snapshot.getX(index, joint), snapshot.getY(index, joint), snapshot.getZ(index, joint));
+        }
+    }
+
+    /**
+     * Maps both hands of every body to the screen.
+     */
+    @Benchmark
+    public void mapCoordinates(TrackingState tracking, Blackhole blackhole) {
+        FrameSnapshot snapshot = tracking.nextSnapshot();
+        CoordinateMapper mapper = tracking.mapper;
+        for (int index = 0; index < snapshot.getTrackedCount(); index++) {
+            blackhole.consume(mapper.mapCoordinates(snapshot.getX(index, FrameSnapshot.HAND_LEFT),
+                    snapshot.getY(index, FrameSnapshot.HAND_LEFT), snapshot.getZ(index, FrameSnapshot.HAND_LEFT)));
+            blackhole.consume(mapper.mapCoordinates(snapshot.getX(index, FrameSnapshot.HAND_RIGHT),
+                    snapshot.getY(index, FrameSnapshot.HAND_RIGHT), snapshot.getZ(index, FrameSnapshot.HAND_RIGHT)));
+        }
+    }
+
+    /**
+     * Maps both hands of every body to their shoulder boxes.
+     */
+    @Benchmark
+    public void mapToBox(TrackingState tracking, MappedState mapped, Blackhole blackhole) {
+        int frame = mapped.nextFrame();
+        PVector[] hands = mapped.hands[frame];
+        PVector[] shoulders = mapped.shoulders[frame];
+        float[] distances = mapped.shoulderDistances[frame];
+        for (int index = 0; index < distances.length; index++) {
+            blackhole.consume(tracking.mapper.mapToBox(hands[index * 2], shoulders[index * 2], distances[index]));
+            blackhole.consume(tracking.mapper.mapToBox(hands[index * 2 + 1], shoulders[index * 2 + 1], distances[index]));
+        }
+    }
+
+    /**
+     * Maps both hands of every body to their shoulder boxes in place, as the
+     * tracking path does, from packed vectors.
+     */
+    @Benchmark
+    public void mapToBoxInPlace(TrackingState tracking, MappedState mapped, Blackhole blackhole) {
+        int frame = mapped.nextFrame();
+        float[] vectors = mapped.vectors[frame];
+        float[] scratch = mapped.scratch;
+        float[] distances = mapped.shoulderDistances[frame];
+        for (int index = 0; index < distances.length; index++) {
+            for (int hand = 0; hand < 2; hand++) {
+                System.arraycopy(vectors, index * 12 + hand * 3, scratch, 0, 3);
+                System.arraycopy(vectors, index * 12 + 6 + hand * 3, scratch, 3, 3);
+                blackhole.consume(tracking.mapper.mapToBox(scratch, 0, 3, distances[index], mapped.target).corrected.x);
+            }
+        }
+    }
+
+    /**
+     * Smooths the hand histories of both hands of every body.
+     */
+    @Benchmark
+    public void smoothHandPositions(TrackingState tracking, MappedState mapped, Blackhole blackhole) {
+        int frame = mapped.nextFrame();
+        int hands = tracking.bodies * 2;
+        for (int hand = 0; hand < hands; hand++) {
+            blackhole.consume(tracking.mapper.smoothHandPositions(mapped.histories.get(frame * hands + hand)));
+        }
+    }
+}
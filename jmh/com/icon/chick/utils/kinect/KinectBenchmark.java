@@ -0,0 +1,69 @@
+/**
+ * Project: ICON Lab - Kinect Hand to Shoulder Tracking
+ * Author: Eduardo Monteiro @ ICON LAB
+ * License: MIT License
+ */
+
+package com.icon.chick.utils.kinect;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the Kinect tracking path, for one synthetic frame of all the
+ * tracked bodies per operation. getHandPositions only processes new sensor
+ * frames, so it is measured together with the update() reading the frame;
+ * subtract the update benchmark for its own cost.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KinectBenchmark {
+
+    /**
+     * Filters the hands of every body of a snapshot into the player table.
+     */
+    @Benchmark
+    public void updateHandPositions(TrackingState tracking) {
+        FrameSnapshot snapshot = tracking.nextSnapshot();
+        for (int index = 0; index < snapshot.getTrackedCount(); index++) {
+            tracking.kinect.updateHandPositions(snapshot, index);
+        }
+    }
+
+    /**
+     * Reads the next frame from the source into a snapshot, updating the players.
+     */
+    @Benchmark
+    public FrameSnapshot update(TrackingState tracking) {
+        return tracking.kinect.update();
+    }
+
+    /**
+     * Reads the next frame and processes the hand positions of every body.
+     */
+    @Benchmark
+    public Map<Integer, MappedCoordinates[]> updateAndGetHandPositions(TrackingState tracking) {
+        tracking.kinect.update();
+        return tracking.kinect.getHandPositions();
+    }
+
+    /**
+     * Reads the next frame and processes the hand positions of every body into a caller-owned frame.
+     */
+    @Benchmark
+    public HandFrame updateAndGetHandFrame(TrackingState tracking) {
+        tracking.kinect.update();
+        return tracking.kinect.getHandPositions(tracking.hands);
+    }
+}
@@ -0,0 +1,78 @@
+/**
+ * Project: ICON Lab - Kinect Hand to Shoulder Tracking
+ * Author: Eduardo Monteiro @ ICON LAB
+ * License: MIT License
+ */
+
+package com.icon.chick.utils.kinect;
+
+import com.icon.chick.App;
+import com.icon.chick.tools.HeadlessPipeline;
+import com.icon.chick.utils.kinect.source.SyntheticSkeletonSource;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Benchmark state holding a headless tracking pipeline fed by synthetic
+ * skeleton frames, and a ring of pre-captured snapshots of the same motion
+ * for the benchmarks of a single stage.
+ */
+@State(Scope.Thread)
+public class TrackingState {
+    /**
+     * The number of pre-captured snapshots, cycled through by the stage benchmarks.
+     */
+    public static final int FRAMES = 64;
+
+    @Param({"1", "2", "3", "4", "5", "6"})
+    public int bodies;
+
+    public HeadlessPipeline pipeline;
+    public App app;
+    public Kinect kinect;
+    public CoordinateMapper mapper;
+    public final FrameSnapshot[] snapshots = new FrameSnapshot[FRAMES];
+    public final HandFrame hands = new HandFrame();
+    private int next;
+
+    /**
+     * Creates the pipeline and captures the snapshots.
+     */
+    @Setup(Level.Trial)
+    public void setup() {
+        this.pipeline = new HeadlessPipeline(this.bodies);
+        this.app = this.pipeline.getApp();
+        this.kinect = this.pipeline.getKinect();
+        SyntheticSkeletonSource source = new SyntheticSkeletonSource(this.bodies, HeadlessPipeline.SENSOR_RATE);
+        this.mapper = new CoordinateMapper(this.app, source.getWidth(), source.getHeight());
+
+        SkeletonFrame frame = new SkeletonFrame();
+        source.start();
+        for (int i = 0; i < FRAMES; i++) {
+            source.read(frame);
+            this.snapshots[i] = new FrameSnapshot();
+            this.snapshots[i].capture(frame);
+        }
+    }
+
+    /**
+     * @return The next pre-captured snapshot.
+     */
+    public FrameSnapshot nextSnapshot() {
+        FrameSnapshot snapshot = this.snapshots[this.next];
+        this.next = (this.next + 1) % FRAMES;
+        return snapshot;
+    }
+
+    /**
+     * Stops the threads of the pipeline.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        this.pipeline.close();
+    }
+}
@@ -6,18 +6,48 @@
 
 package com.icon.chick;
 
+import com.icon.chick.utils.kinect.CalibrationStore;
 import com.icon.chick.utils.kinect.Kinect;
+import com.icon.chick.utils.kinect.SkeletonFrame;
+import com.icon.chick.utils.kinect.filter.JointFilters;
+import com.icon.chick.utils.kinect.output.AsyncHandOutput;
+import com.icon.chick.utils.kinect.output.OscHandPublisher;
+import com.icon.chick.utils.kinect.output.SharedMemoryHandPublisher;
+import com.icon.chick.utils.kinect.source.AcquisitionSkeletonSource;
+import com.icon.chick.utils.kinect.source.KinectSkeletonSource;
+import com.icon.chick.utils.kinect.source.RecordedSkeletonSource;
+import com.icon.chick.utils.kinect.source.RecordingSkeletonSource;
+import com.icon.chick.utils.kinect.source.SkeletonSource;
+import com.icon.chick.utils.metrics.FrameTimings;
+import com.icon.chick.utils.metrics.MetricsMBean;
+import com.icon.chick.utils.metrics.MetricsRegistry;
+import com.icon.chick.utils.metrics.PrometheusEndpoint;
 import com.icon.chick.utils.processing.Screen;
+import com.icon.chick.utils.processing.TimingHud;
 import processing.core.*;
 
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+
 public class App extends PApplet {
 
     public static void main(String[] args) {
         PApplet.main(new String[] { "com.icon.chick.App" });
     }
 
+    // Skeleton polling period of the acquisition thread, well under the 33 ms sensor frame period.
+    private static final long SENSOR_POLL_INTERVAL = 2_000_000L;
+    private static final int OSC_QUEUE_CAPACITY = 64;
+    private static final int SHARED_MEMORY_RING = 8;
+    private static final int PROFILE_CAPACITY = 256;
+    private static final long PROFILE_TTL = 30L * 24 * 60 * 60 * 1000;
+    private static final float PROFILE_MATCH_RADIUS = 0.03f;
+
     Kinect kinect;
     Screen screen = new Screen(this);
+    TimingHud timingHud;
+    MetricsRegistry metrics = new MetricsRegistry();
+    PrometheusEndpoint metricsEndpoint;
 
     @Override
     public void settings() {
@@ -27,14 +57,74 @@ public class App extends PApplet {
 
     @Override
     public void setup() {
-        this.kinect = new Kinect(this);
+        this.kinect = new Kinect(this, createSource());
+        this.timingHud = new TimingHud(this, this.kinect.getTimings());
+
+        // -Dkinect.filter=oneeuro|holt|kalman replaces the default exponential hand smoothing.
+        String filter = System.getProperty("kinect.filter");
+        if (filter != null) {
+            this.kinect.setHandFilter(JointFilters.byName(filter));
+        }
+
+        // -Dkinect.osc=host:port publishes the hand positions over OSC instead of printing them.
+        String osc = System.getProperty("kinect.osc");
+        if (osc != null) {
+            int separator = osc.lastIndexOf(':');
+            InetSocketAddress target = new InetSocketAddress(osc.substring(0, separator), Integer.parseInt(osc.substring(separator + 1)));
+            this.kinect.setHandOutput(AsyncHandOutput.start(new OscHandPublisher(target), OSC_QUEUE_CAPACITY, SkeletonFrame.BODY_COUNT,
+                    AsyncHandOutput.OverflowPolicy.DROP_OLDEST));
+        }
+
+        // -Dkinect.shm=file publishes the players of every tick to a shared memory file, for example in /dev/shm.
+        String sharedMemory = System.getProperty("kinect.shm");
+        if (sharedMemory != null) {
+            this.kinect.addDirectSink(new SharedMemoryHandPublisher(Path.of(sharedMemory), SHARED_MEMORY_RING));
+        }
+
+        // -Dkinect.profiles=file remembers calibrated players across visits and restarts.
+        String profiles = System.getProperty("kinect.profiles");
+        if (profiles != null) {
+            this.kinect.setCalibrationStore(new CalibrationStore(Path.of(profiles), PROFILE_CAPACITY, PROFILE_TTL, PROFILE_MATCH_RADIUS));
+        }
+
+        // The tracking metrics are always available through JMX; -Dkinect.metrics=port also serves them
+        // to Prometheus at http://localhost:port/metrics.
+        this.kinect.registerMetrics(this.metrics);
+        MetricsMBean.register(this.metrics, MetricsMBean.DEFAULT_NAME);
+        String metricsPort = System.getProperty("kinect.metrics");
+        if (metricsPort != null) {
+            this.metricsEndpoint = new PrometheusEndpoint(this.metrics, Integer.parseInt(metricsPort));
+        }
+    }
+
+    /**
+     * Creates the skeleton source. Set -Dkinect.replay=file to replay a recording
+     * instead of using the sensor, and -Dkinect.record=file to record the session.
+     * The sensor is read on its own acquisition thread.
+     *
+     * @return The skeleton source for the tracking pipeline.
+     */
+    private SkeletonSource createSource() {
+        String replay = System.getProperty("kinect.replay");
+        String record = System.getProperty("kinect.record");
+
+        SkeletonSource source = replay != null
+                ? new RecordedSkeletonSource(Path.of(replay), 1, true)
+                : new KinectSkeletonSource(this);
+        if (record != null) {
+            source = new RecordingSkeletonSource(source, Path.of(record));
+        }
+        return replay != null ? source : new AcquisitionSkeletonSource(source, SENSOR_POLL_INTERVAL, true);
     }
 
     @Override
     public void draw() {
+        long start = System.nanoTime();
         this.background(0);
         this.kinect.draw();
         this.screen.showFPS();
+        this.timingHud.draw();
+        this.kinect.getTimings().record(FrameTimings.Stage.FRAME, start);
     }
 
     @Override
@@ -43,6 +133,8 @@ public class App extends PApplet {
             if (this.keyCode == PConstants.SHIFT) {
                 this.kinect.calibrate();
             }
+        } else if (this.key == 'h' || this.key == 'H') {
+            this.timingHud.toggle();
         }
     }
 }
\ No newline at end of file
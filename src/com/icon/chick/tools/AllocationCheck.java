@@ -0,0 +1,232 @@
+/**
+ * Project: ICON Lab - Kinect Hand to Shoulder Tracking
+ * Author: Eduardo Monteiro @ ICON LAB
+ * License: MIT License
+ */
+
+package com.icon.chick.tools;
+
+import com.icon.chick.utils.kinect.HandFrame;
+import com.icon.chick.utils.kinect.Kinect;
+import com.icon.chick.utils.kinect.SkeletonFrame;
+import com.icon.chick.utils.kinect.output.AsyncHandOutput;
+import com.icon.chick.utils.kinect.output.HandOutputSink;
+import com.icon.chick.utils.kinect.output.HandSample;
+import com.icon.chick.utils.kinect.source.AcquisitionSkeletonSource;
+import com.icon.chick.utils.kinect.source.SyntheticSkeletonSource;
+
+import java.lang.management.CompilationMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.function.IntSupplier;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Steady-state allocation check of the per-frame tracking path, run headless
+ * without a sensor.
+ * <p>
+ * The synthetic pipeline first runs until its players are acquired and
+ * fingerprinted and the JIT has compiled the hot path. Then every tick reads a
+ * new frame, decodes it, smooths and maps the hands of every body, fills a
+ * hand frame and visits it, and hands them to the output. The check fails
+ * unless the render thread, the body engine workers and the output thread
+ * allocated nothing, and unless every tick counted as exactly one processed
+ * or stale frame. It then checks the acquisition thread the same way, polling
+ * the synthetic source while the render thread reads its frames.
+ * <p>
+ * Each part is measured over WINDOWS consecutive windows of the given number
+ * of frames, and every window must be free of allocation. The warm-up lasts at
+ * least WARMUP_FRAMES, and until no compilation has finished for QUIET_NANOS:
+ * a method still waiting for its compilation, as happens on a single CPU, can
+ * allocate when the interpreter requests it. The quiet time is wall-clock time,
+ * longer than a compilation of the hot path takes, since the compiler only
+ * accounts for a compilation once it finished.
+ * <p>
+ * The Kinect sensor itself is out of reach: the KinectPV2 native layer returns
+ * a new array for every skeleton read.
+ * <p>
+ * Usage: AllocationCheck [frames] [bodies]
+ */
+public class AllocationCheck {
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private static final int WINDOWS = 3;
+    private static final int WARMUP_FRAMES = 20_000;
+    private static final long QUIET_NANOS = 2_000_000_000L;
+    // Bounds the warm-up of a JIT that never settles; the windows then show what it allocates.
+    private static final int MAX_WARMUP_FRAMES = 500_000;
+    private static final CompilationMXBean COMPILER = ManagementFactory.getCompilationMXBean();
+    private static final HandFrame HANDS = new HandFrame();
+    private static float visited;
+    private static final HandFrame.Visitor VISITOR = (frame, body) -> visited += frame.getLeftCorrectedX(body);
+
+    /**
+     * Runs the check.
+     *
+     * @param args The optional number of frames and bodies.
+     */
+    public static void main(String[] args) {
+        int frames = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int bodies = args.length > 1 ? Integer.parseInt(args[1]) : SkeletonFrame.BODY_COUNT;
+        THREADS.setThreadAllocatedMemoryEnabled(true);
+
+        long pipeline = checkPipeline(frames, bodies);
+        long acquisition = checkAcquisition(frames, bodies);
+        if (pipeline > 0 || acquisition > 0) {
+            throw new IllegalStateException("The steady-state tracking path allocated "
+                    + (pipeline + acquisition) + " bytes");
+        }
+    }
+
+    /**
+     * Measures the allocation of the tracking pipeline, reading a new synthetic frame every tick.
+     *
+     * @return The bytes allocated by the pipeline threads over all the windows.
+     */
+    private static long checkPipeline(int frames, int bodies) {
+        HeadlessPipeline pipeline = new HeadlessPipeline(bodies);
+        Kinect kinect = pipeline.getKinect();
+        CountingSink sink = new CountingSink();
+        kinect.setHandOutput(AsyncHandOutput.start(sink, 256, 64, AsyncHandOutput.OverflowPolicy.DROP_OLDEST));
+
+        warmUp(frames, () -> {
+            tick(pipeline);
+            return 1;
+        });
+
+        long served = kinect.getProcessedFrameCount() + kinect.getStaleFrameCount();
+        long allocated = 0;
+        for (int window = 1; window <= WINDOWS; window++) {
+            long workers = threadAllocated("kinect-body-");
+            long output = threadAllocated("kinect-output");
+            // Nothing else may allocate on this thread between the two reads.
+            long render = THREADS.getCurrentThreadAllocatedBytes();
+            for (int frame = 0; frame < frames; frame++) {
+                tick(pipeline);
+            }
+            render = THREADS.getCurrentThreadAllocatedBytes() - render;
+            // Let the output thread write the last frames before measuring it.
+            LockSupport.parkNanos(50_000_000L);
+            workers = threadAllocated("kinect-body-") - workers;
+            output = threadAllocated("kinect-output") - output;
+            System.out.printf("Pipeline, window %d, %d frames of %d bodies: render thread %d bytes, body workers %d bytes, output thread %d bytes (%d samples written)%n",
+                    window, frames, bodies, render, workers, output, sink.samples);
+            allocated += render + workers + output;
+        }
+
+        // Each tick reads the hands through several accessors, but counts as one frame.
+        served = kinect.getProcessedFrameCount() + kinect.getStaleFrameCount() - served;
+        if (served != (long) WINDOWS * frames) {
+            throw new IllegalStateException("The pipeline counted " + served + " processed and stale frames over "
+                    + (long) WINDOWS * frames + " ticks");
+        }
+        pipeline.close();
+        return allocated;
+    }
+
+    /**
+     * Measures the allocation of the acquisition thread polling the synthetic source.
+     *
+     * @return The bytes allocated by the acquisition and reading threads over all the windows.
+     */
+    private static long checkAcquisition(int frames, int bodies) {
+        AcquisitionSkeletonSource source = new AcquisitionSkeletonSource(
+                new SyntheticSkeletonSource(bodies, HeadlessPipeline.SENSOR_RATE), 0, false);
+        SkeletonFrame frame = new SkeletonFrame();
+        source.start();
+        warmUp(frames, () -> readNew(source, frame));
+
+        long allocated = 0;
+        for (int window = 1; window <= WINDOWS; window++) {
+            long acquisition = threadAllocated("kinect-acquisition");
+            long reader = THREADS.getCurrentThreadAllocatedBytes();
+            long read = 0;
+            while (read < frames) {
+                read += readNew(source, frame);
+            }
+            reader = THREADS.getCurrentThreadAllocatedBytes() - reader;
+            acquisition = threadAllocated("kinect-acquisition") - acquisition;
+            System.out.printf("Acquisition, window %d, %d frames read: acquisition thread %d bytes, reading thread %d bytes%n",
+                    window, read, acquisition, reader);
+            allocated += acquisition + reader;
+        }
+        source.stop();
+        return allocated;
+    }
+
+    /**
+     * Runs the warm-up: at least WARMUP_FRAMES and the frames of a window, and
+     * then until no compilation finished during the last QUIET_NANOS.
+     *
+     * @param frames The number of frames of a window.
+     * @param step Runs the part measured, returning the number of frames it advanced.
+     */
+    private static void warmUp(int frames, IntSupplier step) {
+        int minimum = Math.max(frames, WARMUP_FRAMES);
+        long compiled = compilationTime();
+        long quietSince = System.nanoTime();
+        for (long frame = 0; frame < MAX_WARMUP_FRAMES && (frame < minimum || System.nanoTime() - quietSince < QUIET_NANOS); ) {
+            frame += step.getAsInt();
+            long time = compilationTime();
+            if (time != compiled) {
+                compiled = time;
+                quietSince = System.nanoTime();
+            }
+        }
+    }
+
+    /**
+     * @return The total time spent by the JIT compiler in milliseconds, 0 if not monitored.
+     */
+    private static long compilationTime() {
+        return COMPILER != null && COMPILER.isCompilationTimeMonitoringSupported() ? COMPILER.getTotalCompilationTime() : 0;
+    }
+
+    private static long lastSequence;
+
+    /**
+     * @return 1 if a frame newer than the last one read was read, 0 otherwise.
+     */
+    private static int readNew(AcquisitionSkeletonSource source, SkeletonFrame frame) {
+        if (!source.read(frame) || frame.getSequence() == lastSequence) {
+            // Leave the CPU to the acquisition thread, it polls without pausing.
+            LockSupport.parkNanos(100_000L);
+            return 0;
+        }
+        lastSequence = frame.getSequence();
+        return 1;
+    }
+
+    /**
+     * One render tick of the application, also reading the hands through the accessors.
+     */
+    private static void tick(HeadlessPipeline pipeline) {
+        pipeline.tick();
+        pipeline.getKinect().getHandPositions(HANDS);
+        pipeline.getKinect().forEachHand(VISITOR);
+    }
+
+    /**
+     * @return The bytes allocated so far by the live threads whose name starts with a prefix.
+     */
+    private static long threadAllocated(String prefix) {
+        long total = 0;
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().startsWith(prefix)) {
+                total += THREADS.getThreadAllocatedBytes(thread.threadId());
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Sink counting the samples without keeping them.
+     */
+    private static final class CountingSink implements HandOutputSink {
+        volatile long samples;
+
+        @Override
+        public void write(HandSample[] batch, int count) {
+            this.samples += count;
+        }
+    }
+}
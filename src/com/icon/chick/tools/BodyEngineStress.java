@@ -0,0 +1,166 @@
+/**
+ * Project: ICON Lab - Kinect Hand to Shoulder Tracking
+ * Author: Eduardo Monteiro @ ICON LAB
+ * License: MIT License
+ */
+
+package com.icon.chick.tools;
+
+import com.icon.chick.utils.kinect.BodyEngine;
+import com.icon.chick.utils.kinect.HandFrame;
+import com.icon.chick.utils.kinect.Kinect;
+import com.icon.chick.utils.kinect.SkeletonFrame;
+import com.icon.chick.utils.kinect.filter.JointFilterBank;
+import com.icon.chick.utils.kinect.filter.KalmanJointFilter;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Stress check of BodyEngine, run headless without a sensor.
+ * <p>
+ * It first replays the same synthetic frames through one Kinect running its
+ * bodies inline and one forced onto the workers, and fails unless both produce
+ * identical hand positions in the same order on every frame. It then runs
+ * batches whose body count changes from one batch to the next, and fails
+ * unless every body of a batch ran exactly once before run() returned. It times
+ * inline, parallel and AUTO execution of a heavy per-body workload, filtering
+ * every joint of each body, to check the engine keeps its speedup.
+ * <p>
+ * Usage: BodyEngineStress [frames]
+ */
+public class BodyEngineStress {
+
+    /**
+     * Runs the stress check.
+     *
+     * @param args The optional number of frames.
+     */
+    public static void main(String[] args) {
+        int frames = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+
+        checkDeterminism(frames);
+        checkClaims(frames * 100);
+        benchmark(Math.max(frames / 10, 100));
+    }
+
+    /**
+     * Compares the output of inline and parallel processing frame by frame.
+     *
+     * @param frames The number of frames.
+     */
+    private static void checkDeterminism(int frames) {
+        HeadlessPipeline inlinePipeline = new HeadlessPipeline(SkeletonFrame.BODY_COUNT);
+        HeadlessPipeline parallelPipeline = new HeadlessPipeline(SkeletonFrame.BODY_COUNT);
+        Kinect inline = inlinePipeline.getKinect();
+        Kinect parallel = parallelPipeline.getKinect();
+        inline.getBodyEngine().setMode(BodyEngine.Mode.INLINE);
+        // Force workers even on small machines, to exercise the hand-off.
+        parallel.setBodyEngine(new BodyEngine(SkeletonFrame.BODY_COUNT - 1, BodyEngine.DEFAULT_PARALLEL_THRESHOLD));
+        parallel.getBodyEngine().setMode(BodyEngine.Mode.PARALLEL);
+
+        HandFrame expected = new HandFrame();
+        HandFrame actual = new HandFrame();
+        for (int frame = 0; frame < frames; frame++) {
+            inline.update();
+            parallel.update();
+            inline.getHandPositions(expected);
+            parallel.getHandPositions(actual);
+            if (!same(expected, actual)) {
+                throw new IllegalStateException("Parallel output differs from inline output at frame " + frame);
+            }
+        }
+
+        if (parallel.getBodyEngine().getParallelBatches() != frames) {
+            throw new IllegalStateException("Parallel engine ran " + parallel.getBodyEngine().getParallelBatches() + " batches on workers, expected " + frames);
+        }
+        System.out.println("Determinism: " + frames + " frames of " + SkeletonFrame.BODY_COUNT + " bodies identical inline and parallel");
+        inlinePipeline.close();
+        parallelPipeline.close();
+    }
+
+    /**
+     * Counts the runs of each body over batches alternating between a small and
+     * a full body count, so late workers of a batch meet a larger next batch.
+     *
+     * @param batches The number of batches.
+     */
+    private static void checkClaims(int batches) {
+        BodyEngine engine = new BodyEngine(SkeletonFrame.BODY_COUNT - 1, BodyEngine.DEFAULT_PARALLEL_THRESHOLD);
+        engine.setMode(BodyEngine.Mode.PARALLEL);
+        AtomicIntegerArray runs = new AtomicIntegerArray(SkeletonFrame.BODY_COUNT);
+        BodyEngine.BodyTask task = runs::incrementAndGet;
+        for (int batch = 0; batch < batches; batch++) {
+            int bodies = batch % 2 == 0 ? 2 : SkeletonFrame.BODY_COUNT;
+            engine.run(bodies, task);
+            for (int index = 0; index < SkeletonFrame.BODY_COUNT; index++) {
+                int count = runs.getAndSet(index, 0);
+                if (count != (index < bodies ? 1 : 0)) {
+                    throw new IllegalStateException("Batch " + batch + " of " + bodies + " bodies ran body " + index + " " + count + " times");
+                }
+            }
+        }
+        engine.shutdown();
+        System.out.println("Claims: " + batches + " batches of 2 and " + SkeletonFrame.BODY_COUNT + " bodies, each body run once");
+    }
+
+    private static boolean same(HandFrame expected, HandFrame actual) {
+        if (expected.getCount() != actual.getCount()) {
+            return false;
+        }
+        for (int index = 0; index < expected.getCount(); index++) {
+            int body = expected.getBody(index);
+            if (actual.getBody(index) != body || actual.getPlayerId(body) != expected.getPlayerId(body)
+                    || actual.getLeftX(body) != expected.getLeftX(body) || actual.getLeftY(body) != expected.getLeftY(body)
+                    || actual.getLeftCorrectedX(body) != expected.getLeftCorrectedX(body) || actual.getLeftCorrectedY(body) != expected.getLeftCorrectedY(body)
+                    || actual.getRightX(body) != expected.getRightX(body) || actual.getRightY(body) != expected.getRightY(body)
+                    || actual.getRightCorrectedX(body) != expected.getRightCorrectedX(body) || actual.getRightCorrectedY(body) != expected.getRightCorrectedY(body)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Times a full-body filtering workload in each engine mode.
+     *
+     * @param batches The number of batches per mode.
+     */
+    private static void benchmark(int batches) {
+        BodyEngine engine = BodyEngine.createDefault();
+        System.out.println("Benchmark: " + Runtime.getRuntime().availableProcessors() + " processors");
+        JointFilterBank filters = new JointFilterBank();
+        for (int joint = 0; joint < JointFilterBank.JOINT_COUNT; joint++) {
+            filters.setFilter(joint, () -> new KalmanJointFilter(5e6f, 25f));
+        }
+
+        long[] time = new long[1];
+        BodyEngine.BodyTask task = body -> {
+            // Several sub-steps per frame stand in for heavier full-body processing.
+            for (int step = 0; step < 64; step++) {
+                long timestamp = time[0] + step * 500_000L;
+                for (int joint = 0; joint < JointFilterBank.JOINT_COUNT; joint++) {
+                    float angle = timestamp * 1e-9f + joint + body;
+                    filters.update(body, joint, (float) Math.cos(angle) * 200, (float) Math.sin(angle) * 200, 2000, timestamp);
+                }
+            }
+        };
+
+        for (BodyEngine.Mode mode : BodyEngine.Mode.values()) {
+            engine.setMode(mode);
+            for (int i = 0; i < batches / 10; i++) {
+                time[0] += 33_000_000L;
+                engine.run(SkeletonFrame.BODY_COUNT, task);
+            }
+            long parallelBefore = engine.getParallelBatches();
+            long start = System.nanoTime();
+            for (int i = 0; i < batches; i++) {
+                time[0] += 33_000_000L;
+                engine.run(SkeletonFrame.BODY_COUNT, task);
+            }
+            long elapsed = System.nanoTime() - start;
+            System.out.printf("%-8s %8.1f us/batch, %5.1f us/body, %d of %d batches on workers%n", mode,
+                    elapsed / 1e3 / batches, engine.getTaskCost() / 1e3, engine.getParallelBatches() - parallelBefore, batches);
+        }
+        engine.shutdown();
+    }
+}
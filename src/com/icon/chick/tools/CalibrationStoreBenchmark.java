@@ -0,0 +1,158 @@
+/**
+ * Project: ICON Lab - Kinect Hand to Shoulder Tracking
+ * Author: Eduardo Monteiro @ ICON LAB
+ * License: MIT License
+ */
+
+package com.icon.chick.tools;
+
+import com.icon.chick.utils.kinect.BodyFingerprint;
+import com.icon.chick.utils.kinect.CalibrationStore;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * Lookup benchmark and behavior check of the calibration store.
+ * <p>
+ * Fills a store with random body fingerprints, then measures the time of
+ * recalling them with measurement noise and of looking up unknown bodies,
+ * and checks the recalled distances. It then checks that the store keeps its
+ * capacity when overfilled, that it survives being reopened, and that records
+ * expire after the TTL.
+ * <p>
+ * Usage: CalibrationStoreBenchmark [capacity] [lookups]
+ */
+public class CalibrationStoreBenchmark {
+    private static final float MATCH_RADIUS = 0.03f;
+    private static final float NOISE = 0.005f;
+    private static final long TTL = 60_000;
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args The optional store capacity and number of lookups.
+     * @throws IOException If the temporary store cannot be created.
+     * @throws InterruptedException If interrupted while waiting for records to expire.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int capacity = args.length > 0 ? Integer.parseInt(args[0]) : 256;
+        int lookups = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000;
+        Random random = new Random(1);
+        Path path = Files.createTempFile("calibration", ".kcp");
+        Files.delete(path);
+
+        // Bodies at least two match radii apart, so noisy lookups have a single answer.
+        float[][] bodies = new float[capacity][];
+        for (int i = 0; i < capacity; i++) {
+            float[] body;
+            do {
+                body = randomBody(random);
+            } while (nearest(bodies, i, body) < 2 * MATCH_RADIUS);
+            bodies[i] = body;
+        }
+
+        CalibrationStore store = new CalibrationStore(path, capacity, TTL, MATCH_RADIUS);
+        for (int i = 0; i < capacity; i++) {
+            store.store(bodies[i], 100 + i);
+        }
+        check(store.size() == capacity, "store holds " + store.size() + " records, expected " + capacity);
+
+        float[][] queries = new float[1024][];
+        int[] expected = new int[queries.length];
+        for (int i = 0; i < queries.length; i++) {
+            expected[i] = random.nextInt(capacity);
+            queries[i] = bodies[expected[i]].clone();
+            for (int d = 0; d < BodyFingerprint.DIMENSIONS; d++) {
+                queries[i][d] += (random.nextFloat() * 2 - 1) * NOISE;
+            }
+        }
+        float[][] strangers = new float[1024][];
+        for (int i = 0; i < strangers.length; i++) {
+            do {
+                strangers[i] = randomBody(random);
+            } while (nearest(bodies, capacity, strangers[i]) < 1.5f * MATCH_RADIUS);
+        }
+
+        int wrong = 0;
+        for (int i = 0; i < queries.length; i++) {
+            if (store.recall(queries[i]) != 100 + expected[i]) {
+                wrong++;
+            }
+        }
+        int falseMatches = 0;
+        for (float[] stranger : strangers) {
+            if (!Float.isNaN(store.recall(stranger))) {
+                falseMatches++;
+            }
+        }
+        check(wrong == 0 && falseMatches == 0, wrong + " wrong recalls, " + falseMatches + " strangers matched");
+
+        // Warm up, then time the lookups.
+        float sink = 0;
+        for (int i = 0; i < lookups; i++) {
+            sink += store.recall(queries[i & (queries.length - 1)]);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < lookups; i++) {
+            sink += store.recall(queries[i & (queries.length - 1)]);
+        }
+        long known = System.nanoTime() - start;
+        start = System.nanoTime();
+        for (int i = 0; i < lookups; i++) {
+            sink += store.recall(strangers[i & (strangers.length - 1)]);
+        }
+        long unknown = System.nanoTime() - start;
+        check(Float.isNaN(sink), "a stranger was recalled");
+        System.out.printf("%d records: recall %.0f ns, unknown body %.0f ns%n",
+                capacity, (double) known / lookups, (double) unknown / lookups);
+
+        // Overfilling replaces old records and keeps the capacity.
+        for (int i = 0; i < capacity; i++) {
+            store.store(strangers[i % strangers.length], 1);
+        }
+        check(store.size() == capacity, "overfilled store holds " + store.size() + " records");
+        store.store(bodies[0], 42);
+        store.close();
+
+        // The store survives reopening, whatever capacity is asked for.
+        store = new CalibrationStore(path, 1, TTL, MATCH_RADIUS);
+        check(store.getCapacity() == capacity && store.size() == capacity, "reopened store has " + store.size() + "/" + store.getCapacity() + " records");
+        check(store.recall(bodies[0]) == 42, "reopened store lost a record");
+        store.close();
+
+        // Records expire after the TTL.
+        Thread.sleep(20);
+        store = new CalibrationStore(path, capacity, 10, MATCH_RADIUS);
+        check(store.size() == 0 && Float.isNaN(store.recall(bodies[0])), "expired records were kept");
+        store.close();
+        Files.delete(path);
+        System.out.println("Capacity, persistence and expiry checks passed");
+    }
+
+    private static float[] randomBody(Random random) {
+        float[] body = new float[BodyFingerprint.DIMENSIONS];
+        // Legs are often out of view.
+        int dimensions = random.nextBoolean() ? BodyFingerprint.DIMENSIONS : BodyFingerprint.REQUIRED;
+        for (int i = 0; i < BodyFingerprint.DIMENSIONS; i++) {
+            body[i] = i < dimensions ? 0.3f + random.nextFloat() : Float.NaN;
+        }
+        return body;
+    }
+
+    private static float nearest(float[][] bodies, int count, float[] body) {
+        float nearest = Float.POSITIVE_INFINITY;
+        for (int i = 0; i < count; i++) {
+            nearest = Math.min(nearest, BodyFingerprint.distance(body, 0, bodies[i], 0));
+        }
+        return nearest;
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalStateException(message);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+/**
+ * Project: ICON Lab - Kinect Hand to Shoulder Tracking
+ * Author: Eduardo Monteiro @ ICON LAB
+ * License: MIT License
+ */
+
+package com.icon.chick.tools;
+
+import com.icon.chick.App;
+import com.icon.chick.utils.kinect.CoordinateMapper;
+import com.icon.chick.utils.kinect.filter.JointFilter;
+import com.icon.chick.utils.kinect.filter.JointFilterBank;
+import com.icon.chick.utils.kinect.filter.JointFilters;
+
+import java.util.function.Supplier;
+
+/**
+ * Reports the lag of the hand filters: the default exponential smoother of
+ * Kinect and every preset of JointFilters, following a hand moving at
+ * 1000 pixels per second sampled at 30 Hz. It fails if a filter does not
+ * settle, or if a lag limit is given and exceeded.
+ * <p>
+ * Usage: FilterLatency [max lag ms]
+ */
+public class FilterLatency {
+    private static final float FRAME_RATE = 30;
+    private static final float SPEED = 1000;
+    // The window of the default smoother of Kinect.
+    private static final int SMOOTHING_WINDOW = 5;
+
+    /**
+     * Runs the report.
+     *
+     * @param args The optional lag limit in milliseconds.
+     */
+    public static void main(String[] args) {
+        double maxLag = args.length > 0 ? Double.parseDouble(args[0]) : Double.POSITIVE_INFINITY;
+
+        CoordinateMapper mapper = new CoordinateMapper(new App(), 1920, 1080);
+        report("exponential", () -> mapper.createHandSmoother(SMOOTHING_WINDOW), maxLag);
+        for (String name : JointFilters.NAMES) {
+            report(name, JointFilters.byName(name), maxLag);
+        }
+    }
+
+    private static void report(String name, Supplier<? extends JointFilter> factory, double maxLag) {
+        float lag = JointFilterBank.measureRampLatency(factory, FRAME_RATE, SPEED) * 1000;
+        System.out.printf("%-12s %-22s ramp lag at %.0f Hz: %6.1f ms%n", name, factory.get().getClass().getSimpleName(), FRAME_RATE, lag);
+        if (!(lag <= maxLag)) {
+            throw new IllegalStateException("Hand filter " + name + " lags " + lag + " ms, above " + maxLag + " ms");
+        }
+    }
+}
@@ -0,0 +1,264 @@
+/**
+ * Project: ICON Lab - Kinect Hand to Shoulder Tracking
+ * Author: Eduardo Monteiro @ ICON LAB
+ * License: MIT License
+ */
+
+package com.icon.chick.tools;
+
+import com.icon.chick.utils.kinect.Kinect;
+import com.icon.chick.utils.kinect.HandFrame;
+import com.icon.chick.utils.kinect.SkeletonFrame;
+import com.icon.chick.utils.kinect.output.HandSample;
+import com.icon.chick.utils.kinect.output.HandWireDecoder;
+import com.icon.chick.utils.kinect.output.HandWireEncoder;
+import com.icon.chick.utils.kinect.output.HandWireFormat;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+/**
+ * Fuzz round-trip check and size comparison of the hand wire format.
+ * <p>
+ * The round trip encodes random frames: players joining and leaving, random
+ * walks with small steps and full-range jumps, NaN and out-of-range values.
+ * Between the encoder and the decoder, frames are lost, and corrupted or
+ * random frames are injected. Every decoded frame must match its source within
+ * HandWireFormat.MAX_ERROR, a delta frame after a loss must be refused until
+ * the next keyframe, and invalid input must be rejected without an exception
+ * and without disturbing the decoder. The size comparison then encodes the
+ * synthetic skeleton motion and compares the mean frame size with a float
+ * encoding of the same players (an int ID and four floats each, after an
+ * 8-byte sequence number).
+ * <p>
+ * Usage: HandWireFuzz [frames] [seed]
+ */
+public class HandWireFuzz {
+    private static final int FLOAT_FRAME_HEADER = Long.BYTES;
+    private static final int FLOAT_PLAYER_BYTES = Integer.BYTES + 4 * Float.BYTES;
+
+    /**
+     * Runs the checks.
+     *
+     * @param args The optional number of frames and random seed.
+     */
+    public static void main(String[] args) {
+        int frames = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : System.nanoTime();
+
+        System.out.println("Seed " + seed);
+        roundTrip(frames, new Random(seed));
+        compareSize(Math.max(frames / 100, 1000));
+    }
+
+    /**
+     * Encodes and decodes random frames over a lossy, corrupting channel.
+     *
+     * @param frames The number of frames.
+     * @param random The random source.
+     */
+    private static void roundTrip(int frames, Random random) {
+        HandWireEncoder encoder = new HandWireEncoder(1 + random.nextInt(60));
+        HandWireDecoder decoder = new HandWireDecoder();
+        HandSample[] input = HeadlessPipeline.samples();
+        HandSample[] output = HeadlessPipeline.samples();
+        float[] values = new float[SkeletonFrame.BODY_COUNT * 4];
+        ByteBuffer frame = ByteBuffer.allocate(HandWireFormat.MAX_FRAME_BYTES);
+        ByteBuffer garbage = ByteBuffer.allocate(HandWireFormat.MAX_FRAME_BYTES * 2);
+
+        int mask = 0;
+        boolean synced = false;
+        long decoded = 0;
+        long refused = 0;
+        long lost = 0;
+        long rejected = 0;
+        long accepted = 0;
+        long bytes = 0;
+        for (int n = 0; n < frames; n++) {
+            // Players join and leave, and move by steps of random magnitude.
+            if (random.nextInt(20) == 0) {
+                mask ^= 1 << random.nextInt(SkeletonFrame.BODY_COUNT);
+            }
+            float step = random.nextInt(4) == 0 ? 0 : (float) Math.pow(10, -1 - 4 * random.nextFloat());
+            int count = 0;
+            for (int body = 0; body < SkeletonFrame.BODY_COUNT; body++) {
+                if ((mask & (1 << body)) == 0) {
+                    continue;
+                }
+                for (int c = 0; c < 4; c++) {
+                    int i = body * 4 + c;
+                    int event = random.nextInt(200);
+                    if (event == 0) {
+                        values[i] = Float.NaN;
+                    } else if (event == 1) {
+                        values[i] = (random.nextFloat() * 2 - 1) * 3;
+                    } else if (event == 2 || Float.isNaN(values[i])) {
+                        values[i] = random.nextFloat() * 2 - 1;
+                    } else if (step > 0) {
+                        values[i] = Math.max(-1f, Math.min(1f, values[i] + (float) random.nextGaussian() * step));
+                    }
+                }
+                HandSample sample = input[count++];
+                sample.setFrame(SkeletonFrame.playerColor(body), body, n, 0);
+                sample.setLeft(0, 0, values[body * 4], values[body * 4 + 1]);
+                sample.setRight(0, 0, values[body * 4 + 2], values[body * 4 + 3]);
+            }
+            // Shuffle the frame: the format does not depend on the sample order.
+            for (int i = count - 1; i > 0; i--) {
+                HandSample swap = input[i];
+                int j = random.nextInt(i + 1);
+                input[i] = input[j];
+                input[j] = swap;
+            }
+
+            frame.clear();
+            bytes += encoder.encode(input, 0, count, frame);
+            frame.flip();
+
+            if (random.nextInt(50) == 0) {
+                lost++;
+                continue;
+            }
+            if (random.nextInt(20) == 0) {
+                corrupt(frame, garbage, random);
+                int result = decoder.decode(garbage, output);
+                if (result == HandWireDecoder.MALFORMED || result == HandWireDecoder.MISSING_REFERENCE) {
+                    rejected++;
+                } else if (result >= 0 && result <= SkeletonFrame.BODY_COUNT) {
+                    // The corruption made another valid frame: values are unknown until the next keyframe.
+                    accepted++;
+                    synced = false;
+                } else {
+                    throw new IllegalStateException("Invalid decoder result " + result + " at frame " + n);
+                }
+            }
+
+            int result = decoder.decode(frame, output);
+            boolean keyframe = (frame.get(0) & HandWireFormat.KEYFRAME) != 0;
+            if (result == HandWireDecoder.MISSING_REFERENCE || (result == HandWireDecoder.MALFORMED && !synced)) {
+                // A desynchronized decoder may also find the next delta frame inconsistent.
+                if (keyframe) {
+                    throw new IllegalStateException("Keyframe refused at frame " + n);
+                }
+                refused++;
+                synced = false;
+                encoder.requestKeyframe();
+                continue;
+            }
+            if (result < 0) {
+                throw new IllegalStateException("Valid frame rejected at frame " + n + ": " + result);
+            }
+            synced |= keyframe;
+            decoded++;
+            if (synced) {
+                check(n, values, mask, output, result);
+            }
+        }
+
+        if (decoded == 0 || refused == 0 || rejected == 0) {
+            throw new IllegalStateException("Round trip did not exercise the decoder: " + decoded + " decoded, " + refused + " refused, " + rejected + " rejected");
+        }
+        System.out.printf("Round trip: %d frames, %d decoded, %d lost, %d delta frames refused after a loss, %d invalid frames rejected, %d corruptions decoded as valid frames%n",
+                frames, decoded, lost, refused, rejected, accepted);
+        System.out.printf("Mean frame size %.1f bytes, maximum error %.3g%n", (double) bytes / frames, HandWireFormat.MAX_ERROR);
+    }
+
+    /**
+     * Checks a decoded frame against the values it was encoded from.
+     */
+    private static void check(int n, float[] values, int mask, HandSample[] output, int count) {
+        if (count != Integer.bitCount(mask)) {
+            throw new IllegalStateException("Frame " + n + " decoded " + count + " players, expected " + Integer.bitCount(mask));
+        }
+        int previous = -1;
+        for (int i = 0; i < count; i++) {
+            HandSample sample = output[i];
+            int body = sample.getBody();
+            if (body <= previous || (mask & (1 << body)) == 0 || sample.getPlayerId() != SkeletonFrame.playerColor(body)) {
+                throw new IllegalStateException("Frame " + n + " decoded an unexpected body " + body);
+            }
+            previous = body;
+            float[] decoded = {
+                    sample.getLeftCorrectedX(), sample.getLeftCorrectedY(),
+                    sample.getRightCorrectedX(), sample.getRightCorrectedY()
+            };
+            for (int c = 0; c < 4; c++) {
+                float expected = values[body * 4 + c];
+                if (Float.isNaN(expected) != Float.isNaN(decoded[c])
+                        || Math.abs(Math.max(-1f, Math.min(1f, expected)) - decoded[c]) > HandWireFormat.MAX_ERROR * 1.0001f) {
+                    throw new IllegalStateException("Frame " + n + " body " + body + " coordinate " + c + " decoded " + decoded[c] + ", expected " + expected);
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes a corrupted copy of a frame, or random bytes.
+     */
+    private static void corrupt(ByteBuffer frame, ByteBuffer garbage, Random random) {
+        garbage.clear();
+        int length = frame.remaining();
+        switch (random.nextInt(4)) {
+            case 0 -> {
+                // Random bytes.
+                length = random.nextInt(garbage.capacity());
+                for (int i = 0; i < length; i++) {
+                    garbage.put((byte) random.nextInt());
+                }
+            }
+            case 1 -> {
+                // Truncated frame.
+                garbage.put(frame.duplicate().limit(random.nextInt(length)));
+            }
+            case 2 -> {
+                // Trailing bytes.
+                garbage.put(frame.duplicate());
+                for (int i = 1 + random.nextInt(8); i > 0; i--) {
+                    garbage.put((byte) random.nextInt());
+                }
+            }
+            default -> {
+                // Flipped bits.
+                garbage.put(frame.duplicate());
+                for (int i = 1 + random.nextInt(3); i > 0; i--) {
+                    int bit = random.nextInt(length * 8);
+                    garbage.put(bit / 8, (byte) (garbage.get(bit / 8) ^ (1 << (bit % 8))));
+                }
+            }
+        }
+        garbage.flip();
+    }
+
+    /**
+     * Encodes the synthetic skeleton motion and compares the frame size with floats.
+     *
+     * @param frames The number of frames.
+     */
+    private static void compareSize(int frames) {
+        HeadlessPipeline pipeline = new HeadlessPipeline(SkeletonFrame.BODY_COUNT);
+        Kinect kinect = pipeline.getKinect();
+
+        HandWireEncoder encoder = new HandWireEncoder(30);
+        HandSample[] samples = HeadlessPipeline.samples();
+        HandFrame hands = new HandFrame();
+        ByteBuffer frame = ByteBuffer.allocate(HandWireFormat.MAX_FRAME_BYTES);
+        long bytes = 0;
+        long floatBytes = 0;
+        for (int n = 0; n < frames; n++) {
+            kinect.update();
+            kinect.getHandPositions(hands);
+            int count = hands.getCount();
+            for (int index = 0; index < count; index++) {
+                samples[index].set(hands, hands.getBody(index));
+            }
+            frame.clear();
+            bytes += encoder.encode(samples, 0, count, frame);
+            floatBytes += FLOAT_FRAME_HEADER + (long) count * FLOAT_PLAYER_BYTES;
+        }
+
+        double ratio = (double) floatBytes / bytes;
+        System.out.printf("Synthetic motion, %d players: %.1f bytes per frame, %.1f with floats, %.2fx smaller%n",
+                SkeletonFrame.BODY_COUNT, (double) bytes / frames, (double) floatBytes / frames, ratio);
+        pipeline.close();
+    }
+}
@@ -0,0 +1,105 @@
+/**
+ * Project: ICON Lab - Kinect Hand to Shoulder Tracking
+ * Author: Eduardo Monteiro @ ICON LAB
+ * License: MIT License
+ */
+
+package com.icon.chick.tools;
+
+import com.icon.chick.App;
+import com.icon.chick.utils.kinect.Kinect;
+import com.icon.chick.utils.kinect.SkeletonFrame;
+import com.icon.chick.utils.kinect.output.HandSample;
+import com.icon.chick.utils.kinect.source.SkeletonSource;
+import com.icon.chick.utils.kinect.source.SyntheticSkeletonSource;
+
+/**
+ * The HeadlessPipeline class is the tracking pipeline of the application run
+ * without a window or a sensor, shared by the tools and the JMH benchmarks:
+ * an App sized like the sketch that is never started, and a Kinect reading
+ * a given skeleton source, by default synthetic bodies at the sensor rate.
+ */
+public class HeadlessPipeline {
+    /**
+     * The width of the sketch window.
+     */
+    public static final int WIDTH = 1728;
+
+    /**
+     * The height of the sketch window.
+     */
+    public static final int HEIGHT = 972;
+
+    /**
+     * The frame rate of the sensor, in frames per second.
+     */
+    public static final float SENSOR_RATE = 30;
+
+    private final App app;
+    private final Kinect kinect;
+
+    /**
+     * Creates a pipeline tracking synthetic bodies.
+     *
+     * @param bodies The number of synthetic bodies.
+     */
+    public HeadlessPipeline(int bodies) {
+        this(new SyntheticSkeletonSource(bodies, SENSOR_RATE));
+    }
+
+    /**
+     * Creates a pipeline reading a skeleton source.
+     *
+     * @param source The skeleton source.
+     */
+    public HeadlessPipeline(SkeletonSource source) {
+        this.app = new App();
+        this.app.width = WIDTH;
+        this.app.height = HEIGHT;
+        this.kinect = new Kinect(this.app, source);
+    }
+
+    /**
+     * @return The application, never started.
+     */
+    public App getApp() {
+        return this.app;
+    }
+
+    /**
+     * @return The tracking pipeline.
+     */
+    public Kinect getKinect() {
+        return this.kinect;
+    }
+
+    /**
+     * Runs one render tick of the application, without drawing: the frame
+     * count advances, the tick takes its snapshot and the hands are handed
+     * to the output.
+     */
+    public void tick() {
+        this.app.frameCount++;
+        this.kinect.getSnapshot();
+        this.kinect.run();
+    }
+
+    /**
+     * Stops the output and body engine threads of the pipeline.
+     */
+    public void close() {
+        this.kinect.getHandOutput().close();
+        this.kinect.getBodyEngine().shutdown();
+    }
+
+    /**
+     * @return Empty hand samples, one per body the sensor can track.
+     */
+    public static HandSample[] samples() {
+        HandSample[] samples = new HandSample[SkeletonFrame.BODY_COUNT];
+        for (int i = 0; i < samples.length; i++) {
+            samples[i] = new HandSample();
+        }
+        return samples;
+    }
+}
@@ -0,0 +1,241 @@
+/**
+ * Project: ICON Lab - Kinect Hand to Shoulder Tracking
+ * Author: Eduardo Monteiro @ ICON LAB
+ * License: MIT License
+ */
+
+package com.icon.chick.tools;
+
+import com.icon.chick.utils.kinect.Kinect;
+import com.icon.chick.utils.kinect.output.AsyncHandOutput;
+import com.icon.chick.utils.kinect.output.HandOutputSink;
+import com.icon.chick.utils.kinect.output.HandSample;
+import com.icon.chick.utils.kinect.source.AcquisitionSkeletonSource;
+import com.icon.chick.utils.kinect.source.PacedSkeletonSource;
+import com.icon.chick.utils.kinect.source.RecordedSkeletonSource;
+import com.icon.chick.utils.kinect.source.SkeletonSource;
+import com.icon.chick.utils.kinect.source.SyntheticSkeletonSource;
+import com.icon.chick.utils.metrics.LatencyHistogram;
+
+import java.nio.file.Path;
+import java.util.BitSet;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * End-to-end latency harness of the tracking pipeline, run headless without
+ * a sensor or a display.
+ * <p>
+ * Skeleton frames, synthetic or replayed from a recording, are released at
+ * 30 Hz and stamped with their release time, as the sensor delivers them. They
+ * go through the same path as in the application: the acquisition thread, a
+ * 60 Hz render loop taking the snapshot and mapping the hands, and the
+ * asynchronous hand output. The sink records when the first sample of each
+ * frame leaves the pipeline.
+ * <p>
+ * The harness reports the distribution of the release-to-output latency, its
+ * jitter, the intervals between outputs and the frames lost on the way, while
+ * background threads allocate and compute to load the CPU and the collector.
+ * It fails if no frame comes out, if a frame reaches the sink twice, or if a
+ * p99 latency limit is given and exceeded.
+ * <p>
+ * Usage: LatencyHarness [seconds] [load threads] [bodies | recording] [max p99 ms]
+ */
+public class LatencyHarness {
+    private static final float SENSOR_RATE = HeadlessPipeline.SENSOR_RATE;
+    private static final long RENDER_PERIOD = 1_000_000_000L / 60;
+    // Same polling period as the application.
+    private static final long SENSOR_POLL_INTERVAL = 2_000_000L;
+    private static final int WARMUP_SECONDS = 2;
+    // Frames released this close to the end may still be in flight and are not counted.
+    private static final int TAIL_FRAMES = 3;
+
+    /**
+     * Runs the harness.
+     *
+     * @param args The optional duration, load threads, body count or recording, and p99 limit.
+     */
+    public static void main(String[] args) {
+        int seconds = args.length > 0 ? Integer.parseInt(args[0]) : 30;
+        int loadThreads = args.length > 1 ? Integer.parseInt(args[1]) : 0;
+        String input = args.length > 2 ? args[2] : "6";
+        double maxP99 = args.length > 3 ? Double.parseDouble(args[3]) : Double.NaN;
+
+        SkeletonSource frames = input.matches("\\d+")
+                ? new SyntheticSkeletonSource(Integer.parseInt(input), SENSOR_RATE)
+                : new RecordedSkeletonSource(Path.of(input), RecordedSkeletonSource.AS_FAST_AS_POSSIBLE, true);
+        PacedSkeletonSource paced = new PacedSkeletonSource(frames, SENSOR_RATE);
+        AcquisitionSkeletonSource acquisition = new AcquisitionSkeletonSource(paced, SENSOR_POLL_INTERVAL, false);
+
+        HeadlessPipeline pipeline = new HeadlessPipeline(acquisition);
+        Kinect kinect = pipeline.getKinect();
+        LatencySink sink = new LatencySink((long) (WARMUP_SECONDS * SENSOR_RATE));
+        AsyncHandOutput output = AsyncHandOutput.start(sink, 256, 64, AsyncHandOutput.OverflowPolicy.DROP_OLDEST);
+        kinect.setHandOutput(output);
+
+        Thread[] load = startLoad(loadThreads);
+        long overruns = render(pipeline, (WARMUP_SECONDS + seconds) * 1_000_000_000L);
+        long released = paced.getReleasedCount();
+        // Let the frames in flight reach the sink.
+        LockSupport.parkNanos(RENDER_PERIOD * 4);
+        pipeline.close();
+        for (Thread thread : load) {
+            thread.interrupt();
+        }
+        acquisition.stop();
+
+        long first = sink.firstMeasured;
+        long last = released - TAIL_FRAMES;
+        long measured = Math.max(0, last - first + 1);
+        long emitted = measured == 0 ? 0 : sink.emitted.get((int) first, (int) last + 1).cardinality();
+        long lost = measured - emitted;
+
+        System.out.printf("Input: %s at %.0f Hz, %d s after %d s of warmup, %d load threads%n",
+                input.matches("\\d+") ? input + " synthetic bodies" : input, SENSOR_RATE, seconds, WARMUP_SECONDS, loadThreads);
+        print("Latency (ms)", sink.latency);
+        System.out.printf("Jitter (ms)    stddev %.2f, p99 - p50 %.2f%n",
+                sink.latencyStdDev() / 1e6, (sink.latency.getPercentile(99) - sink.latency.getPercentile(50)) / 1e6);
+        print("Interval (ms)", sink.intervals);
+        System.out.printf("Frames: %d released, %d output, %d lost (%.2f%%); %d replaced before rendering, %d dropped by the output%n",
+                measured, emitted, lost, measured == 0 ? 0 : 100.0 * lost / measured,
+                acquisition.getDroppedFrameCount(), output.getDroppedCount());
+        System.out.printf("Render: %d ticks over their %.1f ms period, %d samples written again%n",
+                overruns, RENDER_PERIOD / 1e6, sink.repeated);
+
+        if (emitted == 0) {
+            throw new IllegalStateException("No frame reached the output");
+        }
+        if (sink.repeated > 0) {
+            throw new IllegalStateException(sink.repeated + " samples of already written frames reached the output");
+        }
+        if (!Double.isNaN(maxP99) && sink.latency.getPercentile(99) / 1e6 > maxP99) {
+            throw new IllegalStateException("p99 latency above " + maxP99 + " ms");
+        }
+    }
+
+    /**
+     * Runs the render loop of the application at 60 Hz, without drawing.
+     *
+     * @return The number of ticks that took longer than the render period.
+     */
+    private static long render(HeadlessPipeline pipeline, long duration) {
+        long start = System.nanoTime();
+        long next = start;
+        long overruns = 0;
+        while (next - start < duration) {
+            long tick = System.nanoTime();
+            pipeline.tick();
+            if (System.nanoTime() - tick > RENDER_PERIOD) {
+                overruns++;
+            }
+
+            next += RENDER_PERIOD;
+            long now = System.nanoTime();
+            if (now - next > RENDER_PERIOD) {
+                // Like Processing, skip the ticks that are already late instead of catching up.
+                next = now;
+            }
+            while ((now = System.nanoTime()) < next) {
+                LockSupport.parkNanos(next - now);
+            }
+        }
+        return overruns;
+    }
+
+    /**
+     * Starts threads allocating short and medium-lived arrays and hashing them,
+     * to compete with the pipeline for the CPU and trigger collections.
+     */
+    private static Thread[] startLoad(int count) {
+        Thread[] threads = new Thread[count];
+        for (int t = 0; t < count; t++) {
+            threads[t] = new Thread(() -> {
+                long[][] retained = new long[256][];
+                long hash = 0;
+                for (int i = 0; !Thread.currentThread().isInterrupted(); i++) {
+                    long[] block = new long[512 + (i & 1023)];
+                    for (int j = 0; j < block.length; j++) {
+                        block[j] = hash = hash * 31 + j;
+                    }
+                    retained[i & 255] = block;
+                }
+                if (hash == 42) {
+                    System.out.println(hash);
+                }
+            }, "load-" + t);
+            threads[t].setDaemon(true);
+            threads[t].start();
+        }
+        return threads;
+    }
+
+    private static void print(String title, LatencyHistogram histogram) {
+        System.out.printf("%-14s p50 %.2f, p90 %.2f, p99 %.2f, p99.9 %.2f, max %.2f, mean %.2f over %d%n", title,
+                histogram.getPercentile(50) / 1e6, histogram.getPercentile(90) / 1e6, histogram.getPercentile(99) / 1e6,
+                histogram.getPercentile(99.9) / 1e6, histogram.getMax() / 1e6, histogram.getMean() / 1e6, histogram.getCount());
+    }
+
+    /**
+     * Sink recording the latency of the first sample of each frame, after the warmup frames.
+     */
+    private static final class LatencySink implements HandOutputSink {
+        final LatencyHistogram latency = new LatencyHistogram();
+        final LatencyHistogram intervals = new LatencyHistogram();
+        final BitSet emitted = new BitSet();
+        final long firstMeasured;
+        // Samples of a body of a frame already written.
+        long repeated;
+        private long lastSequence;
+        private int lastBodies;
+        private long lastOutput;
+        private double sum;
+        private double sumOfSquares;
+
+        LatencySink(long warmupFrames) {
+            this.firstMeasured = warmupFrames + 1;
+        }
+
+        @Override
+        public void write(HandSample[] batch, int count) {
+            long now = System.nanoTime();
+            for (int i = 0; i < count; i++) {
+                long sequence = batch[i].getSequence();
+                int body = 1 << batch[i].getBody();
+                if (sequence < this.lastSequence) {
+                    this.repeated++;
+                    continue;
+                }
+                if (sequence == this.lastSequence) {
+                    if ((this.lastBodies & body) != 0) {
+                        this.repeated++;
+                    }
+                    this.lastBodies |= body;
+                    continue;
+                }
+                this.lastSequence = sequence;
+                this.lastBodies = body;
+                if (sequence < this.firstMeasured) {
+                    continue;
+                }
+
+                long value = now - batch[i].getTimestamp();
+                this.latency.record(value);
+                this.sum += value;
+                this.sumOfSquares += (double) value * value;
+                this.emitted.set((int) sequence);
+                if (this.lastOutput != 0) {
+                    this.intervals.record(now - this.lastOutput);
+                }
+                this.lastOutput = now;
+            }
+        }
+
+        double latencyStdDev() {
+            long count = this.latency.getCount();
+            if (count == 0) {
+                return 0;
+            }
+            double mean = this.sum / count;
+            return Math.sqrt(Math.max(0, this.sumOfSquares / count - mean * mean));
+        }
+    }
+}
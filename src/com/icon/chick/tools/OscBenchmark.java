@@ -0,0 +1,132 @@
+/**
+ * Project: ICON Lab - Kinect Hand to Shoulder Tracking
+ * Author: Eduardo Monteiro @ ICON LAB
+ * License: MIT License
+ */
+
+package com.icon.chick.tools;
+
+import com.icon.chick.utils.kinect.SkeletonFrame;
+import com.icon.chick.utils.kinect.output.HandSample;
+import com.icon.chick.utils.kinect.output.OscHandPublisher;
+import com.icon.chick.utils.kinect.output.OscHandReceiver;
+
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+
+/**
+ * Loopback throughput and latency benchmark of the OSC hand publisher.
+ * <p>
+ * A receiver thread decodes the bundles sent to a local port and checks their
+ * content. The publisher sends frames of BODY_COUNT players, stamped with the
+ * send time, at the given rate or as fast as the socket takes them. The benchmark
+ * reports the bundle and message rates, the loss, the one-way latency
+ * percentiles and the bytes allocated by the publishing thread.
+ * <p>
+ * Usage: OscBenchmark [frames] [bundles per second, 0 for unpaced]
+ */
+public class OscBenchmark {
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args The optional number of frames and sending rate.
+     * @throws InterruptedException If interrupted while waiting for the receiver.
+     */
+    public static void main(String[] args) throws InterruptedException {
+        int frames = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        int rate = args.length > 1 ? Integer.parseInt(args[1]) : 0;
+        long period = rate > 0 ? 1_000_000_000L / rate : 0;
+        int players = SkeletonFrame.BODY_COUNT;
+
+        OscHandReceiver receiver = new OscHandReceiver(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        long[] latencies = new long[frames];
+        int[] received = new int[1];
+        boolean[] corrupt = new boolean[1];
+        Thread receiving = new Thread(() -> {
+            try {
+                while (received[0] < frames) {
+                    receiver.receive((batch, count) -> {
+                        long now = System.nanoTime();
+                        for (int i = 0; i < count; i++) {
+                            // Every value of a frame is derived from its sequence number.
+                            float expected = (batch[i].getSequence() % 1000) / 1000f;
+                            if (batch[i].getBody() != i || batch[i].getLeftCorrectedX() != expected || batch[i].getRightCorrectedY() != -expected) {
+                                corrupt[0] = true;
+                            }
+                        }
+                        latencies[received[0]++] = now - batch[0].getTimestamp();
+                    });
+                }
+            } catch (RuntimeException e) {
+                // The receiver was closed after the last frame was lost.
+            }
+        }, "osc-receiver");
+        receiving.start();
+
+        OscHandPublisher publisher = new OscHandPublisher(receiver.getAddress());
+        HandSample[] samples = new HandSample[players];
+        for (int i = 0; i < players; i++) {
+            samples[i] = new HandSample();
+        }
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long allocatedBefore = 0;
+        long start = 0;
+        int warmup = frames / 10;
+        long next = System.nanoTime();
+        for (int frame = 0; frame < frames; frame++) {
+            if (period > 0) {
+                next += period;
+                while (System.nanoTime() < next) {
+                    Thread.onSpinWait();
+                }
+            }
+            if (frame == warmup) {
+                allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+                start = System.nanoTime();
+            }
+            float value = (frame % 1000) / 1000f;
+            long timestamp = System.nanoTime();
+            for (int i = 0; i < players; i++) {
+                samples[i].setFrame(SkeletonFrame.playerColor(i), i, frame, timestamp);
+                samples[i].setLeft(value, value, value, value);
+                samples[i].setRight(-value, -value, -value, -value);
+            }
+            long dropped = publisher.getDroppedDatagramCount();
+            publisher.send(samples, 0, players);
+            if (publisher.getDroppedDatagramCount() != dropped) {
+                // The socket buffer is full: let the receiver catch up.
+                Thread.yield();
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        long allocated = threads.getCurrentThreadAllocatedBytes() - allocatedBefore;
+
+        receiving.join(1000);
+        receiver.close();
+        receiving.join();
+
+        int count = received[0];
+        long sent = publisher.getDatagramCount();
+        long[] sorted = Arrays.copyOf(latencies, count);
+        Arrays.sort(sorted);
+        double seconds = elapsed / 1e9;
+        System.out.printf("Sent %d bundles (%d dropped by the socket, %d errors), received %d (%.1f%% lost in the receive buffer)%n",
+                sent, publisher.getDroppedDatagramCount(), publisher.getSendErrorCount(), count, 100.0 * (sent - count) / Math.max(sent, 1));
+        System.out.printf("Throughput: %.0f bundles/s, %.0f OSC messages/s%n",
+                (frames - warmup) / seconds, (frames - warmup) * (players + 1) / seconds);
+        if (count > 0) {
+            System.out.printf("Latency: p50 %.1f us, p99 %.1f us, max %.1f us%n",
+                    sorted[count / 2] / 1e3, sorted[(int) (count * 0.99)] / 1e3, sorted[count - 1] / 1e3);
+        }
+        System.out.printf("Publisher allocation: %d bytes over %d frames%n", allocated, frames - warmup);
+        publisher.close();
+
+        if (corrupt[0] || count == 0) {
+            throw new IllegalStateException("Loopback check failed: " + (corrupt[0] ? "corrupt bundle" : "nothing received"));
+        }
+    }
+}
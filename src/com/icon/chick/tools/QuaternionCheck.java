@@ -0,0 +1,131 @@
+/**
+ * Project: ICON Lab - Kinect Hand to Shoulder Tracking
+ * Author: Eduardo Monteiro @ ICON LAB
+ * License: MIT License
+ */
+
+package com.icon.chick.tools;
+
+import com.icon.chick.utils.math.VectorMath;
+
+import java.util.Random;
+
+/**
+ * Equivalence check of the quaternion rotations of VectorMath against the
+ * Rodrigues rotation formula, computed in double from the axis and angle of
+ * the same quaternion.
+ * <p>
+ * For random unit quaternions and vectors, rotate() must match Rodrigues,
+ * rotateInverse() must match Rodrigues with the opposite angle and undo
+ * rotate(), and toLocal() must match the inverse rotation of the offset from
+ * the origin, all within MAX_ERROR of the length of the vector.
+ * <p>
+ * Usage: QuaternionCheck [samples]
+ */
+public class QuaternionCheck {
+    private static final double MAX_ERROR = 1e-5;
+    private static final float RANGE = 2000;
+
+    /**
+     * Runs the check.
+     *
+     * @param args The optional number of samples.
+     */
+    public static void main(String[] args) {
+        int samples = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+
+        Random random = new Random(42);
+        float[] q = new float[4];
+        float[] v = new float[3];
+        float[] origin = new float[3];
+        float[] point = new float[3];
+        float[] out = new float[3];
+        float[] back = new float[3];
+        double[] expected = new double[3];
+        double worst = 0;
+        for (int n = 0; n < samples; n++) {
+            randomQuaternion(random, q);
+            for (int i = 0; i < 3; i++) {
+                v[i] = (random.nextFloat() * 2 - 1) * RANGE;
+                origin[i] = (random.nextFloat() * 2 - 1) * RANGE;
+                point[i] = origin[i] + v[i];
+            }
+            double length = VectorMath.length(v[0], v[1], v[2]);
+
+            VectorMath.rotate(q, 0, v, 0, out, 0);
+            rodrigues(q, v, 1, expected);
+            worst = Math.max(worst, check("rotate", n, expected, out, length));
+
+            VectorMath.rotateInverse(q, 0, out, 0, back, 0);
+            worst = Math.max(worst, check("rotateInverse of rotate", n, toDouble(v), back, length));
+
+            VectorMath.rotateInverse(q, 0, v, 0, out, 0);
+            rodrigues(q, v, -1, expected);
+            worst = Math.max(worst, check("rotateInverse", n, expected, out, length));
+
+            VectorMath.toLocal(q, 0, origin, 0, point, 0, out, 0);
+            worst = Math.max(worst, check("toLocal", n, expected, out, length));
+        }
+        System.out.printf("Quaternions: %d samples, largest difference %.2e of the vector length%n", samples, worst);
+    }
+
+    /**
+     * Fills a unit quaternion (w, x, y, z) uniformly distributed over the rotations.
+     */
+    private static void randomQuaternion(Random random, float[] q) {
+        double u1 = random.nextDouble();
+        double u2 = random.nextDouble() * 2 * Math.PI;
+        double u3 = random.nextDouble() * 2 * Math.PI;
+        double a = Math.sqrt(1 - u1);
+        double b = Math.sqrt(u1);
+        q[0] = (float) (a * Math.sin(u2));
+        q[1] = (float) (a * Math.cos(u2));
+        q[2] = (float) (b * Math.sin(u3));
+        q[3] = (float) (b * Math.cos(u3));
+    }
+
+    /**
+     * Rotates a vector with the Rodrigues formula about the axis of a quaternion,
+     * by its angle times a sign.
+     */
+    private static void rodrigues(float[] q, float[] v, int sign, double[] out) {
+        double norm = Math.sqrt((double) q[0] * q[0] + (double) q[1] * q[1] + (double) q[2] * q[2] + (double) q[3] * q[3]);
+        double w = q[0] / norm;
+        double sine = Math.sqrt((double) q[1] * q[1] + (double) q[2] * q[2] + (double) q[3] * q[3]) / norm;
+        if (sine == 0) {
+            for (int i = 0; i < 3; i++) {
+                out[i] = v[i];
+            }
+            return;
+        }
+        double kx = q[1] / norm / sine;
+        double ky = q[2] / norm / sine;
+        double kz = q[3] / norm / sine;
+        double angle = sign * 2 * Math.atan2(sine, w);
+        double cos = Math.cos(angle);
+        double sin = Math.sin(angle);
+        double dot = kx * v[0] + ky * v[1] + kz * v[2];
+        out[0] = v[0] * cos + (ky * v[2] - kz * v[1]) * sin + kx * dot * (1 - cos);
+        out[1] = v[1] * cos + (kz * v[0] - kx * v[2]) * sin + ky * dot * (1 - cos);
+        out[2] = v[2] * cos + (kx * v[1] - ky * v[0]) * sin + kz * dot * (1 - cos);
+    }
+
+    private static double[] toDouble(float[] v) {
+        return new double[]{v[0], v[1], v[2]};
+    }
+
+    /**
+     * @return The distance between the expected and actual vectors, relative to the vector length.
+     */
+    private static double check(String name, int sample, double[] expected, float[] actual, double length) {
+        double dx = expected[0] - actual[0];
+        double dy = expected[1] - actual[1];
+        double dz = expected[2] - actual[2];
+        double error = Math.sqrt(dx * dx + dy * dy + dz * dz) / Math.max(length, 1);
+        if (!(error <= MAX_ERROR)) {
+            throw new IllegalStateException(name + ", sample " + sample + ": expected [ " + expected[0] + ", " + expected[1] + ", " + expected[2]
+                    + " ], computed [ " + actual[0] + ", " + actual[1] + ", " + actual[2] + " ]");
+        }
+        return error;
+    }
+}
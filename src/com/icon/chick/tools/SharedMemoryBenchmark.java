@@ -0,0 +1,150 @@
+/**
+ * Project: ICON Lab - Kinect Hand to Shoulder Tracking
+ * Author: Eduardo Monteiro @ ICON LAB
+ * License: MIT License
+ */
+
+package com.icon.chick.tools;
+
+import com.icon.chick.utils.kinect.SkeletonFrame;
+import com.icon.chick.utils.kinect.output.HandSample;
+import com.icon.chick.utils.kinect.output.SharedMemoryHandPublisher;
+import com.icon.chick.utils.kinect.output.SharedMemoryHandReader;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Latency benchmark of the shared memory hand publisher.
+ * <p>
+ * A publisher thread writes frames of BODY_COUNT players at the given rate
+ * while a reader thread polls the latest frame with SharedMemoryHandReader.
+ * Every value of a frame is derived from its frame index, so the reader also
+ * checks that no frame is torn. The benchmark reports the latency from publish
+ * to first observation, the frames the reader missed, the seqlock retries and
+ * a read of the history ring.
+ * <p>
+ * Usage: SharedMemoryBenchmark [frames] [frames per second]
+ */
+public class SharedMemoryBenchmark {
+    private static final int RING = 8;
+    private static final long SPIN_NANOS = 100_000L;
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args The optional number of frames and publishing rate.
+     * @throws InterruptedException If interrupted while waiting for the threads.
+     */
+    public static void main(String[] args) throws InterruptedException {
+        int frames = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int rate = args.length > 1 ? Integer.parseInt(args[1]) : 10_000;
+        long period = 1_000_000_000L / rate;
+
+        Path path;
+        try {
+            Path shm = Path.of("/dev/shm");
+            path = Files.isDirectory(shm) ? Files.createTempFile(shm, "kinect-hands", ".shm") : Files.createTempFile("kinect-hands", ".shm");
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to create the shared memory file", e);
+        }
+
+        SharedMemoryHandPublisher publisher = new SharedMemoryHandPublisher(path, RING);
+        SharedMemoryHandReader reader = new SharedMemoryHandReader(path);
+
+        long[] latencies = new long[frames];
+        int[] observed = new int[1];
+        boolean[] torn = new boolean[1];
+        Thread reading = new Thread(() -> {
+            HandSample[] samples = HeadlessPipeline.samples();
+            long last = -1;
+            while (last < frames - 1) {
+                int count = reader.readLatest(samples);
+                long frame = reader.getFrameIndex();
+                if (count < 0 || frame == last) {
+                    // Returns at once when a core is free, and lets the publisher run on a single core.
+                    Thread.yield();
+                    continue;
+                }
+                long now = System.nanoTime();
+                if (!consistent(samples, count, frame)) {
+                    torn[0] = true;
+                }
+                latencies[observed[0]++] = now - reader.getPublishTime();
+                last = frame;
+            }
+        }, "shm-reader");
+        reading.start();
+
+        HandSample[] samples = HeadlessPipeline.samples();
+        long next = System.nanoTime();
+        for (int frame = 0; frame < frames; frame++) {
+            next += period;
+            // Sleep until shortly before the deadline, leaving the core to the reader.
+            long wait = next - System.nanoTime() - SPIN_NANOS;
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            while (System.nanoTime() < next) {
+                Thread.onSpinWait();
+            }
+            for (int i = 0; i < samples.length; i++) {
+                float value = frame + i;
+                samples[i].setFrame(SkeletonFrame.playerColor(i), i, frame, System.nanoTime());
+                samples[i].setLeft(value, value, value, value);
+                samples[i].setRight(-value, -value, -value, -value);
+                samples[i].setShoulders(value, value, value, -value, -value, -value);
+            }
+            publisher.publish(samples, 0, samples.length);
+        }
+        reading.join();
+
+        HandSample[] history = HeadlessPipeline.samples();
+        int kept = 0;
+        for (long frame = frames - RING; frame < frames; frame++) {
+            int count = reader.read(frame, history);
+            if (count == SkeletonFrame.BODY_COUNT && consistent(history, count, frame)) {
+                kept++;
+            }
+        }
+
+        int count = observed[0];
+        long[] sorted = Arrays.copyOf(latencies, count);
+        Arrays.sort(sorted);
+        System.out.printf("Published %d frames at %d/s, reader observed %d (%d superseded before being read)%n",
+                frames, rate, count, frames - count);
+        System.out.printf("Latency: p50 %.2f us, p99 %.2f us, max %.1f us, %d seqlock retries%n",
+                sorted[count / 2] / 1e3, sorted[(int) (count * 0.99)] / 1e3, sorted[count - 1] / 1e3, reader.getRetryCount());
+        System.out.printf("History: %d of the last %d frames readable%n", kept, RING);
+
+        reader.close();
+        publisher.close();
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to delete " + path, e);
+        }
+        if (torn[0] || kept != RING) {
+            throw new IllegalStateException(torn[0] ? "Torn frame read" : "History ring incomplete");
+        }
+    }
+
+    private static boolean consistent(HandSample[] samples, int count, long frame) {
+        if (count != SkeletonFrame.BODY_COUNT) {
+            return false;
+        }
+        for (int i = 0; i < count; i++) {
+            float value = frame + i;
+            HandSample sample = samples[i];
+            if (sample.getSequence() != frame || sample.getBody() != i || sample.getLeftX() != value
+                    || sample.getRightCorrectedY() != -value || sample.getShoulderRightZ() != -value) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,80 @@
+/**
+ * Project: ICON Lab - Kinect Hand to Shoulder Tracking
+ * Author: Eduardo Monteiro @ ICON LAB
+ * License: MIT License
+ */
+
+package com.icon.chick.tools;
+
+import com.icon.chick.App;
+import com.icon.chick.utils.kinect.CoordinateMapper;
+import com.icon.chick.utils.kinect.filter.ExponentialJointFilter;
+import processing.core.PVector;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * Equivalence check of the incremental hand smoother against the windowed
+ * exponential smoothing it replaces, CoordinateMapper.smoothHandPositions.
+ * <p>
+ * For every window size, random hand positions on the screen, with occasional
+ * NaN samples of untracked hands, are fed to both. The smoother must be NaN
+ * exactly when the reference is, and otherwise within MAX_ERROR of it: the
+ * reference accumulates in float, the smoother in double.
+ * <p>
+ * Usage: SmootherCheck [samples per window] [max window]
+ */
+public class SmootherCheck {
+    private static final float MAX_ERROR = 1e-3f;
+    private static final float NAN_PROBABILITY = 0.01f;
+
+    /**
+     * Runs the check.
+     *
+     * @param args The optional number of samples per window and largest window.
+     */
+    public static void main(String[] args) {
+        int samples = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        int maxWindow = args.length > 1 ? Integer.parseInt(args[1]) : 30;
+
+        CoordinateMapper mapper = new CoordinateMapper(new App(), 1920, 1080);
+        Random random = new Random(42);
+        float worst = 0;
+        for (int window = 1; window <= maxWindow; window++) {
+            ExponentialJointFilter smoother = mapper.createHandSmoother(window);
+            ArrayDeque<PVector> history = new ArrayDeque<>(window);
+            for (int n = 0; n < samples; n++) {
+                PVector sample = random.nextFloat() < NAN_PROBABILITY
+                        ? new PVector(Float.NaN, Float.NaN, Float.NaN)
+                        : new PVector(random.nextFloat() * 1700, random.nextFloat() * 1000, random.nextFloat() * 100);
+                if (history.size() == window) {
+                    history.removeFirst();
+                }
+                history.addLast(sample);
+                smoother.update(sample.x, sample.y, sample.z, n);
+
+                PVector expected = mapper.smoothHandPositions(new ArrayList<>(history));
+                float error = Math.max(error(expected.x, smoother.getX()),
+                        Math.max(error(expected.y, smoother.getY()), error(expected.z, smoother.getZ())));
+                if (!(error <= MAX_ERROR)) {
+                    throw new IllegalStateException("Window " + window + ", sample " + n + ": expected " + expected
+                            + ", smoothed [ " + smoother.getX() + ", " + smoother.getY() + ", " + smoother.getZ() + " ]");
+                }
+                worst = Math.max(worst, error);
+            }
+        }
+        System.out.printf("Smoother: %d samples for each window of 1 to %d, largest difference %.2e%n", samples, maxWindow, worst);
+    }
+
+    /**
+     * @return The absolute difference, 0 if both are NaN, NaN if only one is.
+     */
+    private static float error(float expected, float actual) {
+        if (Float.isNaN(expected) || Float.isNaN(actual)) {
+            return Float.isNaN(expected) && Float.isNaN(actual) ? 0 : Float.NaN;
+        }
+        return Math.abs(expected - actual);
+    }
+}
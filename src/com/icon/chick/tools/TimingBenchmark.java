@@ -0,0 +1,194 @@
+/**
+ * Project: ICON Lab - Kinect Hand to Shoulder Tracking
+ * Author: Eduardo Monteiro @ ICON LAB
+ * License: MIT License
+ */
+
+package com.icon.chick.tools;
+
+import com.icon.chick.utils.kinect.Kinect;
+import com.icon.chick.utils.kinect.SkeletonFrame;
+import com.icon.chick.utils.metrics.FrameTimings;
+import com.icon.chick.utils.metrics.LatencyHistogram;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Cost and accuracy check of the timing instrumentation.
+ * <p>
+ * Measures the cost and allocation of recording a stage, from one thread and
+ * from several at once, checks the reported percentiles against the exact
+ * ones of the recorded values and the percentiles of a window read as a
+ * difference, and prints the stage timings of the synthetic tracking pipeline.
+ * <p>
+ * Usage: TimingBenchmark [records]
+ */
+public class TimingBenchmark {
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args The optional number of records.
+     * @throws InterruptedException If interrupted while waiting for the recording threads.
+     */
+    public static void main(String[] args) throws InterruptedException {
+        int records = args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000;
+
+        measureCost(records);
+        measureContention(records / 4, 4);
+        checkAccuracy(1_000_000, new Random(1));
+        checkWindow(100_000, new Random(2));
+        printPipeline(3000);
+    }
+
+    /**
+     * Measures the cost of recording a stage, including its System.nanoTime().
+     */
+    private static void measureCost(int records) {
+        FrameTimings timings = new FrameTimings();
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long time = System.nanoTime();
+        for (int i = 0; i < records; i++) {
+            time = timings.record(FrameTimings.Stage.DECODE, time);
+        }
+
+        long allocated = threads.getCurrentThreadAllocatedBytes();
+        long start = System.nanoTime();
+        time = start;
+        for (int i = 0; i < records; i++) {
+            time = timings.record(FrameTimings.Stage.DECODE, time);
+        }
+        long elapsed = System.nanoTime() - start;
+        allocated = threads.getCurrentThreadAllocatedBytes() - allocated;
+
+        // The clock alone, to tell the histogram cost from the clock cost.
+        long sum = 0;
+        start = System.nanoTime();
+        for (int i = 0; i < records; i++) {
+            sum += System.nanoTime();
+        }
+        long clock = System.nanoTime() - start;
+        if (sum == 0) {
+            throw new IllegalStateException("System.nanoTime() is not running");
+        }
+        System.out.printf("Record: %.1f ns per stage, of which %.1f ns in System.nanoTime(), %d bytes allocated over %d records%n",
+                (double) elapsed / records, (double) clock / records, allocated, records);
+        if (allocated > 0) {
+            throw new IllegalStateException("Recording allocated " + allocated + " bytes");
+        }
+    }
+
+    /**
+     * Measures the cost of recording into one histogram from several threads.
+     */
+    private static void measureContention(int records, int threadCount) throws InterruptedException {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Thread[] threads = new Thread[threadCount];
+        for (int t = 0; t < threadCount; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < records; i++) {
+                    histogram.record(i & 0xffff);
+                }
+            });
+        }
+        long start = System.nanoTime();
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        long elapsed = System.nanoTime() - start;
+        System.out.printf("Record from %d threads: %.1f ns per value%n", threadCount, (double) elapsed / records / threadCount);
+        if (histogram.getCount() != (long) records * threadCount) {
+            throw new IllegalStateException("Lost records: " + histogram.getCount() + " of " + (long) records * threadCount);
+        }
+    }
+
+    /**
+     * Compares the reported percentiles with the exact ones, on log-normal durations.
+     */
+    private static void checkAccuracy(int count, Random random) {
+        LatencyHistogram histogram = new LatencyHistogram();
+        long[] values = new long[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = (long) Math.exp(10 + 2 * random.nextGaussian());
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+
+        double worst = 0;
+        for (double percentile : new double[]{50, 90, 99, 99.9, 99.99, 100}) {
+            long exact = values[(int) Math.max(0, Math.ceil(percentile / 100 * count) - 1)];
+            long reported = histogram.getPercentile(percentile);
+            double error = Math.abs(reported - exact) / (double) Math.max(exact, 1);
+            worst = Math.max(worst, error);
+        }
+        System.out.printf("Percentile error: %.2f%% at most (bound %.2f%%)%n", worst * 100, 100.0 / LatencyHistogram.SUB_BUCKETS);
+        if (worst > 1.0 / LatencyHistogram.SUB_BUCKETS || histogram.getMax() != values[count - 1]) {
+            throw new IllegalStateException("Percentiles out of bounds");
+        }
+    }
+
+    /**
+     * Checks that the difference of a histogram and its earlier copy reports
+     * the values recorded in between, and not the slow values recorded before.
+     */
+    private static void checkWindow(int count, Random random) {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < count; i++) {
+            histogram.record(1_000_000_000L + random.nextInt(1_000_000));
+        }
+        LatencyHistogram baseline = new LatencyHistogram();
+        baseline.copyFrom(histogram);
+
+        LatencyHistogram expected = new LatencyHistogram();
+        for (int i = 0; i < count; i++) {
+            long value = (long) Math.exp(10 + random.nextGaussian());
+            histogram.record(value);
+            expected.record(value);
+        }
+        LatencyHistogram window = new LatencyHistogram();
+        window.setDifference(histogram, baseline);
+
+        for (double percentile : new double[]{50, 90, 99, 99.9}) {
+            if (window.getPercentile(percentile) != expected.getPercentile(percentile)) {
+                throw new IllegalStateException("Window p" + percentile + " is " + window.getPercentile(percentile)
+                        + ", expected " + expected.getPercentile(percentile));
+            }
+        }
+        if (window.getCount() != count || window.getTotal() != expected.getTotal()
+                || Math.abs(window.getMax() - expected.getMax()) > expected.getMax() / LatencyHistogram.SUB_BUCKETS) {
+            throw new IllegalStateException("Window holds " + window.getCount() + " values up to " + window.getMax()
+                    + ", expected " + count + " up to " + expected.getMax());
+        }
+        System.out.printf("Window: p99.9 %d ns after %d slow values, max %d ns (exact %d ns)%n",
+                window.getPercentile(99.9), count, window.getMax(), expected.getMax());
+    }
+
+    /**
+     * Prints the stage timings of the headless tracking pipeline.
+     */
+    private static void printPipeline(int frames) {
+        HeadlessPipeline pipeline = new HeadlessPipeline(SkeletonFrame.BODY_COUNT);
+        Kinect kinect = pipeline.getKinect();
+        for (int frame = 0; frame < frames; frame++) {
+            if (frame == frames / 2) {
+                kinect.getTimings().reset();
+            }
+            kinect.update();
+            kinect.getHandPositions();
+        }
+
+        System.out.println("Stage (us)     p50      p99    p99.9      max    count");
+        for (FrameTimings.Stage stage : FrameTimings.Stage.values()) {
+            LatencyHistogram histogram = kinect.getTimings().get(stage);
+            System.out.printf("%-11s %7.1f  %7.1f  %7.1f  %7.1f  %7d%n", stage.name().toLowerCase(),
+                    histogram.getPercentile(50) / 1e3, histogram.getPercentile(99) / 1e3,
+                    histogram.getPercentile(99.9) / 1e3, histogram.getMax() / 1e3, histogram.getCount());
+        }
+        pipeline.close();
+    }
+}
@@ -0,0 +1,292 @@
+/**
+ * Project: ICON Lab - Kinect Hand to Shoulder Tracking
+ * Author: Eduardo Monteiro @ ICON LAB
+ * License: MIT License
+ */
+
+package com.icon.chick.utils.kinect;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The BodyEngine class runs a task once per tracked body, either inline on the
+ * calling thread or spread over a small pool of dedicated worker threads.
+ * <p>
+ * Tasks are given the index of their body and must only touch the state of
+ * that body's slot, so no two threads share mutable state. Each task writes its
+ * result to its own slot; callers read the slots in index order after run()
+ * returns, which makes the output order independent of the thread schedule.
+ * <p>
+ * In AUTO mode the engine measures the cost of each task and only hands a batch
+ * to the workers when its estimated inline cost exceeds the parallel threshold,
+ * which should be above the cost of waking the workers. A batch is never run by
+ * more than one caller at a time.
+ */
+public class BodyEngine {
+
+    /**
+     * The work done for one body.
+     */
+    @FunctionalInterface
+    public interface BodyTask {
+        /**
+         * Processes one body.
+         *
+         * @param index The index of the body in the batch.
+         */
+        void process(int index);
+    }
+
+    /**
+     * The execution policy of the engine.
+     */
+    public enum Mode {
+        /** Chooses inline or parallel execution from the measured task cost. */
+        AUTO,
+        /** Always runs on the calling thread. */
+        INLINE,
+        /** Always uses the workers when there is more than one body. */
+        PARALLEL
+    }
+
+    public static final long DEFAULT_PARALLEL_THRESHOLD = 100_000L;
+
+    private static final float COST_FACTOR = 0.1f;
+
+    private final long parallelThreshold;
+    private final Worker[] workers;
+    private final long[] taskCosts = new long[SkeletonFrame.BODY_COUNT];
+    private volatile Mode mode = Mode.AUTO;
+
+    // Batch state. The claim word packs the round in its upper 32 bits, the
+    // body count in the next 16 and the next index in the lower 16, so a late
+    // worker of a round can neither claim an index of the next round nor check
+    // an index of its round against the count of the next.
+    private final AtomicLong claims = new AtomicLong();
+    private final AtomicInteger completed = new AtomicInteger();
+    private volatile int round;
+    private BodyTask task;
+    private volatile Thread caller;
+    private volatile Throwable failure;
+
+    private float taskCost = Float.NaN;
+    private long inlineBatches;
+    private long parallelBatches;
+
+    /**
+     * Constructor for the BodyEngine class.
+     *
+     * @param threads The number of worker threads, the calling thread excluded.
+     * @param parallelThreshold The estimated batch cost in nanoseconds above which AUTO mode uses the workers.
+     */
+    public BodyEngine(int threads, long parallelThreshold) {
+        if (threads < 0 || parallelThreshold < 0) {
+            throw new IllegalArgumentException("Invalid body engine configuration: " + threads + ", " + parallelThreshold);
+        }
+        this.parallelThreshold = parallelThreshold;
+        this.workers = new Worker[threads];
+        for (int i = 0; i < threads; i++) {
+            this.workers[i] = new Worker("kinect-body-" + i);
+            this.workers[i].start();
+        }
+    }
+
+    /**
+     * Creates an engine with one worker per spare processor, up to one per body.
+     *
+     * @return A new BodyEngine.
+     */
+    public static BodyEngine createDefault() {
+        int threads = Math.min(SkeletonFrame.BODY_COUNT - 1, Runtime.getRuntime().availableProcessors() - 1);
+        return new BodyEngine(Math.max(threads, 0), DEFAULT_PARALLEL_THRESHOLD);
+    }
+
+    /**
+     * Runs a task for each body of a batch and waits for all of them.
+     *
+     * @param bodies The number of bodies, at most BODY_COUNT.
+     * @param task The task to run for each body.
+     */
+    public void run(int bodies, BodyTask task) {
+        if (bodies < 0 || bodies > SkeletonFrame.BODY_COUNT) {
+            throw new IllegalArgumentException("Invalid body count: " + bodies);
+        }
+        if (bodies == 0) {
+            return;
+        }
+
+        if (usesWorkers(bodies)) {
+            runParallel(bodies, task);
+            this.parallelBatches++;
+        } else {
+            for (int index = 0; index < bodies; index++) {
+                runTask(task, index);
+            }
+            this.inlineBatches++;
+        }
+
+        long total = 0;
+        for (int index = 0; index < bodies; index++) {
+            total += this.taskCosts[index];
+        }
+        float cost = (float) total / bodies;
+        this.taskCost = Float.isNaN(this.taskCost) ? cost : this.taskCost + COST_FACTOR * (cost - this.taskCost);
+    }
+
+    private boolean usesWorkers(int bodies) {
+        if (bodies < 2 || this.workers.length == 0) {
+            return false;
+        }
+        switch (this.mode) {
+            case INLINE:
+                return false;
+            case PARALLEL:
+                return true;
+            default:
+                // Measure inline first, then compare the estimated batch cost.
+                return !Float.isNaN(this.taskCost) && this.taskCost * bodies > this.parallelThreshold;
+        }
+    }
+
+    private void runParallel(int bodies, BodyTask task) {
+        this.task = task;
+        this.failure = null;
+        this.caller = Thread.currentThread();
+        this.completed.set(0);
+        int round = this.round + 1;
+        // Published last: a worker that claims from this word sees the state above.
+        this.claims.set((long) round << 32 | (long) bodies << 16);
+        this.round = round;
+        for (Worker worker : this.workers) {
+            LockSupport.unpark(worker);
+        }
+
+        drain(round);
+        while (this.completed.get() < bodies) {
+            LockSupport.park(this);
+        }
+
+        this.task = null;
+        Throwable failure = this.failure;
+        if (failure != null) {
+            if (failure instanceof RuntimeException) {
+                throw (RuntimeException) failure;
+            }
+            if (failure instanceof Error) {
+                throw (Error) failure;
+            }
+            throw new IllegalStateException("Body task failed", failure);
+        }
+    }
+
+    /**
+     * Claims and runs the tasks of a round until none is left.
+     *
+     * @param round The round being drained.
+     */
+    private void drain(int round) {
+        while (true) {
+            long claim = this.claims.get();
+            int index = (int) claim & 0xFFFF;
+            int count = (int) (claim >>> 16) & 0xFFFF;
+            if ((int) (claim >>> 32) != round || index >= count) {
+                return;
+            }
+            if (!this.claims.compareAndSet(claim, claim + 1)) {
+                continue;
+            }
+            try {
+                runTask(this.task, index);
+            } catch (Throwable e) {
+                this.failure = e;
+            }
+            if (this.completed.incrementAndGet() == count) {
+                LockSupport.unpark(this.caller);
+            }
+        }
+    }
+
+    private void runTask(BodyTask task, int index) {
+        long start = System.nanoTime();
+        try {
+            task.process(index);
+        } finally {
+            this.taskCosts[index] = System.nanoTime() - start;
+        }
+    }
+
+    /**
+     * Sets the execution policy.
+     *
+     * @param mode The mode.
+     */
+    public void setMode(Mode mode) {
+        this.mode = mode;
+    }
+
+    /**
+     * @return The execution policy.
+     */
+    public Mode getMode() {
+        return this.mode;
+    }
+
+    /**
+     * @return The measured average cost of one body task in nanoseconds, NaN before the first batch.
+     */
+    public float getTaskCost() {
+        return this.taskCost;
+    }
+
+    /**
+     * @return The number of batches run on the calling thread.
+     */
+    public long getInlineBatches() {
+        return this.inlineBatches;
+    }
+
+    /**
+     * @return The number of batches run with the workers.
+     */
+    public long getParallelBatches() {
+        return this.parallelBatches;
+    }
+
+    /**
+     * Stops the worker threads.
+     */
+    public void shutdown() {
+        for (Worker worker : this.workers) {
+            worker.running = false;
+            LockSupport.unpark(worker);
+        }
+    }
+
+    /**
+     * A worker thread draining each new round.
+     */
+    private class Worker extends Thread {
+        private volatile boolean running = true;
+
+        Worker(String name) {
+            super(name);
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            int seen = 0;
+            while (this.running) {
+                int current = round;
+                if (current == seen) {
+                    LockSupport.park(BodyEngine.this);
+                    continue;
+                }
+                seen = current;
+                drain(current);
+            }
+        }
+    }
+}
@@ -0,0 +1,165 @@
+/**
+ * Project: ICON Lab - Kinect Hand to Shoulder Tracking
+ * Author: Eduardo Monteiro @ ICON LAB
+ * License: MIT License
+ */
+
+package com.icon.chick.utils.kinect;
+
+import com.icon.chick.utils.math.VectorMath;
+import KinectPV2.KinectPV2;
+
+/**
+ * The BodyFingerprint class describes the proportions of a body as bone
+ * lengths divided by the torso length (spine shoulder to spine base), so the
+ * fingerprint does not depend on the distance to the sensor. Bones are
+ * measured in camera space, back-projecting the color positions of their
+ * joints with their depth, so a bone pointing at the sensor keeps its length.
+ * Left and right bones are averaged to reduce the effect of the pose.
+ * <p>
+ * The first REQUIRED dimensions describe the upper body and are always present
+ * in a valid fingerprint; the legs are often out of view near the sensor, so
+ * the other dimensions may be NaN. Fingerprints are compared by the RMS
+ * difference of the dimensions both have.
+ */
+public final class BodyFingerprint {
+    public static final int SHOULDER_WIDTH = 0;
+    public static final int UPPER_ARM = 1;
+    public static final int FOREARM = 2;
+    public static final int HIP_WIDTH = 3;
+    public static final int THIGH = 4;
+    public static final int SHIN = 5;
+
+    /**
+     * The number of dimensions of a fingerprint.
+     */
+    public static final int DIMENSIONS = 6;
+
+    /**
+     * The number of leading dimensions a valid fingerprint always has.
+     */
+    public static final int REQUIRED = 3;
+
+    // Pairs of bones measured for each dimension; single bones are repeated.
+    private static final int[][] BONES = {
+            {KinectPV2.JointType_ShoulderLeft, KinectPV2.JointType_ShoulderRight, KinectPV2.JointType_ShoulderLeft, KinectPV2.JointType_ShoulderRight},
+            {KinectPV2.JointType_ShoulderLeft, KinectPV2.JointType_ElbowLeft, KinectPV2.JointType_ShoulderRight, KinectPV2.JointType_ElbowRight},
+            {KinectPV2.JointType_ElbowLeft, KinectPV2.JointType_WristLeft, KinectPV2.JointType_ElbowRight, KinectPV2.JointType_WristRight},
+            {KinectPV2.JointType_HipLeft, KinectPV2.JointType_HipRight, KinectPV2.JointType_HipLeft, KinectPV2.JointType_HipRight},
+            {KinectPV2.JointType_HipLeft, KinectPV2.JointType_KneeLeft, KinectPV2.JointType_HipRight, KinectPV2.JointType_KneeRight},
+            {KinectPV2.JointType_KneeLeft, KinectPV2.JointType_AnkleLeft, KinectPV2.JointType_KneeRight, KinectPV2.JointType_AnkleRight}
+    };
+
+    // Torsos shorter than this, in sensor pixels, are too far or too occluded to measure.
+    private static final float MIN_TORSO = 20;
+
+    // Intrinsics of the Kinect v2 color camera, in color pixels.
+    private static final float FOCAL_LENGTH = 1081.37f;
+    private static final float CENTER_X = 959.5f;
+    private static final float CENTER_Y = 539.5f;
+
+    private BodyFingerprint() {
+    }
+
+    /**
+     * Measures the fingerprint of a body in a frame. Dimensions whose joints
+     * are not all tracked are set to NaN.
+     *
+     * @param skeleton The view of the body in its frame.
+     * @param target The array receiving the DIMENSIONS values.
+     * @return True if the required dimensions were measured.
+     */
+    public static boolean measure(SkeletonView skeleton, float[] target) {
+        float torso = length(skeleton, KinectPV2.JointType_SpineShoulder, KinectPV2.JointType_SpineBase);
+        if (!(torsoLength(skeleton) >= MIN_TORSO) || !(torso > 0)) {
+            for (int i = 0; i < DIMENSIONS; i++) {
+                target[i] = Float.NaN;
+            }
+            return false;
+        }
+
+        boolean valid = true;
+        for (int i = 0; i < DIMENSIONS; i++) {
+            int[] bones = BONES[i];
+            float ratio = (length(skeleton, bones[0], bones[1]) + length(skeleton, bones[2], bones[3])) / (2 * torso);
+            target[i] = ratio;
+            if (i < REQUIRED && Float.isNaN(ratio)) {
+                valid = false;
+            }
+        }
+        return valid;
+    }
+
+    /**
+     * Returns the torso length of a body in the color image plane, the scale
+     * of the calibrated distance, which is measured in that plane too.
+     *
+     * @param skeleton The view of the body in its frame.
+     * @return The length in color pixels, NaN if the spine is not tracked.
+     */
+    public static float torsoLength(SkeletonView skeleton) {
+        JointView joint = skeleton.joint(KinectPV2.JointType_SpineShoulder);
+        if (joint.getState() != KinectPV2.TrackingState_Tracked) {
+            return Float.NaN;
+        }
+        float x = joint.getX();
+        float y = joint.getY();
+        joint = skeleton.joint(KinectPV2.JointType_SpineBase);
+        if (joint.getState() != KinectPV2.TrackingState_Tracked) {
+            return Float.NaN;
+        }
+        return VectorMath.distance(x, y, joint.getX(), joint.getY());
+    }
+
+    /**
+     * Compares two fingerprints.
+     *
+     * @param a The array holding the first fingerprint.
+     * @param aOffset The index of its first dimension.
+     * @param b The array holding the second fingerprint.
+     * @param bOffset The index of its first dimension.
+     * @return The RMS difference of the dimensions both fingerprints have, NaN if they miss a required one.
+     */
+    public static float distance(float[] a, int aOffset, float[] b, int bOffset) {
+        float sum = 0;
+        int count = 0;
+        for (int i = 0; i < DIMENSIONS; i++) {
+            float difference = a[aOffset + i] - b[bOffset + i];
+            if (!Float.isNaN(difference)) {
+                sum += difference * difference;
+                count++;
+            } else if (i < REQUIRED) {
+                return Float.NaN;
+            }
+        }
+        return (float) Math.sqrt(sum / count);
+    }
+
+    /**
+     * Returns the length of a bone in camera space, in the depth unit.
+     *
+     * @return The length, NaN if either joint is not tracked or has no depth.
+     */
+    private static float length(SkeletonView skeleton, int joint1, int joint2) {
+        // The joint view is shared, so the first joint is read before the second is wrapped.
+        JointView joint = skeleton.joint(joint1);
+        if (joint.getState() != KinectPV2.TrackingState_Tracked) {
+            return Float.NaN;
+        }
+        float x1 = joint.getX();
+        float y1 = joint.getY();
+        float z1 = joint.getZ();
+        joint = skeleton.joint(joint2);
+        if (joint.getState() != KinectPV2.TrackingState_Tracked) {
+            return Float.NaN;
+        }
+        float z2 = joint.getZ();
+        if (!(z1 > 0) || !(z2 > 0)) {
+            return Float.NaN;
+        }
+        // Back-project the color pixels: X = (u - cx) * Z / f, Y = (v - cy) * Z / f.
+        float dx = ((joint.getX() - CENTER_X) * z2 - (x1 - CENTER_X) * z1) / FOCAL_LENGTH;
+        float dy = ((joint.getY() - CENTER_Y) * z2 - (y1 - CENTER_Y) * z1) / FOCAL_LENGTH;
+        return VectorMath.length(dx, dy, z2 - z1);
+    }
+}
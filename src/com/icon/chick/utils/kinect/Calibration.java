@@ -0,0 +1,300 @@
+/**
+ * Project: ICON Lab - Kinect Hand to Shoulder Tracking
+ * Author: Eduardo Monteiro @ ICON LAB
+ * License: MIT License
+ */
+
+package com.icon.chick.utils.kinect;
+
+import com.icon.chick.utils.math.VectorMath;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The Calibration class measures the shoulder-to-hand distance of each player
+ * over several sensor frames, without blocking the render thread. Kinect feeds
+ * it every new snapshot; each player being calibrated collects one distance per
+ * new sensor frame, and once enough are collected, samples further than
+ * OUTLIER_THRESHOLD robust standard deviations (1.4826 * MAD) from the median
+ * are rejected and the distance is the mean of the others.
+ * <p>
+ * A player fails calibration if it leaves the frame, if too few of its
+ * frames give a valid distance, or if more than half of its samples are
+ * outliers. Progress and results are published to the listeners, on the
+ * thread updating the calibration.
+ */
+public class Calibration {
+    /**
+     * The number of robust standard deviations beyond which a sample is an outlier.
+     */
+    public static final float OUTLIER_THRESHOLD = 3;
+
+    private static final float MAD_TO_SIGMA = 1.4826f;
+
+    /**
+     * Receives calibration events. All methods default to doing nothing.
+     */
+    public interface Listener {
+        /**
+         * Called when a calibration starts.
+         *
+         * @param bodies The bodies being calibrated, one bit per body index.
+         */
+        default void started(int bodies) {
+        }
+
+        /**
+         * Called when a player collects a sample.
+         *
+         * @param body The body index of the player.
+         * @param collected The number of samples collected.
+         * @param required The number of samples required.
+         */
+        default void progress(int body, int collected, int required) {
+        }
+
+        /**
+         * Called when a player is calibrated.
+         *
+         * @param body The body index of the player.
+         * @param distance The calibrated shoulder-to-hand distance.
+         * @param inliers The number of samples kept after outlier rejection.
+         */
+        default void calibrated(int body, float distance, int inliers) {
+        }
+
+        /**
+         * Called when a player fails calibration.
+         *
+         * @param body The body index of the player.
+         * @param reason The reason of the failure.
+         */
+        default void failed(int body, String reason) {
+        }
+
+        /**
+         * Called when every player of the calibration is calibrated or failed.
+         *
+         * @param calibrated The number of calibrated players.
+         * @param failed The number of failed players.
+         */
+        default void completed(int calibrated, int failed) {
+        }
+    }
+
+    private final int requiredFrames;
+    private final int maxFrames;
+    private final float[] samples;
+    private final float[] sorted;
+    private final float[] deviations;
+    private final int[] collected = new int[SkeletonFrame.BODY_COUNT];
+    private final int[] frames = new int[SkeletonFrame.BODY_COUNT];
+    private final int[] generations = new int[SkeletonFrame.BODY_COUNT];
+    private final List<Listener> listeners = new ArrayList<>();
+
+    // Read by the metrics thread.
+    private volatile int active;
+    private int calibratedCount;
+    private int failedCount;
+    // Totals over all calibrations, written by the updating thread only.
+    private volatile long calibratedTotal;
+    private volatile long failedTotal;
+    private long lastSequence = -1;
+
+    /**
+     * Constructor for the Calibration class.
+     *
+     * @param requiredFrames The number of samples collected for each player.
+     */
+    public Calibration(int requiredFrames) {
+        if (requiredFrames < 1) {
+            throw new IllegalArgumentException("Invalid number of calibration frames: " + requiredFrames);
+        }
+        this.requiredFrames = requiredFrames;
+        this.maxFrames = requiredFrames * 3;
+        this.samples = new float[SkeletonFrame.BODY_COUNT * requiredFrames];
+        this.sorted = new float[requiredFrames];
+        this.deviations = new float[requiredFrames];
+    }
+
+    /**
+     * Adds a listener of the calibration events.
+     *
+     * @param listener The listener.
+     */
+    public void addListener(Listener listener) {
+        this.listeners.add(listener);
+    }
+
+    /**
+     * Starts calibrating the players of the table, restarting a calibration in progress.
+     *
+     * @param players The player table, receiving the calibrated distances.
+     */
+    public void start(PlayerTable players) {
+        this.active = players.getOccupied();
+        this.calibratedCount = 0;
+        this.failedCount = 0;
+        for (int body = 0; body < SkeletonFrame.BODY_COUNT; body++) {
+            this.collected[body] = 0;
+            this.frames[body] = 0;
+            this.generations[body] = players.getGeneration(body);
+        }
+
+        for (int i = 0; i < listeners.size(); i++) {
+            listeners.get(i).started(this.active);
+        }
+        if (this.active == 0) {
+            complete();
+        }
+    }
+
+    /**
+     * @return True while players are being calibrated.
+     */
+    public boolean isActive() {
+        return this.active != 0;
+    }
+
+    /**
+     * @return The progress of the calibration in progress, from 0 to 1.
+     */
+    public float getProgress() {
+        int done = this.calibratedCount + this.failedCount;
+        int total = done + Integer.bitCount(this.active);
+        if (total == 0) {
+            return 1;
+        }
+        float progress = done;
+        for (int body = 0; body < SkeletonFrame.BODY_COUNT; body++) {
+            if ((this.active & (1 << body)) != 0) {
+                progress += (float) this.collected[body] / this.requiredFrames;
+            }
+        }
+        return progress / total;
+    }
+
+    /**
+     * @return The number of players calibrated since the application started.
+     */
+    public long getCalibratedTotal() {
+        return this.calibratedTotal;
+    }
+
+    /**
+     * @return The number of players that failed calibration since the application started.
+     */
+    public long getFailedTotal() {
+        return this.failedTotal;
+    }
+
+    /**
+     * Collects one sample per player being calibrated from a snapshot. Snapshots
+     * of an already seen sensor frame are ignored.
+     *
+     * @param snapshot The snapshot of the current tick.
+     * @param players The player table, updated for the snapshot.
+     */
+    public void update(FrameSnapshot snapshot, PlayerTable players) {
+        if (this.active == 0 || snapshot.getSequence() == this.lastSequence) {
+            return;
+        }
+        this.lastSequence = snapshot.getSequence();
+
+        for (int body = 0; body < SkeletonFrame.BODY_COUNT; body++) {
+            if ((this.active & (1 << body)) != 0
+                    && (!players.isOccupied(body) || players.getGeneration(body) != this.generations[body])) {
+                fail(body, "Player lost during calibration");
+            }
+        }
+
+        for (int index = 0; index < snapshot.getTrackedCount() && this.active != 0; index++) {
+            int body = snapshot.getBody(index);
+            if ((this.active & (1 << body)) == 0) {
+                continue;
+            }
+
+            float distance = VectorMath.distance(
+                    snapshot.getX(index, FrameSnapshot.SHOULDER_RIGHT), snapshot.getY(index, FrameSnapshot.SHOULDER_RIGHT),
+                    snapshot.getX(index, FrameSnapshot.HAND_RIGHT), snapshot.getY(index, FrameSnapshot.HAND_RIGHT));
+            this.frames[body]++;
+            if (Float.isFinite(distance)) {
+                this.samples[body * this.requiredFrames + this.collected[body]++] = distance;
+                for (int i = 0; i < listeners.size(); i++) {
+                    listeners.get(i).progress(body, this.collected[body], this.requiredFrames);
+                }
+            }
+
+            if (this.collected[body] == this.requiredFrames) {
+                finish(body, players);
+            } else if (this.frames[body] >= this.maxFrames) {
+                fail(body, "Too few valid measurements");
+            }
+        }
+    }
+
+    /**
+     * Computes the distance of a player from its samples, rejecting outliers.
+     */
+    private void finish(int body, PlayerTable players) {
+        int count = this.requiredFrames;
+        System.arraycopy(this.samples, body * count, this.sorted, 0, count);
+        Arrays.sort(this.sorted, 0, count);
+        float median = median(this.sorted, count);
+        for (int i = 0; i < count; i++) {
+            this.deviations[i] = Math.abs(this.sorted[i] - median);
+        }
+        Arrays.sort(this.deviations, 0, count);
+        float limit = OUTLIER_THRESHOLD * MAD_TO_SIGMA * median(this.deviations, count);
+
+        float sum = 0;
+        int inliers = 0;
+        for (int i = 0; i < count; i++) {
+            if (Math.abs(this.sorted[i] - median) <= limit) {
+                sum += this.sorted[i];
+                inliers++;
+            }
+        }
+        if (inliers * 2 < count) {
+            fail(body, "Unstable measurements");
+            return;
+        }
+
+        float distance = sum / inliers;
+        players.setDistance(body, distance);
+        this.active &= ~(1 << body);
+        this.calibratedCount++;
+        this.calibratedTotal++;
+        for (int i = 0; i < listeners.size(); i++) {
+            listeners.get(i).calibrated(body, distance, inliers);
+        }
+        if (this.active == 0) {
+            complete();
+        }
+    }
+
+    private void fail(int body, String reason) {
+        this.active &= ~(1 << body);
+        this.failedCount++;
+        this.failedTotal++;
+        for (int i = 0; i < listeners.size(); i++) {
+            listeners.get(i).failed(body, reason);
+        }
+        if (this.active == 0) {
+            complete();
+        }
+    }
+
+    private void complete() {
+        for (int i = 0; i < listeners.size(); i++) {
+            listeners.get(i).completed(this.calibratedCount, this.failedCount);
+        }
+    }
+
+    private static float median(float[] values, int count) {
+        int middle = count / 2;
+        return count % 2 == 1 ? values[middle] : (values[middle - 1] + values[middle]) / 2;
+    }
+}
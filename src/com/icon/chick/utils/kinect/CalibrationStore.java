@@ -0,0 +1,285 @@
+/**
+ * Project: ICON Lab - Kinect Hand to Shoulder Tracking
+ * Author: Eduardo Monteiro @ ICON LAB
+ * License: MIT License
+ */
+
+package com.icon.chick.utils.kinect;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * The CalibrationStore class remembers the calibrated distance of players by
+ * their BodyFingerprint, in a memory-mapped file that survives restarts, so a
+ * visitor coming back does not need to calibrate again. Distances are stored
+ * in torso lengths, so a visitor standing at another distance from the sensor
+ * is rescaled to its current size.
+ * <p>
+ * The file is a 64 byte little-endian header followed by capacity fixed-size records:
+ * <pre>
+ * header: int magic, int version, int dimensions, int capacity, int recordBytes, 44 reserved bytes
+ * record: long lastUsed (epoch ms, 0 for a free record), float distance, float[dimensions] fingerprint
+ * </pre>
+ * Records are mirrored in memory and indexed by a hashed grid over the shoulder
+ * width and upper arm dimensions. The grid cell is as large as the largest
+ * difference a match can have in one dimension, so a lookup only visits the
+ * 3 x 3 cells around the fingerprint. Records unused for longer than the TTL
+ * expire, and a full store replaces its least recently used record.
+ */
+public class CalibrationStore implements Closeable {
+    static final int MAGIC = 0x3150434B; // "KCP1"
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 64;
+    static final int RECORD_BYTES = 40;
+    private static final int DISTANCE_OFFSET = Long.BYTES;
+    private static final int FINGERPRINT_OFFSET = DISTANCE_OFFSET + Float.BYTES;
+
+    private static final int DIMENSIONS = BodyFingerprint.DIMENSIONS;
+    private static final int GRID_X = BodyFingerprint.SHOULDER_WIDTH;
+    private static final int GRID_Y = BodyFingerprint.UPPER_ARM;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+    private final long ttl;
+    private final float matchRadius;
+    private final float cellSize;
+
+    private final long[] lastUsed;
+    private final float[] distances;
+    private final float[] fingerprints;
+    private final int[] buckets;
+    private final int[] next;
+    private int size;
+
+    /**
+     * Opens a calibration store, creating it if the file does not exist.
+     *
+     * @param path The store file.
+     * @param capacity The number of records of a new store; an existing store keeps its capacity.
+     * @param ttl The time in milliseconds after which an unused record expires.
+     * @param matchRadius The largest fingerprint distance of a match.
+     */
+    public CalibrationStore(Path path, int capacity, long ttl, float matchRadius) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Invalid calibration store capacity: " + capacity);
+        }
+        if (!(matchRadius > 0)) {
+            throw new IllegalArgumentException("Invalid match radius: " + matchRadius);
+        }
+        this.path = path;
+        this.ttl = ttl;
+        this.matchRadius = matchRadius;
+        // A match differs by at most matchRadius * sqrt(DIMENSIONS) in a single dimension.
+        this.cellSize = matchRadius * (float) Math.sqrt(DIMENSIONS);
+
+        try {
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            if (this.channel.size() >= HEADER_BYTES) {
+                MappedByteBuffer header = this.channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+                header.order(ByteOrder.LITTLE_ENDIAN);
+                if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+                    throw new IllegalArgumentException("Not a calibration store: " + path);
+                }
+                if (header.getInt(8) != DIMENSIONS || header.getInt(16) != RECORD_BYTES) {
+                    throw new IllegalArgumentException("Unsupported record layout in calibration store: " + path);
+                }
+                capacity = header.getInt(12);
+            }
+            this.buffer = this.channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES + (long) capacity * RECORD_BYTES);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open calibration store " + path, e);
+        }
+        this.buffer.order(ByteOrder.LITTLE_ENDIAN);
+        this.buffer.putInt(0, MAGIC);
+        this.buffer.putInt(4, VERSION);
+        this.buffer.putInt(8, DIMENSIONS);
+        this.buffer.putInt(12, capacity);
+        this.buffer.putInt(16, RECORD_BYTES);
+
+        this.capacity = capacity;
+        this.lastUsed = new long[capacity];
+        this.distances = new float[capacity];
+        this.fingerprints = new float[capacity * DIMENSIONS];
+        this.buckets = new int[Integer.highestOneBit(capacity * 2 - 1) << 1];
+        this.next = new int[capacity];
+        Arrays.fill(this.buckets, -1);
+
+        long now = System.currentTimeMillis();
+        for (int record = 0; record < capacity; record++) {
+            int position = HEADER_BYTES + record * RECORD_BYTES;
+            long used = this.buffer.getLong(position);
+            if (used == 0) {
+                continue;
+            }
+            if (now - used > ttl) {
+                this.buffer.putLong(position, 0);
+                continue;
+            }
+            this.lastUsed[record] = used;
+            this.distances[record] = this.buffer.getFloat(position + DISTANCE_OFFSET);
+            for (int i = 0; i < DIMENSIONS; i++) {
+                this.fingerprints[record * DIMENSIONS + i] = this.buffer.getFloat(position + FINGERPRINT_OFFSET + i * Float.BYTES);
+            }
+            link(record);
+            this.size++;
+        }
+    }
+
+    /**
+     * @return The number of records in the store.
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * @return The maximum number of records in the store.
+     */
+    public int getCapacity() {
+        return this.capacity;
+    }
+
+    /**
+     * Returns the calibrated distance of the closest matching fingerprint, and
+     * marks its record as used.
+     *
+     * @param fingerprint The fingerprint, as measured by BodyFingerprint.
+     * @return The distance in torso lengths, NaN if no record matches.
+     */
+    public float recall(float[] fingerprint) {
+        long now = System.currentTimeMillis();
+        int record = find(fingerprint, now);
+        if (record < 0) {
+            return Float.NaN;
+        }
+        this.lastUsed[record] = now;
+        this.buffer.putLong(HEADER_BYTES + record * RECORD_BYTES, now);
+        return this.distances[record];
+    }
+
+    /**
+     * Stores the calibrated distance of a fingerprint. The record of a matching
+     * fingerprint is replaced; otherwise a free, expired or least recently used
+     * record is taken.
+     *
+     * @param fingerprint The fingerprint, as measured by BodyFingerprint.
+     * @param distance The calibrated distance in torso lengths.
+     */
+    public void store(float[] fingerprint, float distance) {
+        long now = System.currentTimeMillis();
+        int record = find(fingerprint, now);
+        if (record >= 0) {
+            unlink(record);
+        } else {
+            record = 0;
+            for (int i = 0; i < this.capacity; i++) {
+                if (this.lastUsed[i] == 0 || now - this.lastUsed[i] > this.ttl) {
+                    record = i;
+                    break;
+                }
+                if (this.lastUsed[i] < this.lastUsed[record]) {
+                    record = i;
+                }
+            }
+            if (this.lastUsed[record] != 0) {
+                unlink(record);
+            } else {
+                this.size++;
+            }
+        }
+
+        int position = HEADER_BYTES + record * RECORD_BYTES;
+        this.distances[record] = distance;
+        this.buffer.putFloat(position + DISTANCE_OFFSET, distance);
+        for (int i = 0; i < DIMENSIONS; i++) {
+            this.fingerprints[record * DIMENSIONS + i] = fingerprint[i];
+            this.buffer.putFloat(position + FINGERPRINT_OFFSET + i * Float.BYTES, fingerprint[i]);
+        }
+        // The time is written last: it marks the record as valid.
+        this.lastUsed[record] = now;
+        this.buffer.putLong(position, now);
+        link(record);
+    }
+
+    /**
+     * Finds the closest unexpired record matching a fingerprint.
+     *
+     * @return The record, -1 if none matches.
+     */
+    private int find(float[] fingerprint, long now) {
+        int cellX = cell(fingerprint[GRID_X]);
+        int cellY = cell(fingerprint[GRID_Y]);
+        int best = -1;
+        float bestDistance = this.matchRadius;
+        for (int dx = -1; dx <= 1; dx++) {
+            for (int dy = -1; dy <= 1; dy++) {
+                for (int record = this.buckets[bucket(cellX + dx, cellY + dy)]; record >= 0; record = this.next[record]) {
+                    if (now - this.lastUsed[record] > this.ttl) {
+                        continue;
+                    }
+                    float distance = BodyFingerprint.distance(fingerprint, 0, this.fingerprints, record * DIMENSIONS);
+                    if (distance <= bestDistance) {
+                        bestDistance = distance;
+                        best = record;
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    private int cell(float value) {
+        return (int) Math.floor(value / this.cellSize);
+    }
+
+    private int bucket(int cellX, int cellY) {
+        return (cellX * 73856093 ^ cellY * 19349663) & (this.buckets.length - 1);
+    }
+
+    private int recordBucket(int record) {
+        return bucket(cell(this.fingerprints[record * DIMENSIONS + GRID_X]), cell(this.fingerprints[record * DIMENSIONS + GRID_Y]));
+    }
+
+    private void link(int record) {
+        int bucket = recordBucket(record);
+        this.next[record] = this.buckets[bucket];
+        this.buckets[bucket] = record;
+    }
+
+    private void unlink(int record) {
+        int bucket = recordBucket(record);
+        if (this.buckets[bucket] == record) {
+            this.buckets[bucket] = this.next[record];
+            return;
+        }
+        for (int previous = this.buckets[bucket]; previous >= 0; previous = this.next[previous]) {
+            if (this.next[previous] == record) {
+                this.next[previous] = this.next[record];
+                return;
+            }
+        }
+    }
+
+    /**
+     * Flushes the store to disk and closes it.
+     */
+    @Override
+    public void close() {
+        try {
+            this.buffer.force();
+            this.channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to close calibration store " + this.path, e);
+        }
+    }
+}
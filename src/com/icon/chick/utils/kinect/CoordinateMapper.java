@@ -7,8 +7,9 @@
 package com.icon.chick.utils.kinect;
 
 import com.icon.chick.App;
+import com.icon.chick.utils.kinect.filter.ExponentialJointFilter;
+import com.icon.chick.utils.math.VectorMath;
 import KinectPV2.KJoint;
-import KinectPV2.KinectPV2;
 import processing.core.*;
 import java.util.*;
 
@@ -18,19 +19,67 @@ import java.util.*;
  */
 public class CoordinateMapper {
     private final App app;
-    private final KinectPV2 kinect;
 
     private static final float SMOOTHING_FACTOR = 0.2f;
+    private static final float MAX_DEPTH = 4500;
+
+    private int sourceWidth;
+    private int sourceHeight;
+
+    // Sensor-to-screen affine transform, rebuilt only when the app size or
+    // the stream resolution changes (see updateTransform).
+    private int transformWidth = -1;
+    private int transformHeight = -1;
+    private float scaleX;
+    private float scaleY;
+    private float scaleZ;
 
     /**
      * Constructor for the CoordinateMapper class.
      *
      * @param app The main application instance.
-     * @param kinect The Kinect sensor instance.
+     * @param sourceWidth The width of the sensor stream the joints are mapped from.
+     * @param sourceHeight The height of the sensor stream the joints are mapped from.
      */
-    public CoordinateMapper(App app, KinectPV2 kinect) {
+    public CoordinateMapper(App app, int sourceWidth, int sourceHeight) {
+        checkSourceResolution(sourceWidth, sourceHeight);
         this.app = app;
-        this.kinect = kinect;
+        this.sourceWidth = sourceWidth;
+        this.sourceHeight = sourceHeight;
+    }
+
+    /**
+     * Sets the resolution of the sensor stream the joints are mapped from.
+     *
+     * @param sourceWidth The width of the sensor stream.
+     * @param sourceHeight The height of the sensor stream.
+     */
+    public void setSourceResolution(int sourceWidth, int sourceHeight) {
+        checkSourceResolution(sourceWidth, sourceHeight);
+        this.sourceWidth = sourceWidth;
+        this.sourceHeight = sourceHeight;
+        this.transformWidth = -1;
+    }
+
+    private static void checkSourceResolution(int sourceWidth, int sourceHeight) {
+        if (sourceWidth <= 0 || sourceHeight <= 0) {
+            throw new IllegalArgumentException("Invalid source resolution: " + sourceWidth + "x" + sourceHeight);
+        }
+    }
+
+    /**
+     * Rebuilds the sensor-to-screen transform if the application size changed
+     * since it was last computed.
+     */
+    void updateTransform() {
+        if (this.app.width == this.transformWidth && this.app.height == this.transformHeight) {
+            return;
+        }
+        this.transformWidth = this.app.width;
+        this.transformHeight = this.app.height;
+        this.scaleX = (float) this.transformWidth / this.sourceWidth;
+        this.scaleY = (float) this.transformHeight / this.sourceHeight;
+        this.scaleZ = 100 / MAX_DEPTH;
     }
 
     /**
@@ -40,17 +89,62 @@ public class CoordinateMapper {
      * @return The mapped coordinates as a PVector.
      */
     public PVector mapCoordinates(KJoint joint) {
-        float x = joint.getX(), y = joint.getY(), z = joint.getZ();
+        return mapCoordinates(joint.getX(), joint.getY(), joint.getZ());
+    }
+
+    /**
+     * Maps a joint position from sensor space to the application screen.
+     *
+     * @param x The X position of the joint.
+     * @param y The Y position of the joint.
+     * @param z The Z position of the joint.
+     * @return The mapped coordinates as a PVector.
+     */
+    public PVector mapCoordinates(float x, float y, float z) {
+        return mapCoordinates(x, y, z, new PVector());
+    }
+
+    /**
+     * Maps a joint position from sensor space to the application screen, into
+     * an existing vector.
+     *
+     * @param x The X position of the joint.
+     * @param y The Y position of the joint.
+     * @param z The Z position of the joint.
+     * @param target The vector receiving the mapped coordinates.
+     * @return The target vector.
+     */
+    public PVector mapCoordinates(float x, float y, float z, PVector target) {
         if (Float.isNaN(x) || Float.isNaN(y) || Float.isNaN(z) ||
                 Float.isInfinite(x) || Float.isInfinite(y) || Float.isInfinite(z)) {
-            return new PVector(Float.NaN, Float.NaN, Float.NaN);
+            return target.set(Float.NaN, Float.NaN, Float.NaN);
         }
 
-        float mappedX = PApplet.map(x, 0, kinect.getColorImage().width, 0, this.app.width);
-        float mappedY = PApplet.map(y, 0, kinect.getColorImage().height, 0, this.app.height);
-        float mappedZ = PApplet.map(z, 0, 4500, 0, 100); // 4500 is the max depth value
+        updateTransform();
+        return target.set(x * this.scaleX, y * this.scaleY, z * this.scaleZ);
+    }
 
-        return new PVector(mappedX, mappedY, mappedZ);
+    /**
+     * Maps a joint position from sensor space to the application screen, into
+     * three floats of an array.
+     *
+     * @param x The X position of the joint.
+     * @param y The Y position of the joint.
+     * @param z The Z position of the joint.
+     * @param target The array receiving the mapped coordinates.
+     * @param offset The offset of the mapped coordinates.
+     */
+    public void mapCoordinates(float x, float y, float z, float[] target, int offset) {
+        if (Float.isNaN(x) || Float.isNaN(y) || Float.isNaN(z) ||
+                Float.isInfinite(x) || Float.isInfinite(y) || Float.isInfinite(z)) {
+            target[offset] = target[offset + 1] = target[offset + 2] = Float.NaN;
+            return;
+        }
+
+        updateTransform();
+        target[offset] = x * this.scaleX;
+        target[offset + 1] = y * this.scaleY;
+        target[offset + 2] = z * this.scaleZ;
     }
 
     /**
@@ -62,16 +156,58 @@ public class CoordinateMapper {
      * @return The mapped and corrected coordinates as a MappedCoordinates object.
      */
     public MappedCoordinates mapToBox(PVector hand, PVector shoulder, float shoulderDistance) {
-        PVector handRelative = hand.copy().sub(shoulder);
-        float mappedX = PApplet.map(handRelative.x, shoulderDistance, -shoulderDistance, -1, 1);
-        float mappedY = PApplet.map(handRelative.y, shoulderDistance, -shoulderDistance, -1, 1);
-        PVector original = new PVector(mappedX, mappedY);
+        return mapToBox(hand, shoulder, shoulderDistance, new MappedCoordinates());
+    }
+
+    /**
+     * Maps hand coordinates relative to the shoulder to a normalized box, into
+     * existing coordinates.
+     *
+     * @param hand The hand coordinates.
+     * @param shoulder The shoulder coordinates.
+     * @param shoulderDistance The distance between the shoulders.
+     * @param target The coordinates receiving the mapped and corrected positions.
+     * @return The target coordinates.
+     */
+    public MappedCoordinates mapToBox(PVector hand, PVector shoulder, float shoulderDistance, MappedCoordinates target) {
+        float scale = 1 / shoulderDistance;
+        float mappedX = (shoulder.x - hand.x) * scale;
+        float mappedY = (shoulder.y - hand.y) * scale;
+        target.original.set(mappedX, mappedY, 0);
+        target.corrected.set(VectorMath.clamp(mappedX, -1, 1), VectorMath.clamp(mappedY, -1, 1), 0);
+        return target;
+    }
 
-        float correctedX = Math.max(-1, Math.min(1, mappedX));
-        float correctedY = Math.max(-1, Math.min(1, mappedY));
-        PVector corrected = new PVector(correctedX, correctedY);
+    /**
+     * Maps hand coordinates relative to the shoulder to a normalized box, from
+     * vectors of three floats of an array. The hand vector is used as scratch
+     * space and overwritten.
+     *
+     * @param vectors The array holding the hand and shoulder coordinates.
+     * @param hand The offset of the hand coordinates.
+     * @param shoulder The offset of the shoulder coordinates.
+     * @param shoulderDistance The distance between the shoulders.
+     * @param target The coordinates receiving the mapped and corrected positions.
+     * @return The target coordinates.
+     */
+    public MappedCoordinates mapToBox(float[] vectors, int hand, int shoulder, float shoulderDistance, MappedCoordinates target) {
+        VectorMath.subtract(vectors, shoulder, vectors, hand, vectors, hand);
+        VectorMath.scale(vectors, hand, 1 / shoulderDistance, vectors, hand);
+        target.original.set(vectors[hand], vectors[hand + 1], 0);
+        VectorMath.clamp(vectors, hand, -1, 1, vectors, hand);
+        target.corrected.set(vectors[hand], vectors[hand + 1], 0);
+        return target;
+    }
 
-        return new MappedCoordinates(original, corrected);
+    /**
+     * Creates an incremental smoother computing the same smoothing as
+     * smoothHandPositions over a sliding window, in O(1) per sample.
+     *
+     * @param window The number of samples in the smoothing window.
+     * @return A new ExponentialJointFilter.
+     */
+    public ExponentialJointFilter createHandSmoother(int window) {
+        return new ExponentialJointFilter(window, SMOOTHING_FACTOR);
     }
 
     /**
@@ -88,9 +224,9 @@ public class CoordinateMapper {
         PVector smoothedPosition = handHistory.getFirst().copy();
         for (int i = 1; i < handHistory.size(); i++) {
             PVector currentPosition = handHistory.get(i);
-            smoothedPosition.x = SMOOTHING_FACTOR * currentPosition.x + (1 - SMOOTHING_FACTOR) * smoothedPosition.x;
-            smoothedPosition.y = SMOOTHING_FACTOR * currentPosition.y + (1 - SMOOTHING_FACTOR) * smoothedPosition.y;
-            smoothedPosition.z = SMOOTHING_FACTOR * currentPosition.z + (1 - SMOOTHING_FACTOR) * smoothedPosition.z;
+            smoothedPosition.x = VectorMath.lerp(smoothedPosition.x, currentPosition.x, SMOOTHING_FACTOR);
+            smoothedPosition.y = VectorMath.lerp(smoothedPosition.y, currentPosition.y, SMOOTHING_FACTOR);
+            smoothedPosition.z = VectorMath.lerp(smoothedPosition.z, currentPosition.z, SMOOTHING_FACTOR);
         }
 
         return smoothedPosition;
@@ -0,0 +1,124 @@
+/**
+ * Project: ICON Lab - Kinect Hand to Shoulder Tracking
+ * Author: Eduardo Monteiro @ ICON LAB
+ * License: MIT License
+ */
+
+package com.icon.chick.utils.kinect;
+
+import KinectPV2.KinectPV2;
+
+/**
+ * The FrameSnapshot class holds the decoded skeleton data of one render tick.
+ * It is taken once per tick by Kinect, so drawing, hand tracking and calibration
+ * all read the same sensor frame. A snapshot does not change during the tick it
+ * was taken in; Kinect recycles it two ticks later.
+ */
+public class FrameSnapshot {
+    /**
+     * The joint types decoded for each tracked body, indexed by the constants below.
+     */
+    static final int[] DECODED_JOINTS = {
+            KinectPV2.JointType_SpineShoulder,
+            KinectPV2.JointType_ShoulderLeft,
+            KinectPV2.JointType_ShoulderRight,
+            KinectPV2.JointType_HandLeft,
+            KinectPV2.JointType_HandRight
+    };
+    public static final int SPINE_SHOULDER = 0;
+    public static final int SHOULDER_LEFT = 1;
+    public static final int SHOULDER_RIGHT = 2;
+    public static final int HAND_LEFT = 3;
+    public static final int HAND_RIGHT = 4;
+
+    private final int[] trackedBodies = new int[SkeletonFrame.BODY_COUNT];
+    private final float[] jointPositions = new float[SkeletonFrame.BODY_COUNT * DECODED_JOINTS.length * 3];
+    private int trackedCount;
+    private long sequence;
+    private long timestamp;
+
+    /**
+     * Decodes a skeleton frame into this snapshot.
+     *
+     * @param frame The skeleton frame.
+     */
+    void capture(SkeletonFrame frame) {
+        this.trackedCount = frame.copyJoints(DECODED_JOINTS, this.trackedBodies, this.jointPositions);
+        this.sequence = frame.getSequence();
+        this.timestamp = frame.getTimestamp();
+    }
+
+    /**
+     * @return The sequence number of the sensor frame this snapshot was taken from.
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * @return The capture timestamp of the sensor frame in nanoseconds.
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * @return The number of tracked bodies.
+     */
+    public int getTrackedCount() {
+        return trackedCount;
+    }
+
+    /**
+     * Returns the body index of a tracked body.
+     *
+     * @param index The index of the body among the tracked bodies.
+     * @return The body index in the sensor frame.
+     */
+    public int getBody(int index) {
+        return trackedBodies[index];
+    }
+
+    /**
+     * Returns the player ID of a tracked body.
+     *
+     * @param index The index of the body among the tracked bodies.
+     * @return The player ID, matching KSkeleton.getIndexColor().
+     */
+    public int getPlayerId(int index) {
+        return SkeletonFrame.playerColor(trackedBodies[index]);
+    }
+
+    /**
+     * Returns the X position of a decoded joint.
+     *
+     * @param index The index of the body among the tracked bodies.
+     * @param joint The decoded joint, for example HAND_LEFT.
+     * @return The X position in sensor space.
+     */
+    public float getX(int index, int joint) {
+        return jointPositions[(index * DECODED_JOINTS.length + joint) * 3];
+    }
+
+    /**
+     * Returns the Y position of a decoded joint.
+     *
+     * @param index The index of the body among the tracked bodies.
+     * @param joint The decoded joint, for example HAND_LEFT.
+     * @return The Y position in sensor space.
+     */
+    public float getY(int index, int joint) {
+        return jointPositions[(index * DECODED_JOINTS.length + joint) * 3 + 1];
+    }
+
+    /**
+     * Returns the Z position of a decoded joint.
+     *
+     * @param index The index of the body among the tracked bodies.
+     * @param joint The decoded joint, for example HAND_LEFT.
+     * @return The Z position in sensor space.
+     */
+    public float getZ(int index, int joint) {
+        return jointPositions[(index * DECODED_JOINTS.length + joint) * 3 + 2];
+    }
+}
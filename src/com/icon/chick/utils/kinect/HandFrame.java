@@ -0,0 +1,212 @@
+/**
+ * Project: ICON Lab - Kinect Hand to Shoulder Tracking
+ * Author: Eduardo Monteiro @ ICON LAB
+ * License: MIT License
+ */
+
+package com.icon.chick.utils.kinect;
+
+/**
+ * The HandFrame class holds the mapped hand positions of all the players of
+ * one sensor frame, in primitive fields per body slot. It is owned by the
+ * caller, sized for every body the sensor can track, and filled in place by
+ * Kinect.getHandPositions(HandFrame), so reading the hands of every frame
+ * allocates nothing.
+ * <p>
+ * Slots are indexed by body index; a slot is valid when its body was tracked
+ * in the frame. The valid bodies are also listed in the order of the snapshot.
+ */
+public class HandFrame {
+    /**
+     * Callback receiving the valid bodies of a frame.
+     */
+    public interface Visitor {
+        /**
+         * Called for each valid body of a frame, in snapshot order.
+         *
+         * @param frame The frame, only valid during the call.
+         * @param body The body index of the player.
+         */
+        void visit(HandFrame frame, int body);
+    }
+
+    // Offsets of the hand coordinates in the slot of a body.
+    private static final int LEFT_X = 0;
+    private static final int LEFT_Y = 1;
+    private static final int LEFT_CORRECTED_X = 2;
+    private static final int LEFT_CORRECTED_Y = 3;
+    private static final int RIGHT_X = 4;
+    private static final int RIGHT_Y = 5;
+    private static final int RIGHT_CORRECTED_X = 6;
+    private static final int RIGHT_CORRECTED_Y = 7;
+    private static final int SLOT_SIZE = 8;
+
+    private final float[] hands = new float[SkeletonFrame.BODY_COUNT * SLOT_SIZE];
+    private final int[] playerIds = new int[SkeletonFrame.BODY_COUNT];
+    private final int[] order = new int[SkeletonFrame.BODY_COUNT];
+    private int count;
+    private int valid;
+    private long sequence = -1;
+    private long timestamp;
+
+    /**
+     * Empties the frame before it is filled with the players of a sensor frame.
+     *
+     * @param sequence The sequence number of the sensor frame.
+     * @param timestamp The capture timestamp of the sensor frame in nanoseconds.
+     */
+    void clear(long sequence, long timestamp) {
+        this.sequence = sequence;
+        this.timestamp = timestamp;
+        this.count = 0;
+        this.valid = 0;
+    }
+
+    /**
+     * Adds the mapped hands of a body, after the bodies already added.
+     *
+     * @param body The body index of the player.
+     * @param playerId The player ID.
+     * @param left The mapped left hand.
+     * @param right The mapped right hand.
+     */
+    void add(int body, int playerId, MappedCoordinates left, MappedCoordinates right) {
+        int slot = body * SLOT_SIZE;
+        this.hands[slot + LEFT_X] = left.original.x;
+        this.hands[slot + LEFT_Y] = left.original.y;
+        this.hands[slot + LEFT_CORRECTED_X] = left.corrected.x;
+        this.hands[slot + LEFT_CORRECTED_Y] = left.corrected.y;
+        this.hands[slot + RIGHT_X] = right.original.x;
+        this.hands[slot + RIGHT_Y] = right.original.y;
+        this.hands[slot + RIGHT_CORRECTED_X] = right.corrected.x;
+        this.hands[slot + RIGHT_CORRECTED_Y] = right.corrected.y;
+        this.playerIds[body] = playerId;
+        this.order[this.count++] = body;
+        this.valid |= 1 << body;
+    }
+
+    /**
+     * Calls a visitor for each valid body, in snapshot order.
+     *
+     * @param visitor The visitor.
+     */
+    public void forEach(Visitor visitor) {
+        for (int index = 0; index < this.count; index++) {
+            visitor.visit(this, this.order[index]);
+        }
+    }
+
+    /**
+     * @return The sequence number of the sensor frame, -1 before the frame is first filled.
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * @return The capture timestamp of the sensor frame in nanoseconds.
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * @return The number of valid bodies.
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Returns a valid body, in snapshot order.
+     *
+     * @param index The position of the body, from 0 to getCount() - 1.
+     * @return The body index.
+     */
+    public int getBody(int index) {
+        if (index < 0 || index >= this.count) {
+            throw new IndexOutOfBoundsException("Invalid body position: " + index);
+        }
+        return this.order[index];
+    }
+
+    /**
+     * @param body The body index.
+     * @return true if the body was tracked in the frame.
+     */
+    public boolean isValid(int body) {
+        return body >= 0 && body < SkeletonFrame.BODY_COUNT && (this.valid & (1 << body)) != 0;
+    }
+
+    /**
+     * @param body The body index of a valid body.
+     * @return The player ID, matching KSkeleton.getIndexColor().
+     */
+    public int getPlayerId(int body) {
+        return this.playerIds[body];
+    }
+
+    /**
+     * @param body The body index of a valid body.
+     * @return The X position of the left hand in the shoulder box, before clamping.
+     */
+    public float getLeftX(int body) {
+        return this.hands[body * SLOT_SIZE + LEFT_X];
+    }
+
+    /**
+     * @param body The body index of a valid body.
+     * @return The Y position of the left hand in the shoulder box, before clamping.
+     */
+    public float getLeftY(int body) {
+        return this.hands[body * SLOT_SIZE + LEFT_Y];
+    }
+
+    /**
+     * @param body The body index of a valid body.
+     * @return The X position of the left hand, clamped to [-1, 1].
+     */
+    public float getLeftCorrectedX(int body) {
+        return this.hands[body * SLOT_SIZE + LEFT_CORRECTED_X];
+    }
+
+    /**
+     * @param body The body index of a valid body.
+     * @return The Y position of the left hand, clamped to [-1, 1].
+     */
+    public float getLeftCorrectedY(int body) {
+        return this.hands[body * SLOT_SIZE + LEFT_CORRECTED_Y];
+    }
+
+    /**
+     * @param body The body index of a valid body.
+     * @return The X position of the right hand in the shoulder box, before clamping.
+     */
+    public float getRightX(int body) {
+        return this.hands[body * SLOT_SIZE + RIGHT_X];
+    }
+
+    /**
+     * @param body The body index of a valid body.
+     * @return The Y position of the right hand in the shoulder box, before clamping.
+     */
+    public float getRightY(int body) {
+        return this.hands[body * SLOT_SIZE + RIGHT_Y];
+    }
+
+    /**
+     * @param body The body index of a valid body.
+     * @return The X position of the right hand, clamped to [-1, 1].
+     */
+    public float getRightCorrectedX(int body) {
+        return this.hands[body * SLOT_SIZE + RIGHT_CORRECTED_X];
+    }
+
+    /**
+     * @param body The body index of a valid body.
+     * @return The Y position of the right hand, clamped to [-1, 1].
+     */
+    public float getRightCorrectedY(int body) {
+        return this.hands[body * SLOT_SIZE + RIGHT_CORRECTED_Y];
+    }
+}
@@ -0,0 +1,184 @@
+/**
+ * Project: ICON Lab - Kinect Hand to Shoulder Tracking
+ * Author: Eduardo Monteiro @ ICON LAB
+ * License: MIT License
+ */
+
+package com.icon.chick.utils.kinect;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * The HandPositionMap class is the read-only map of player IDs to hand
+ * positions returned by Kinect.getHandPositions(). It is reused for every
+ * frame: each body owns preallocated coordinates for its two hands, mapped in
+ * place, and the map lists the bodies of the last processed frame in the order
+ * of its snapshot. Lookups and updates allocate nothing; only iterators do.
+ */
+final class HandPositionMap extends AbstractMap<Integer, MappedCoordinates[]> {
+    private final MappedCoordinates[][] hands = new MappedCoordinates[SkeletonFrame.BODY_COUNT][];
+    private final Entry[] entries = new Entry[SkeletonFrame.BODY_COUNT];
+    private final int[] order = new int[SkeletonFrame.BODY_COUNT];
+    private final Set<Map.Entry<Integer, MappedCoordinates[]>> entrySet = new EntrySet();
+    private int count;
+    private int present;
+
+    /**
+     * Constructor for the HandPositionMap class.
+     */
+    HandPositionMap() {
+        for (int body = 0; body < SkeletonFrame.BODY_COUNT; body++) {
+            this.hands[body] = new MappedCoordinates[]{new MappedCoordinates(), new MappedCoordinates()};
+            this.entries[body] = new Entry(SkeletonFrame.playerColor(body), this.hands[body]);
+        }
+    }
+
+    /**
+     * Returns the coordinates of the hands of a body, to be mapped in place.
+     *
+     * @param body The body index.
+     * @return The left and right hand coordinates.
+     */
+    MappedCoordinates[] getHands(int body) {
+        return this.hands[body];
+    }
+
+    /**
+     * Lists the tracked bodies of a snapshot, whose hands have been mapped.
+     *
+     * @param snapshot The processed snapshot.
+     */
+    void update(FrameSnapshot snapshot) {
+        this.count = snapshot.getTrackedCount();
+        this.present = 0;
+        for (int index = 0; index < this.count; index++) {
+            this.order[index] = snapshot.getBody(index);
+            this.present |= 1 << this.order[index];
+        }
+    }
+
+    /**
+     * Returns the body at a position of the map.
+     *
+     * @param index The position, from 0 to size() - 1.
+     * @return The body index.
+     */
+    int getBody(int index) {
+        return this.order[index];
+    }
+
+    @Override
+    public int size() {
+        return this.count;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return body(key) >= 0;
+    }
+
+    @Override
+    public MappedCoordinates[] get(Object key) {
+        int body = body(key);
+        return body >= 0 ? this.hands[body] : null;
+    }
+
+    @Override
+    public Set<Map.Entry<Integer, MappedCoordinates[]>> entrySet() {
+        return this.entrySet;
+    }
+
+    /**
+     * @return The body index of a player ID in the map, -1 if it is not present.
+     */
+    private int body(Object key) {
+        if (!(key instanceof Integer)) {
+            return -1;
+        }
+        int body = SkeletonFrame.bodyIndex((Integer) key);
+        return body >= 0 && (this.present & (1 << body)) != 0 ? body : -1;
+    }
+
+    /**
+     * The entries of the map, in the order of the snapshot.
+     */
+    private final class EntrySet extends AbstractSet<Map.Entry<Integer, MappedCoordinates[]>> {
+        @Override
+        public int size() {
+            return count;
+        }
+
+        @Override
+        public Iterator<Map.Entry<Integer, MappedCoordinates[]>> iterator() {
+            return new Iterator<>() {
+                private int index;
+
+                @Override
+                public boolean hasNext() {
+                    return this.index < count;
+                }
+
+                @Override
+                public Map.Entry<Integer, MappedCoordinates[]> next() {
+                    if (this.index >= count) {
+                        throw new NoSuchElementException();
+                    }
+                    return entries[order[this.index++]];
+                }
+            };
+        }
+    }
+
+    /**
+     * The read-only entry of a body, created once with its boxed player ID.
+     */
+    private static final class Entry implements Map.Entry<Integer, MappedCoordinates[]> {
+        private final Integer playerId;
+        private final MappedCoordinates[] hands;
+
+        Entry(int playerId, MappedCoordinates[] hands) {
+            this.playerId = playerId;
+            this.hands = hands;
+        }
+
+        @Override
+        public Integer getKey() {
+            return this.playerId;
+        }
+
+        @Override
+        public MappedCoordinates[] getValue() {
+            return this.hands;
+        }
+
+        @Override
+        public MappedCoordinates[] setValue(MappedCoordinates[] value) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Map.Entry)) {
+                return false;
+            }
+            Map.Entry<?, ?> entry = (Map.Entry<?, ?>) o;
+            return this.playerId.equals(entry.getKey()) && this.hands == entry.getValue();
+        }
+
+        @Override
+        public int hashCode() {
+            return this.playerId.hashCode() ^ this.hands.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return this.playerId + "=" + Arrays.toString(this.hands);
+        }
+    }
+}
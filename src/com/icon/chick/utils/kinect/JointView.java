@@ -0,0 +1,94 @@
+/**
+ * Project: ICON Lab - Kinect Hand to Shoulder Tracking
+ * Author: Eduardo Monteiro @ ICON LAB
+ * License: MIT License
+ */
+
+package com.icon.chick.utils.kinect;
+
+/**
+ * The JointView class is a reusable view over one joint of a packed skeleton
+ * frame. It reads positions, orientation and tracking state directly from the
+ * frame data, replacing the KJoint copies made by KinectPV2.
+ */
+public class JointView {
+    private float[] data;
+    private int offset;
+
+    /**
+     * Points this view at a joint of a frame.
+     *
+     * @param frame The skeleton frame.
+     * @param body The body index.
+     * @param joint The joint type.
+     * @return This view.
+     */
+    public JointView wrap(SkeletonFrame frame, int body, int joint) {
+        this.data = frame.data;
+        this.offset = SkeletonFrame.offset(body, joint);
+        return this;
+    }
+
+    /**
+     * @return The X position of the joint.
+     */
+    public float getX() {
+        return data[offset];
+    }
+
+    /**
+     * @return The Y position of the joint.
+     */
+    public float getY() {
+        return data[offset + 1];
+    }
+
+    /**
+     * @return The Z position of the joint.
+     */
+    public float getZ() {
+        return data[offset + 2];
+    }
+
+    /**
+     * @return The W component of the joint orientation.
+     */
+    public float getOrientationW() {
+        return data[offset + 3];
+    }
+
+    /**
+     * @return The X component of the joint orientation.
+     */
+    public float getOrientationX() {
+        return data[offset + 4];
+    }
+
+    /**
+     * @return The Y component of the joint orientation.
+     */
+    public float getOrientationY() {
+        return data[offset + 5];
+    }
+
+    /**
+     * @return The Z component of the joint orientation.
+     */
+    public float getOrientationZ() {
+        return data[offset + 6];
+    }
+
+    /**
+     * @return The tracking state of the joint.
+     */
+    public int getState() {
+        return (int) data[offset + 7];
+    }
+
+    /**
+     * @return The joint type.
+     */
+    public int getType() {
+        return (int) data[offset + 8];
+    }
+}
@@ -7,17 +7,19 @@
 package com.icon.chick.utils.kinect;
 
 import com.icon.chick.App;
+import com.icon.chick.utils.math.VectorMath;
 import KinectPV2.*;
 import org.jetbrains.annotations.NotNull;
-import processing.core.*;
+import processing.core.PConstants;
+import processing.core.PVector;
 
 /**
  * The Joints class provides methods to calculate distances between joints,
  * and to draw joints, lines, and bounding boxes on the screen.
  */
-public class Joints extends PApplet {
+public class Joints {
 
-    App app;
+    private final App app;
 
     /**
      * Constructor for the Joints class.
@@ -36,7 +38,20 @@ public class Joints extends PApplet {
      * @return The distance between the two joints.
      */
     public float calcJointDistance(@NotNull KJoint joint1, @NotNull KJoint joint2) {
-        return dist(joint1.getX(), joint1.getY(), joint2.getX(), joint2.getY());
+        return VectorMath.distance(joint1.getX(), joint1.getY(), joint2.getX(), joint2.getY());
+    }
+
+    /**
+     * Calculates the distance between two decoded joints of a body in a frame snapshot.
+     *
+     * @param snapshot The frame snapshot.
+     * @param index The index of the body among the tracked bodies.
+     * @param joint1 The first decoded joint.
+     * @param joint2 The second decoded joint.
+     * @return The distance between the two joints.
+     */
+    public float calcJointDistance(@NotNull FrameSnapshot snapshot, int index, int joint1, int joint2) {
+        return VectorMath.distance(snapshot.getX(index, joint1), snapshot.getY(index, joint1), snapshot.getX(index, joint2), snapshot.getY(index, joint2));
     }
 
     /**
@@ -50,7 +65,7 @@ public class Joints extends PApplet {
         this.app.noFill();
         this.app.stroke((float) Math.random(),0,0);
         this.app.strokeWeight(2);
-        this.app.rectMode(CENTER);
+        this.app.rectMode(PConstants.CENTER);
         this.app.rect(vector.x, vector.y, distance*2, distance*2);
         this.app.popMatrix();
     }
@@ -94,8 +109,10 @@ public class Joints extends PApplet {
         this.app.strokeWeight(10);
         this.app.stroke(0, 0, 225);
         this.app.translate(joint.x, joint.y);
-        this.app.rectMode(CENTER);
-        this.app.rect(0, 0, PVector.dist(shoulderJoint1, shoulderJoint2) * 4, boxHeight * 2);
+        this.app.rectMode(PConstants.CENTER);
+        float shoulderWidth = VectorMath.length(shoulderJoint1.x - shoulderJoint2.x,
+                shoulderJoint1.y - shoulderJoint2.y, shoulderJoint1.z - shoulderJoint2.z);
+        this.app.rect(0, 0, shoulderWidth * 4, boxHeight * 2);
         this.app.popMatrix();
     }
 }
\ No newline at end of file
@@ -7,145 +7,340 @@
 package com.icon.chick.utils.kinect;
 
 import com.icon.chick.App;
+import com.icon.chick.utils.kinect.filter.JointFilter;
+import com.icon.chick.utils.kinect.filter.JointFilterBank;
+import com.icon.chick.utils.kinect.output.AsyncHandOutput;
+import com.icon.chick.utils.kinect.output.ConsoleHandOutputSink;
+import com.icon.chick.utils.kinect.output.HandOutputSink;
+import com.icon.chick.utils.kinect.output.HandSample;
+import com.icon.chick.utils.kinect.source.AcquisitionSkeletonSource;
+import com.icon.chick.utils.kinect.source.KinectSkeletonSource;
+import com.icon.chick.utils.kinect.source.SkeletonSource;
+import com.icon.chick.utils.math.VectorMath;
+import com.icon.chick.utils.metrics.FrameTimings;
+import com.icon.chick.utils.metrics.MetricsRegistry;
 import com.icon.chick.utils.processing.Screen;
 import processing.core.*;
 import KinectPV2.*;
 
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.function.Supplier;
 
 /**
  * Kinect class for handling Kinect sensor operations and hand tracking.
  */
-public class Kinect extends PApplet {
+public class Kinect {
     private final App app;
-    private final KinectPV2 kinect;
+    private final SkeletonSource source;
+    private final SkeletonFrame frame = new SkeletonFrame();
+    private final FrameSnapshot[] snapshots = {new FrameSnapshot(), new FrameSnapshot()};
     private final CoordinateMapper coordinateMapper;
     private final Joints joints;
     private final Screen screen;
 
     private final Boolean isInitialized;
-    private Boolean isCalibrating = false;
     private Boolean needCalibration = true;
-
-    private final Map<Integer, Float> playerDistances = new HashMap<>();
-    private final Map<Integer, PVector> leftHandPositions = new HashMap<>();
-    private final Map<Integer, PVector> rightHandPositions = new HashMap<>();
-    private final Map<Integer, ArrayDeque<PVector>> leftHandHistory = new HashMap<>();
-    private final Map<Integer, ArrayDeque<PVector>> rightHandHistory = new HashMap<>();
+    private final Calibration calibration = new Calibration(CALIBRATION_FRAMES);
+    private CalibrationStore calibrationStore;
+    private final float[] fingerprint = new float[BodyFingerprint.DIMENSIONS];
+    private final SkeletonView skeleton = new SkeletonView();
+    private long fingerprintSequence = -1;
+
+    private final PlayerTable players = new PlayerTable();
+    private BodyEngine bodyEngine = BodyEngine.createDefault();
+    private final BodyEngine.BodyTask handTask = this::processBody;
+    // Per-body scratch vectors of processBody, so bodies processed concurrently share nothing.
+    private final float[][] bodyVectors = new float[SkeletonFrame.BODY_COUNT][BODY_VECTORS * 3];
+    private FrameSnapshot processing;
+
+    private volatile AsyncHandOutput output;
+    private final HandSample[] outputBatch = new HandSample[SkeletonFrame.BODY_COUNT];
+    // Sensor frame whose samples are in the output batch, already offered to the output.
+    private long offeredSequence = -1;
+    private int offeredCount;
+    // Sinks written on the render thread, for outputs that never block.
+    private final List<HandOutputSink> directSinks = new ArrayList<>();
+    private final PVector outputShoulderLeft = new PVector();
+    private final PVector outputShoulderRight = new PVector();
+    private final JointFilterBank filters = new JointFilterBank();
+    private final FrameTimings timings = new FrameTimings();
+
+    private FrameSnapshot snapshot;
+    private int snapshotTick;
+    // Snapshots taken so far, and the last one served by getHandPositions().
+    private long snapshotCount;
+    private long servedSnapshot;
+
+    // Hand positions of the last processed sensor frame, served again on ticks without a new frame.
+    private final HandPositionMap handPositions = new HandPositionMap();
+    private long processedSequence = -1;
+    private long processedTimestamp;
+    // Frame handed to the visitors of forEachHand().
+    private final HandFrame visitedFrame = new HandFrame();
+    // Counters written by the render thread and read by the metrics.
+    private volatile long processedFrames;
+    private volatile long staleFrames;
+    private volatile int trackedBodies;
+    private volatile long recalledPlayers;
 
     private static final int SMOOTHING_WINDOW = 5;
+    private static final int OUTPUT_CAPACITY = 256;
+    private static final int OUTPUT_BATCH = 64;
+    private static final int CALIBRATION_FRAMES = 30;
+    private static final int FINGERPRINT_FRAMES = 30;
+    // Weight of a new measurement in the smoothed torso length, about the last 10 frames.
+    private static final float TORSO_WEIGHT = 0.1f;
+
+    // Offsets of the per-body scratch vectors, three floats each.
+    private static final int HAND_LEFT = 0;
+    private static final int HAND_RIGHT = 3;
+    private static final int SHOULDER_LEFT = 6;
+    private static final int SHOULDER_RIGHT = 9;
+    private static final int HAND = 12;
+    private static final int BODY_VECTORS = 5;
 
     /**
-     * Constructor for the Kinect class.
+     * Constructor for the Kinect class, reading skeletons from the Kinect sensor.
      *
      * @param app The main application instance.
      */
     public Kinect(App app) {
+        this(app, new KinectSkeletonSource(app));
+    }
+
+    /**
+     * Constructor for the Kinect class.
+     *
+     * @param app The main application instance.
+     * @param source The source of skeleton frames.
+     */
+    public Kinect(App app, SkeletonSource source) {
         this.app = app;
         this.joints = new Joints(app);
-        this.kinect = new KinectPV2(this.app);
+        this.source = source;
         this.screen = new Screen(this.app);
-        this.coordinateMapper = new CoordinateMapper(this.app, this.kinect);
 
-        this.kinect.enableSkeletonColorMap(true);
-        this.kinect.enableColorImg(true);
+        this.source.start();
+        CoordinateMapper mapper = new CoordinateMapper(this.app, source.getWidth(), source.getHeight());
+        this.coordinateMapper = mapper;
+        Supplier<JointFilter> smoother = () -> mapper.createHandSmoother(SMOOTHING_WINDOW);
+        this.filters.setFilter(KinectPV2.JointType_HandLeft, smoother);
+        this.filters.setFilter(KinectPV2.JointType_HandRight, smoother);
+        for (int i = 0; i < this.outputBatch.length; i++) {
+            this.outputBatch[i] = new HandSample();
+        }
+        this.output = AsyncHandOutput.start(new ConsoleHandOutputSink(System.out), OUTPUT_CAPACITY, OUTPUT_BATCH,
+                AsyncHandOutput.OverflowPolicy.DROP_OLDEST);
+        this.calibration.addListener(new Calibration.Listener() {
+            @Override
+            public void started(int bodies) {
+                System.out.println("CALIBRATING " + Integer.bitCount(bodies) + " SKELETONS");
+            }
+
+            @Override
+            public void calibrated(int body, float distance, int inliers) {
+                System.out.println("CALIBRATED PLAYER " + SkeletonFrame.playerColor(body) + " WITH DISTANCE " + distance
+                        + " (" + inliers + "/" + CALIBRATION_FRAMES + " measurements)");
+                storeCalibration(body, distance);
+            }
+
+            @Override
+            public void failed(int body, String reason) {
+                System.out.println("CALIBRATION FAILED FOR PLAYER " + SkeletonFrame.playerColor(body) + ": " + reason);
+            }
 
-        this.kinect.init();
+            @Override
+            public void completed(int calibrated, int failed) {
+                System.out.println("CALIBRATION COMPLETE");
+            }
+        });
         this.isInitialized = true;
     }
 
+    /**
+     * Selects the filter smoothing the hand positions of every player.
+     *
+     * @param factory The factory creating one filter per body and hand.
+     */
+    public void setHandFilter(Supplier<? extends JointFilter> factory) {
+        this.filters.setFilter(KinectPV2.JointType_HandLeft, factory);
+        this.filters.setFilter(KinectPV2.JointType_HandRight, factory);
+    }
+
+    /**
+     * @return The timings of the tracking stages.
+     */
+    public FrameTimings getTimings() {
+        return this.timings;
+    }
+
+    /**
+     * @return The joint filter bank, reporting the measured latency and jitter of each filtered joint.
+     */
+    public JointFilterBank getFilterBank() {
+        return this.filters;
+    }
+
     /**
      * Draw method to render the Kinect color image and process skeleton data.
      */
     public void draw() {
-        this.app.image(kinect.getColorImage(), 0, 0, this.app.width, this.app.height);
-
-        ArrayList<KSkeleton> skeletonArray = kinect.getSkeletonColorMap();
-        if (skeletonArray.isEmpty() && !this.isCalibrating) {
+        FrameSnapshot snapshot = getSnapshot();
+        if (snapshot.getTrackedCount() == 0) {
+            long time = System.nanoTime();
             screen.displayMessage("No skeletons detected");
+            time = timings.record(FrameTimings.Stage.RENDER, time);
+            writeDirectSinks(0);
+            timings.record(FrameTimings.Stage.OUTPUT, time);
             return;
         }
 
-        removeUntrackedPlayers(skeletonArray);
+        long time = System.nanoTime();
+        PImage colorImage = source.getColorImage();
+        if (colorImage != null) {
+            this.app.image(colorImage, 0, 0, this.app.width, this.app.height);
+        }
+        timings.record(FrameTimings.Stage.RENDER, time);
 
         this.run();
-        // this.debugVisuals(skeletonArray);
+        if (this.calibration.isActive()) {
+            screen.displayMessage("CALIBRATING... " + Math.round(this.calibration.getProgress() * 100) + "%");
+        }
+        // this.debugVisuals();
     }
 
     /**
-     * Main processing method to handle hand positions.
+     * Main processing method to handle hand positions. The positions of each
+     * sensor frame are queued to the hand output once, on the tick that
+     * processed it; the render thread never waits for the sink.
      */
     public void run() {
-        Map<Integer, MappedCoordinates[]> handPositions = getHandPositions();
-        for (Map.Entry<Integer, MappedCoordinates[]> entry : handPositions.entrySet()) {
-            int playerID = entry.getKey();
-            MappedCoordinates[] hands = entry.getValue();
+        getHandPositions();
+        if (this.processedSequence == this.offeredSequence) {
+            // The samples of this frame were already offered; the direct sinks still get every tick.
+            writeDirectSinks(this.offeredCount);
+            return;
+        }
+        FrameSnapshot snapshot = getSnapshot();
+        long time = System.nanoTime();
+        int count = 0;
+        for (int index = 0; index < handPositions.size(); index++) {
+            int body = handPositions.getBody(index);
+            int playerID = SkeletonFrame.playerColor(body);
+            MappedCoordinates[] hands = handPositions.getHands(body);
 
             MappedCoordinates mappedLeftHand = hands[0];
             MappedCoordinates mappedRightHand = hands[1];
 
-            System.out.println("Player: " + playerID + " | LEFT: " + mappedLeftHand.corrected + " | RIGHT: " + mappedRightHand.corrected);
+            HandSample sample = outputBatch[count++];
+            sample.set(playerID, body, snapshot.getSequence(), snapshot.getTimestamp(), mappedLeftHand, mappedRightHand);
+            sample.setShoulders(players.getShoulder(body, PlayerTable.LEFT, outputShoulderLeft), players.getShoulder(body, PlayerTable.RIGHT, outputShoulderRight));
+            output.offer(sample);
         }
+        this.offeredSequence = this.processedSequence;
+        this.offeredCount = count;
+        writeDirectSinks(count);
+        timings.record(FrameTimings.Stage.OUTPUT, time);
     }
 
     /**
-     * Debug method to visualize skeleton data.
-     * @param skeletonArray the list of skeletons to visualize.
+     * Writes the samples of the current tick to the direct sinks.
+     *
+     * @param count The number of samples in the output batch.
      */
-    private void debugVisuals(ArrayList<KSkeleton> skeletonArray) {
-        for (KSkeleton skeleton : skeletonArray) {
-            if (skeleton.isTracked()) {
-                if (this.needCalibration && this.isInitialized) {
-                    this.calibrate();
-                    this.needCalibration = false;
-                }
+    private void writeDirectSinks(int count) {
+        for (int i = 0; i < directSinks.size(); i++) {
+            directSinks.get(i).write(outputBatch, count);
+        }
+    }
 
-                int playerID = skeleton.getIndexColor();
-                KJoint[] kJoints = skeleton.getJoints();
+    /**
+     * Adds a sink written directly on the render thread with the players of
+     * every tick, including ticks without players. Only for sinks that never
+     * block, such as SharedMemoryHandPublisher.
+     *
+     * @param sink The sink.
+     */
+    public void addDirectSink(HandOutputSink sink) {
+        this.directSinks.add(sink);
+    }
 
-                this.app.fill(playerID);
-                this.app.stroke(playerID);
+    /**
+     * @return The output receiving the hand positions of every tick.
+     */
+    public AsyncHandOutput getHandOutput() {
+        return this.output;
+    }
 
-                PVector spineShoulder = coordinateMapper.mapCoordinates(kJoints[KinectPV2.JointType_SpineShoulder]);
-                PVector shoulderLeft = coordinateMapper.mapCoordinates(kJoints[KinectPV2.JointType_ShoulderLeft]);
-                PVector shoulderRight = coordinateMapper.mapCoordinates(kJoints[KinectPV2.JointType_ShoulderRight]);
+    /**
+     * Replaces the hand output, closing the previous one after its pending samples are written.
+     *
+     * @param output The new hand output.
+     */
+    public void setHandOutput(AsyncHandOutput output) {
+        AsyncHandOutput previous = this.output;
+        this.output = output;
+        previous.close();
+    }
+
+    /**
+     * Debug method to visualize the skeleton data of the current frame.
+     */
+    private void debugVisuals() {
+        FrameSnapshot snapshot = getSnapshot();
+        PVector spineShoulder = new PVector();
+        PVector shoulderLeft = new PVector();
+        PVector shoulderRight = new PVector();
+        for (int index = 0; index < snapshot.getTrackedCount(); index++) {
+            if (this.needCalibration && this.isInitialized) {
+                this.calibrate();
+                this.needCalibration = false;
+            }
 
-                if (!Float.isNaN(spineShoulder.x) && !Float.isNaN(shoulderLeft.x) && !Float.isNaN(shoulderRight.x)) {
-                    this.joints.drawJoint(spineShoulder);
-                    this.joints.drawLine(shoulderLeft, shoulderRight);
+            int body = snapshot.getBody(index);
+            int playerID = snapshot.getPlayerId(index);
 
-                    float originalShoulderDistance = PVector.dist(shoulderLeft, shoulderRight);
-                    float betterShoulderDistance = originalShoulderDistance * 1.2f;
+            this.app.fill(playerID);
+            this.app.stroke(playerID);
 
-                    this.joints.drawJoint(shoulderLeft);
-                    this.joints.drawBox(shoulderLeft, betterShoulderDistance);
-                    this.joints.drawJoint(shoulderRight);
-                    this.joints.drawBox(shoulderRight, betterShoulderDistance);
+            mapJoint(snapshot, index, FrameSnapshot.SPINE_SHOULDER, spineShoulder);
+            mapJoint(snapshot, index, FrameSnapshot.SHOULDER_LEFT, shoulderLeft);
+            mapJoint(snapshot, index, FrameSnapshot.SHOULDER_RIGHT, shoulderRight);
 
-                    updateHandPositions(playerID, kJoints);
+            if (!Float.isNaN(spineShoulder.x) && !Float.isNaN(shoulderLeft.x) && !Float.isNaN(shoulderRight.x)) {
+                this.joints.drawJoint(spineShoulder);
+                this.joints.drawLine(shoulderLeft, shoulderRight);
 
-                    PVector smoothedLeftHand = leftHandPositions.get(playerID);
-                    PVector smoothedRightHand = rightHandPositions.get(playerID);
+                float originalShoulderDistance = PVector.dist(shoulderLeft, shoulderRight);
+                float betterShoulderDistance = originalShoulderDistance * 1.2f;
 
-                    if (smoothedLeftHand != null && smoothedRightHand != null) {
-                        MappedCoordinates mappedLeftHand = coordinateMapper.mapToBox(smoothedLeftHand, shoulderLeft, betterShoulderDistance);
-                        MappedCoordinates mappedRightHand = coordinateMapper.mapToBox(smoothedRightHand, shoulderRight, betterShoulderDistance);
+                this.joints.drawJoint(shoulderLeft);
+                this.joints.drawBox(shoulderLeft, betterShoulderDistance);
+                this.joints.drawJoint(shoulderRight);
+                this.joints.drawBox(shoulderRight, betterShoulderDistance);
 
-                        this.app.fill(0, 255, 0);
-                        this.app.ellipse(mappedRightHand.corrected.x, mappedLeftHand.corrected.y, 20, 20);
-                        this.app.fill(0, 0, 255);
-                        this.app.ellipse(mappedRightHand.corrected.x, mappedRightHand.corrected.y, 20, 20);
+                updateHandPositions(snapshot, index);
 
-                        this.app.fill(255);
-                        this.app.text("Left Hand: " + mappedLeftHand.corrected, smoothedLeftHand.x, smoothedLeftHand.y - 20);
-                        this.app.text("Right Hand: " + mappedRightHand.corrected, smoothedRightHand.x, smoothedRightHand.y - 20);
+                if (players.hasHand(body, PlayerTable.LEFT) && players.hasHand(body, PlayerTable.RIGHT)) {
+                    PVector smoothedLeftHand = players.getHand(body, PlayerTable.LEFT, new PVector());
+                    PVector smoothedRightHand = players.getHand(body, PlayerTable.RIGHT, new PVector());
 
-                        if (playerDistances.containsKey(playerID)) {
-                            float distance = playerDistances.get(playerID);
-                            this.joints.drawBodySpace(spineShoulder, shoulderRight, shoulderLeft, distance);
-                            this.app.text("Distance: " + distance, spineShoulder.x, spineShoulder.y - 20);
-                        }
+                    MappedCoordinates mappedLeftHand = coordinateMapper.mapToBox(smoothedLeftHand, shoulderLeft, betterShoulderDistance);
+                    MappedCoordinates mappedRightHand = coordinateMapper.mapToBox(smoothedRightHand, shoulderRight, betterShoulderDistance);
+
+                    this.app.fill(0, 255, 0);
+                    this.app.ellipse(mappedRightHand.corrected.x, mappedLeftHand.corrected.y, 20, 20);
+                    this.app.fill(0, 0, 255);
+                    this.app.ellipse(mappedRightHand.corrected.x, mappedRightHand.corrected.y, 20, 20);
+
+                    this.app.fill(255);
+                    this.app.text("Left Hand: " + mappedLeftHand.corrected, smoothedLeftHand.x, smoothedLeftHand.y - 20);
+                    this.app.text("Right Hand: " + mappedRightHand.corrected, smoothedRightHand.x, smoothedRightHand.y - 20);
+
+                    if (players.hasDistance(body)) {
+                        float distance = players.getDistance(body);
+                        this.joints.drawBodySpace(spineShoulder, shoulderRight, shoulderLeft, distance);
+                        this.app.text("Distance: " + distance, spineShoulder.x, spineShoulder.y - 20);
                     }
                 }
             }
@@ -153,107 +348,368 @@ public class Kinect extends PApplet {
     }
 
     /**
-     * Retrieves the hand positions for tracked skeletons.
+     * Retrieves the hand positions for tracked skeletons. Each sensor frame is
+     * processed once; when the current tick has no new frame, the positions of
+     * the last processed frame are returned and counted as stale, once per
+     * snapshot however many accessors read it.
+     * <p>
+     * The map and its coordinates are reused: they are updated in place when
+     * the next sensor frame is processed, and must be copied to be kept.
      *
-     * @return A map of player IDs to their corresponding hand positions.
+     * @return A read-only map of player IDs to their corresponding hand positions, in snapshot order.
      */
     public Map<Integer, MappedCoordinates[]> getHandPositions() {
-        return kinect.getSkeletonColorMap().parallelStream()
-                .filter(KSkeleton::isTracked)
-                .collect(Collectors.toMap(
-                        KSkeleton::getIndexColor,
-                        skeleton -> {
-                            int playerID = skeleton.getIndexColor();
-                            KJoint[] kJoints = skeleton.getJoints();
+        FrameSnapshot snapshot = getSnapshot();
+        if (this.servedSnapshot == this.snapshotCount) {
+            return this.handPositions;
+        }
+        this.servedSnapshot = this.snapshotCount;
+        if (snapshot.getSequence() == this.processedSequence) {
+            this.staleFrames++;
+            return this.handPositions;
+        }
 
-                            updateHandPositions(playerID, kJoints);
+        processHandPositions(snapshot);
+        this.processedSequence = snapshot.getSequence();
+        this.processedTimestamp = snapshot.getTimestamp();
+        this.processedFrames++;
+        return this.handPositions;
+    }
 
-                            PVector shoulderLeft = coordinateMapper.mapCoordinates(kJoints[KinectPV2.JointType_ShoulderLeft]);
-                            PVector shoulderRight = coordinateMapper.mapCoordinates(kJoints[KinectPV2.JointType_ShoulderRight]);
-                            float shoulderDistance = PVector.dist(shoulderLeft, shoulderRight) * 1.2f;
+    /**
+     * Retrieves the hand positions for tracked skeletons into a caller-owned
+     * frame, processing the sensor frame as getHandPositions() does. The frame
+     * is emptied and filled in place, without allocating.
+     *
+     * @param target The frame receiving the hand positions.
+     * @return The target frame.
+     */
+    public HandFrame getHandPositions(HandFrame target) {
+        getHandPositions();
+        target.clear(this.processedSequence, this.processedTimestamp);
+        for (int index = 0; index < handPositions.size(); index++) {
+            int body = handPositions.getBody(index);
+            MappedCoordinates[] hands = handPositions.getHands(body);
+            target.add(body, SkeletonFrame.playerColor(body), hands[0], hands[1]);
+        }
+        return target;
+    }
 
-                            MappedCoordinates mappedLeftHand = coordinateMapper.mapToBox(leftHandPositions.get(playerID), shoulderLeft, shoulderDistance);
-                            MappedCoordinates mappedRightHand = coordinateMapper.mapToBox(rightHandPositions.get(playerID), shoulderRight, shoulderDistance);
+    /**
+     * Calls a visitor with the hand positions of each tracked skeleton, in
+     * snapshot order, processing the sensor frame as getHandPositions() does.
+     *
+     * @param visitor The visitor, called on the calling thread.
+     */
+    public void forEachHand(HandFrame.Visitor visitor) {
+        getHandPositions(this.visitedFrame).forEach(visitor);
+    }
 
-                            return new MappedCoordinates[]{mappedLeftHand, mappedRightHand};
-                        }
-                ));
+    /**
+     * @return The number of sensor frames processed by getHandPositions().
+     */
+    public long getProcessedFrameCount() {
+        return this.processedFrames;
     }
 
     /**
-     * Calibrates the Kinect sensor for the current environment.
+     * @return The number of snapshots whose hands were served from an already processed frame.
      */
-    public void calibrate() {
-    this.isCalibrating = true;
-    System.out.println("CALIBRATING");
-    screen.displayMessage("CALIBRATING...");
-
-    ArrayList<KSkeleton> skeletonArray = kinect.getSkeletonColorMap();
-    System.out.println("Number of skeletons on calibration: " + skeletonArray.size());
-    for (KSkeleton skeleton : skeletonArray) {
-        if (skeleton.isTracked()) {
-            int playerId = skeleton.getIndexColor();
-            KJoint[] kJoints = skeleton.getJoints();
-
-            float totalDistance = 0;
-            for (int i = 0; i < 10; i++) {
-                totalDistance += this.joints.calcJointDistance(kJoints[KinectPV2.JointType_ShoulderRight], kJoints[KinectPV2.JointType_HandRight]);
-                System.out.println("Measurement " + (i + 1) + ": " + totalDistance);
-            }
+    public long getStaleFrameCount() {
+        return this.staleFrames;
+    }
 
-            float averageDistance = totalDistance / 10;
-            playerDistances.put(playerId, averageDistance);
+    /**
+     * Registers the tracking metrics: frames, tracked bodies, stage latencies,
+     * hand output, sensor acquisition and calibration. Metrics read the live
+     * counters, so they follow a hand output replaced later.
+     *
+     * @param registry The registry receiving the metrics.
+     */
+    public void registerMetrics(MetricsRegistry registry) {
+        registry.counter("kinect_frames_processed_total", "Sensor frames processed by the tracking pipeline.", () -> this.processedFrames);
+        registry.counter("kinect_frames_stale_total", "Render ticks served from an already processed sensor frame.", () -> this.staleFrames);
+        registry.gauge("kinect_tracked_bodies", "Bodies tracked in the latest sensor frame.", () -> this.trackedBodies);
+
+        for (FrameTimings.Stage stage : FrameTimings.Stage.values()) {
+            registry.summary("kinect_stage_latency_seconds", "Duration of the tracking pipeline stages.",
+                    "stage", stage.name().toLowerCase(Locale.ROOT), timings.get(stage), 1e-9);
+        }
 
-            screen.displayMessage("CALIBRATED PLAYER " + playerId + " WITH DISTANCE " + averageDistance);
-            System.out.println("CALIBRATED PLAYER " + playerId + " WITH DISTANCE " + averageDistance);
+        registry.gauge("kinect_output_queue_depth", "Hand samples waiting for the output sink.", () -> this.output.getQueueDepth());
+        registry.counter("kinect_output_offered_total", "Hand samples offered to the output.", () -> this.output.getOfferedCount());
+        registry.counter("kinect_output_dropped_total", "Hand samples dropped by a full output queue.", () -> this.output.getDroppedCount());
+        registry.counter("kinect_output_written_total", "Hand samples written to the output sink.", () -> this.output.getWrittenCount());
+        registry.counter("kinect_output_errors_total", "Output sink writes that failed.", () -> this.output.getSinkErrorCount());
+
+        if (this.source instanceof AcquisitionSkeletonSource) {
+            AcquisitionSkeletonSource acquisition = (AcquisitionSkeletonSource) this.source;
+            registry.counter("kinect_frames_acquired_total", "New sensor frames read by the acquisition thread.", acquisition::getAcquiredFrameCount);
+            registry.counter("kinect_frames_dropped_total", "Sensor frames replaced before the render thread read them.", acquisition::getDroppedFrameCount);
+            registry.counter("kinect_acquisition_errors_total", "Sensor reads of the acquisition thread that failed.", acquisition::getErrorCount);
         }
+
+        registry.counter("kinect_calibrations_succeeded_total", "Players calibrated.", this.calibration::getCalibratedTotal);
+        registry.counter("kinect_calibrations_failed_total", "Player calibrations that failed.", this.calibration::getFailedTotal);
+        registry.counter("kinect_calibrations_recalled_total", "Players recalled from the calibration store.", () -> this.recalledPlayers);
+        registry.gauge("kinect_calibration_active", "1 while players are being calibrated.", () -> this.calibration.isActive() ? 1 : 0);
     }
 
-        screen.displayMessage("CALIBRATION COMPLETE");
-    System.out.println("CALIBRATION COMPLETE");
-    this.isCalibrating = false;
-}
+    /**
+     * Maps and smooths the hand positions of every tracked body of a snapshot
+     * into the hand position map. Bodies are processed by the body engine; the
+     * map lists the players in the order of the snapshot, whichever thread
+     * processed them.
+     *
+     * @param snapshot The snapshot to process.
+     */
+    private void processHandPositions(FrameSnapshot snapshot) {
+        // Shared state is brought up to date before the bodies are processed concurrently.
+        coordinateMapper.updateTransform();
+        this.processing = snapshot;
+        try {
+            bodyEngine.run(snapshot.getTrackedCount(), handTask);
+        } finally {
+            this.processing = null;
+        }
+        handPositions.update(snapshot);
+    }
 
     /**
-     * Removes players that are no longer tracked.
+     * Maps and smooths the hand positions of one body of the snapshot being
+     * processed. Only touches the state of that body's slot.
      *
-     * @param trackedSkeletons The list of currently tracked skeletons.
+     * @param index The index of the body among the tracked bodies.
      */
-    private void removeUntrackedPlayers(ArrayList<KSkeleton> trackedSkeletons) {
-        Set<Integer> trackedPlayerIds = new HashSet<>();
-        for (KSkeleton skeleton : trackedSkeletons) {
-            if (skeleton.isTracked()) {
-                trackedPlayerIds.add(skeleton.getIndexColor());
-            }
+    private void processBody(int index) {
+        FrameSnapshot snapshot = this.processing;
+        int body = snapshot.getBody(index);
+
+        long time = System.nanoTime();
+        updateHandPositions(snapshot, index);
+        time = timings.record(FrameTimings.Stage.SMOOTHING, time);
+
+        float[] vectors = bodyVectors[body];
+        mapJoint(snapshot, index, FrameSnapshot.SHOULDER_LEFT, vectors, SHOULDER_LEFT);
+        mapJoint(snapshot, index, FrameSnapshot.SHOULDER_RIGHT, vectors, SHOULDER_RIGHT);
+        float shoulderDistance = VectorMath.distance(vectors, SHOULDER_LEFT, vectors, SHOULDER_RIGHT) * 1.2f;
+        players.setShoulder(body, PlayerTable.LEFT, vectors, SHOULDER_LEFT);
+        players.setShoulder(body, PlayerTable.RIGHT, vectors, SHOULDER_RIGHT);
+
+        MappedCoordinates[] hands = handPositions.getHands(body);
+        players.getHand(body, PlayerTable.LEFT, vectors, HAND);
+        coordinateMapper.mapToBox(vectors, HAND, SHOULDER_LEFT, shoulderDistance, hands[0]);
+        players.getHand(body, PlayerTable.RIGHT, vectors, HAND);
+        coordinateMapper.mapToBox(vectors, HAND, SHOULDER_RIGHT, shoulderDistance, hands[1]);
+        timings.record(FrameTimings.Stage.MAPPING, time);
+    }
+
+    /**
+     * @return The engine processing the tracked bodies of each frame.
+     */
+    public BodyEngine getBodyEngine() {
+        return this.bodyEngine;
+    }
+
+    /**
+     * Replaces the engine processing the tracked bodies, shutting down the previous one.
+     *
+     * @param bodyEngine The new body engine.
+     */
+    public void setBodyEngine(BodyEngine bodyEngine) {
+        this.bodyEngine.shutdown();
+        this.bodyEngine = bodyEngine;
+    }
+
+    /**
+     * Starts calibrating the tracked players. The call returns immediately: each
+     * player's shoulder-to-hand distance is measured over the next sensor frames,
+     * and progress and results are published to the calibration listeners.
+     */
+    public void calibrate() {
+        this.calibration.start(this.players);
+    }
+
+    /**
+     * Sets the store remembering the calibration of players by their body
+     * proportions. Calibrated players are stored, and a player entering the
+     * frame is recalled from it once its proportions are measured.
+     *
+     * @param calibrationStore The calibration store, null for none.
+     */
+    public void setCalibrationStore(CalibrationStore calibrationStore) {
+        this.calibrationStore = calibrationStore;
+    }
+
+    /**
+     * Stores the calibrated distance of a player under its fingerprint, in
+     * torso lengths so it can be recalled at another distance from the sensor.
+     *
+     * @param body The body index.
+     * @param distance The calibrated distance.
+     */
+    private void storeCalibration(int body, float distance) {
+        if (this.calibrationStore == null) {
+            return;
+        }
+        if (players.getFingerprintFrames(body) < FINGERPRINT_FRAMES / 2 || !players.getFingerprint(body, this.fingerprint)) {
+            System.out.println("PLAYER " + SkeletonFrame.playerColor(body) + " NOT STORED: BODY PROPORTIONS NOT MEASURED");
+            return;
+        }
+        float torso = players.getTorsoLength(body);
+        if (!(torso > 0)) {
+            System.out.println("PLAYER " + SkeletonFrame.playerColor(body) + " NOT STORED: TORSO NOT MEASURED");
+            return;
         }
-        playerDistances.keySet().removeIf(playerId -> !trackedPlayerIds.contains(playerId));
+        this.calibrationStore.store(this.fingerprint, distance / torso);
     }
 
     /**
-     * Updates the hand positions for a given player.
+     * Measures the torso length of the players on every sensor frame, and
+     * their body proportions during their first FINGERPRINT_FRAMES sensor
+     * frames, then recalls their calibration from the store.
      *
-     * @param playerID The ID of the player.
-     * @param kJoints The array of joints for the player.
+     * @param snapshot The new snapshot, captured from the current frame.
      */
-    private void updateHandPositions(int playerID, KJoint[] kJoints) {
-        PVector handLeft = coordinateMapper.mapCoordinates(kJoints[KinectPV2.JointType_HandLeft]);
-        PVector handRight = coordinateMapper.mapCoordinates(kJoints[KinectPV2.JointType_HandRight]);
+    private void updateFingerprints(FrameSnapshot snapshot) {
+        if (snapshot.getSequence() == this.fingerprintSequence) {
+            return;
+        }
+        this.fingerprintSequence = snapshot.getSequence();
+
+        for (int index = 0; index < snapshot.getTrackedCount(); index++) {
+            int body = snapshot.getBody(index);
+            this.skeleton.wrap(frame, body);
+            players.updateTorsoLength(body, BodyFingerprint.torsoLength(this.skeleton), TORSO_WEIGHT);
+            if (players.getFingerprintFrames(body) >= FINGERPRINT_FRAMES || !BodyFingerprint.measure(this.skeleton, this.fingerprint)) {
+                continue;
+            }
+            players.addFingerprint(body, this.fingerprint);
+            if (players.getFingerprintFrames(body) == FINGERPRINT_FRAMES && !players.hasDistance(body)
+                    && this.calibrationStore != null && players.getFingerprint(body, this.fingerprint)) {
+                float distance = this.calibrationStore.recall(this.fingerprint) * players.getTorsoLength(body);
+                if (!Float.isNaN(distance)) {
+                    players.setDistance(body, distance);
+                    this.recalledPlayers++;
+                    System.out.println("RECALLED PLAYER " + SkeletonFrame.playerColor(body) + " WITH DISTANCE " + distance);
+                }
+            }
+        }
+    }
 
-        leftHandHistory.computeIfAbsent(playerID, k -> new ArrayDeque<>()).add(handLeft);
-        rightHandHistory.computeIfAbsent(playerID, k -> new ArrayDeque<>()).add(handRight);
+    /**
+     * @return The calibration, to add listeners or follow its progress.
+     */
+    public Calibration getCalibration() {
+        return this.calibration;
+    }
 
-        if (leftHandHistory.get(playerID).size() > SMOOTHING_WINDOW) {
-            leftHandHistory.get(playerID).poll();
+    /**
+     * Reads the latest skeleton frame from the source into a new snapshot.
+     * Headless drivers call this once per tick; when running inside the
+     * application, draw() takes the snapshot through getSnapshot().
+     * <p>
+     * When the source has no frame, as before its first frame or at the end of
+     * a replay that does not loop, the scene empties: the last frame read loses
+     * its bodies and is processed once more as the frame following it, and the
+     * ticks after it are stale until the source delivers a frame again.
+     *
+     * @return The new snapshot.
+     */
+    public FrameSnapshot update() {
+        FrameSnapshot next = this.snapshot == this.snapshots[0] ? this.snapshots[1] : this.snapshots[0];
+        long time = System.nanoTime();
+        if (!source.read(frame) && frame.clearBodies()) {
+            frame.setHeader(frame.getSequence() + 1, time);
         }
+        time = timings.record(FrameTimings.Stage.ACQUISITION, time);
+        next.capture(frame);
+        this.trackedBodies = next.getTrackedCount();
+        updatePlayers(next);
+        updateFingerprints(next);
+        calibration.update(next, players);
+        timings.record(FrameTimings.Stage.DECODE, time);
+
+        this.snapshot = next;
+        this.snapshotTick = this.app.frameCount;
+        this.snapshotCount++;
+        return next;
+    }
 
-        if (rightHandHistory.get(playerID).size() > SMOOTHING_WINDOW) {
-            rightHandHistory.get(playerID).poll();
+    /**
+     * Returns the snapshot of the current render tick, reading a new sensor
+     * frame only on the first call of the tick.
+     *
+     * @return The snapshot of the current tick.
+     */
+    public FrameSnapshot getSnapshot() {
+        if (this.snapshot == null || this.snapshotTick != this.app.frameCount) {
+            return update();
         }
+        return this.snapshot;
+    }
 
-        PVector smoothedLeftHand = coordinateMapper.smoothHandPositions(new ArrayList<>(leftHandHistory.get(playerID)));
-        PVector smoothedRightHand = coordinateMapper.smoothHandPositions(new ArrayList<>(rightHandHistory.get(playerID)));
+    /**
+     * Maps a decoded joint of a snapshot to the application screen, into an existing vector.
+     *
+     * @param snapshot The frame snapshot.
+     * @param index The index of the body among the tracked bodies.
+     * @param joint The decoded joint, for example FrameSnapshot.HAND_LEFT.
+     * @param target The vector receiving the mapped coordinates.
+     * @return The target vector.
+     */
+    private PVector mapJoint(FrameSnapshot snapshot, int index, int joint, PVector target) {
+        return coordinateMapper.mapCoordinates(snapshot.getX(index, joint), snapshot.getY(index, joint), snapshot.getZ(index, joint), target);
+    }
+
+    /**
+     * Maps a decoded joint of a snapshot to the application screen, into three floats of an array.
+     *
+     * @param snapshot The frame snapshot.
+     * @param index The index of the body among the tracked bodies.
+     * @param joint The decoded joint, for example FrameSnapshot.HAND_LEFT.
+     * @param target The array receiving the mapped coordinates.
+     * @param offset The offset of the mapped coordinates.
+     */
+    private void mapJoint(FrameSnapshot snapshot, int index, int joint, float[] target, int offset) {
+        coordinateMapper.mapCoordinates(snapshot.getX(index, joint), snapshot.getY(index, joint), snapshot.getZ(index, joint), target, offset);
+    }
+
+    /**
+     * Updates the player table with the bodies tracked in a snapshot. Players
+     * that are no longer tracked lose their state, and the filters of new
+     * players are reset so they do not inherit the previous player's state.
+     *
+     * @param snapshot The new snapshot.
+     */
+    private void updatePlayers(FrameSnapshot snapshot) {
+        int acquired = players.update(PlayerTable.trackedBodies(snapshot));
+        for (int body = 0; acquired != 0; body++, acquired >>>= 1) {
+            if ((acquired & 1) != 0) {
+                filters.reset(body);
+            }
+        }
+    }
 
-        leftHandPositions.put(playerID, smoothedLeftHand);
-        rightHandPositions.put(playerID, smoothedRightHand);
+    /**
+     * Updates the hand positions for a given player. Package-private for the benchmarks.
+     *
+     * @param snapshot The snapshot of the current tick.
+     * @param index The index of the player among the tracked bodies of the snapshot.
+     */
+    void updateHandPositions(FrameSnapshot snapshot, int index) {
+        int body = snapshot.getBody(index);
+        float[] vectors = bodyVectors[body];
+        mapJoint(snapshot, index, FrameSnapshot.HAND_LEFT, vectors, HAND_LEFT);
+        mapJoint(snapshot, index, FrameSnapshot.HAND_RIGHT, vectors, HAND_RIGHT);
+
+        long timestamp = snapshot.getTimestamp();
+        filters.update(body, KinectPV2.JointType_HandLeft, vectors[HAND_LEFT], vectors[HAND_LEFT + 1], vectors[HAND_LEFT + 2], timestamp);
+        filters.update(body, KinectPV2.JointType_HandRight, vectors[HAND_RIGHT], vectors[HAND_RIGHT + 1], vectors[HAND_RIGHT + 2], timestamp);
+
+        players.setHand(body, PlayerTable.LEFT,
+                filters.getX(body, KinectPV2.JointType_HandLeft), filters.getY(body, KinectPV2.JointType_HandLeft), filters.getZ(body, KinectPV2.JointType_HandLeft));
+        players.setHand(body, PlayerTable.RIGHT,
+                filters.getX(body, KinectPV2.JointType_HandRight), filters.getY(body, KinectPV2.JointType_HandRight), filters.getZ(body, KinectPV2.JointType_HandRight));
     }
 }
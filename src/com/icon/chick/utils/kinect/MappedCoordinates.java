@@ -33,4 +33,11 @@ public class MappedCoordinates {
         this.original = original;
         this.corrected = corrected;
     }
+
+    /**
+     * Constructor for the MappedCoordinates class, with zero coordinates to be set later.
+     */
+    public MappedCoordinates() {
+        this(new PVector(), new PVector());
+    }
 }
\ No newline at end of file
@@ -0,0 +1,348 @@
+/**
+ * Project: ICON Lab - Kinect Hand to Shoulder Tracking
+ * Author: Eduardo Monteiro @ ICON LAB
+ * License: MIT License
+ */
+
+package com.icon.chick.utils.kinect;
+
+import processing.core.PVector;
+
+/**
+ * The PlayerTable class holds the per-player state of the tracking, in one slot
+ * per sensor body index. Slots are stored as primitive arrays, one array per
+ * field and per axis, so a field can be processed across all players in one loop.
+ * <p>
+ * Each slot has an occupancy bit and a generation counter. The generation is
+ * incremented every time a body enters an empty slot, so state tagged with a
+ * generation can tell a new player from the one it was computed for.
+ */
+public class PlayerTable {
+    public static final int LEFT = 0;
+    public static final int RIGHT = 1;
+
+    private static final int SLOTS = SkeletonFrame.BODY_COUNT;
+
+    private int occupied;
+    private int calibrated;
+    private final int[] generations = new int[SLOTS];
+    private final float[] distances = new float[SLOTS];
+    // Smoothed torso lengths in color pixels, the scale of the stored calibrations.
+    private final float[] torsoLengths = new float[SLOTS];
+
+    // Smoothed hand and mapped shoulder positions, indexed by side * SLOTS + body.
+    private final float[] handX = new float[2 * SLOTS];
+    private final float[] handY = new float[2 * SLOTS];
+    private final float[] handZ = new float[2 * SLOTS];
+    private final float[] shoulderX = new float[2 * SLOTS];
+    private final float[] shoulderY = new float[2 * SLOTS];
+    private final float[] shoulderZ = new float[2 * SLOTS];
+
+    // Sums and sample counts of the fingerprint dimensions, indexed by body * DIMENSIONS + dimension.
+    private final float[] fingerprintSums = new float[SLOTS * BodyFingerprint.DIMENSIONS];
+    private final int[] fingerprintCounts = new int[SLOTS * BodyFingerprint.DIMENSIONS];
+    private final int[] fingerprintFrames = new int[SLOTS];
+
+    /**
+     * Constructor for the PlayerTable class.
+     */
+    public PlayerTable() {
+        for (int body = 0; body < SLOTS; body++) {
+            clear(body);
+        }
+    }
+
+    /**
+     * Updates the occupancy of the slots from the bodies tracked in a frame.
+     * Slots that become occupied start a new generation with cleared state;
+     * slots that become empty are cleared.
+     *
+     * @param trackedBodies The tracked bodies, one bit per body index.
+     * @return The slots that became occupied, one bit per body index.
+     */
+    public int update(int trackedBodies) {
+        int acquired = trackedBodies & ~this.occupied;
+        int released = this.occupied & ~trackedBodies;
+        for (int body = 0; body < SLOTS; body++) {
+            int bit = 1 << body;
+            if ((acquired & bit) != 0) {
+                this.generations[body]++;
+                clear(body);
+            } else if ((released & bit) != 0) {
+                clear(body);
+            }
+        }
+        this.occupied = trackedBodies;
+        return acquired;
+    }
+
+    /**
+     * Returns the tracked bodies of a snapshot as a bitmask.
+     *
+     * @param snapshot The frame snapshot.
+     * @return The tracked bodies, one bit per body index.
+     */
+    public static int trackedBodies(FrameSnapshot snapshot) {
+        int tracked = 0;
+        for (int index = 0; index < snapshot.getTrackedCount(); index++) {
+            tracked |= 1 << snapshot.getBody(index);
+        }
+        return tracked;
+    }
+
+    private void clear(int body) {
+        this.calibrated &= ~(1 << body);
+        this.distances[body] = Float.NaN;
+        this.torsoLengths[body] = Float.NaN;
+        this.handX[body] = this.handY[body] = this.handZ[body] = Float.NaN;
+        this.handX[SLOTS + body] = this.handY[SLOTS + body] = this.handZ[SLOTS + body] = Float.NaN;
+        this.shoulderX[body] = this.shoulderY[body] = this.shoulderZ[body] = Float.NaN;
+        this.shoulderX[SLOTS + body] = this.shoulderY[SLOTS + body] = this.shoulderZ[SLOTS + body] = Float.NaN;
+        int offset = body * BodyFingerprint.DIMENSIONS;
+        for (int i = 0; i < BodyFingerprint.DIMENSIONS; i++) {
+            this.fingerprintSums[offset + i] = 0;
+            this.fingerprintCounts[offset + i] = 0;
+        }
+        this.fingerprintFrames[body] = 0;
+    }
+
+    /**
+     * @return The occupied slots, one bit per body index.
+     */
+    public int getOccupied() {
+        return this.occupied;
+    }
+
+    /**
+     * Checks whether a slot holds a tracked body.
+     *
+     * @param body The body index.
+     * @return True if the slot is occupied.
+     */
+    public boolean isOccupied(int body) {
+        return (this.occupied & (1 << body)) != 0;
+    }
+
+    /**
+     * Returns the generation of a slot.
+     *
+     * @param body The body index.
+     * @return The number of times a body entered the slot.
+     */
+    public int getGeneration(int body) {
+        return this.generations[body];
+    }
+
+    /**
+     * Returns the player ID of a slot.
+     *
+     * @param body The body index.
+     * @return The player ID, matching KSkeleton.getIndexColor().
+     */
+    public int getPlayerId(int body) {
+        return SkeletonFrame.playerColor(body);
+    }
+
+    /**
+     * Checks whether the player of a slot has a calibrated distance.
+     *
+     * @param body The body index.
+     * @return True if the player is calibrated.
+     */
+    public boolean hasDistance(int body) {
+        return (this.calibrated & (1 << body)) != 0;
+    }
+
+    /**
+     * Returns the calibrated distance of the player of a slot.
+     *
+     * @param body The body index.
+     * @return The distance, NaN if the player is not calibrated.
+     */
+    public float getDistance(int body) {
+        return this.distances[body];
+    }
+
+    /**
+     * Sets the calibrated distance of the player of a slot.
+     *
+     * @param body The body index.
+     * @param distance The distance.
+     */
+    public void setDistance(int body, float distance) {
+        this.distances[body] = distance;
+        this.calibrated |= 1 << body;
+    }
+
+    /**
+     * Adds a torso length measurement to the player of a slot, smoothed
+     * exponentially. NaN measurements are ignored.
+     *
+     * @param body The body index.
+     * @param length The measured torso length.
+     * @param weight The weight of the measurement, from 0 to 1.
+     */
+    public void updateTorsoLength(int body, float length, float weight) {
+        if (Float.isNaN(length)) {
+            return;
+        }
+        float torso = this.torsoLengths[body];
+        this.torsoLengths[body] = Float.isNaN(torso) ? length : torso + weight * (length - torso);
+    }
+
+    /**
+     * Returns the smoothed torso length of the player of a slot.
+     *
+     * @param body The body index.
+     * @return The length, NaN if it was never measured.
+     */
+    public float getTorsoLength(int body) {
+        return this.torsoLengths[body];
+    }
+
+    /**
+     * Sets the smoothed position of a hand.
+     *
+     * @param body The body index.
+     * @param hand LEFT or RIGHT.
+     * @param x The X position.
+     * @param y The Y position.
+     * @param z The Z position.
+     */
+    public void setHand(int body, int hand, float x, float y, float z) {
+        int slot = hand * SLOTS + body;
+        this.handX[slot] = x;
+        this.handY[slot] = y;
+        this.handZ[slot] = z;
+    }
+
+    /**
+     * Checks whether a hand has a smoothed position.
+     *
+     * @param body The body index.
+     * @param hand LEFT or RIGHT.
+     * @return True if the position is known.
+     */
+    public boolean hasHand(int body, int hand) {
+        return !Float.isNaN(this.handX[hand * SLOTS + body]);
+    }
+
+    /**
+     * Copies the smoothed position of a hand into a vector.
+     *
+     * @param body The body index.
+     * @param hand LEFT or RIGHT.
+     * @param target The vector receiving the position.
+     * @return The target vector.
+     */
+    public PVector getHand(int body, int hand, PVector target) {
+        int slot = hand * SLOTS + body;
+        return target.set(this.handX[slot], this.handY[slot], this.handZ[slot]);
+    }
+
+    /**
+     * Copies the smoothed position of a hand into three floats of an array.
+     *
+     * @param body The body index.
+     * @param hand LEFT or RIGHT.
+     * @param target The array receiving the position.
+     * @param offset The offset of the position.
+     */
+    public void getHand(int body, int hand, float[] target, int offset) {
+        int slot = hand * SLOTS + body;
+        target[offset] = this.handX[slot];
+        target[offset + 1] = this.handY[slot];
+        target[offset + 2] = this.handZ[slot];
+    }
+
+    /**
+     * Sets the mapped position of a shoulder.
+     *
+     * @param body The body index.
+     * @param side LEFT or RIGHT.
+     * @param position The position on the application screen.
+     */
+    public void setShoulder(int body, int side, PVector position) {
+        int slot = side * SLOTS + body;
+        this.shoulderX[slot] = position.x;
+        this.shoulderY[slot] = position.y;
+        this.shoulderZ[slot] = position.z;
+    }
+
+    /**
+     * Sets the mapped position of a shoulder from three floats of an array.
+     *
+     * @param body The body index.
+     * @param side LEFT or RIGHT.
+     * @param position The array holding the position on the application screen.
+     * @param offset The offset of the position.
+     */
+    public void setShoulder(int body, int side, float[] position, int offset) {
+        int slot = side * SLOTS + body;
+        this.shoulderX[slot] = position[offset];
+        this.shoulderY[slot] = position[offset + 1];
+        this.shoulderZ[slot] = position[offset + 2];
+    }
+
+    /**
+     * Copies the mapped position of a shoulder into a vector.
+     *
+     * @param body The body index.
+     * @param side LEFT or RIGHT.
+     * @param target The vector receiving the position.
+     * @return The target vector.
+     */
+    public PVector getShoulder(int body, int side, PVector target) {
+        int slot = side * SLOTS + body;
+        return target.set(this.shoulderX[slot], this.shoulderY[slot], this.shoulderZ[slot]);
+    }
+
+    /**
+     * Adds a fingerprint measurement to the player of a slot.
+     *
+     * @param body The body index.
+     * @param fingerprint The measured fingerprint, with NaN for missing dimensions.
+     */
+    public void addFingerprint(int body, float[] fingerprint) {
+        int offset = body * BodyFingerprint.DIMENSIONS;
+        for (int i = 0; i < BodyFingerprint.DIMENSIONS; i++) {
+            if (!Float.isNaN(fingerprint[i])) {
+                this.fingerprintSums[offset + i] += fingerprint[i];
+                this.fingerprintCounts[offset + i]++;
+            }
+        }
+        this.fingerprintFrames[body]++;
+    }
+
+    /**
+     * Returns the number of fingerprint measurements of the player of a slot.
+     *
+     * @param body The body index.
+     * @return The number of measurements.
+     */
+    public int getFingerprintFrames(int body) {
+        return this.fingerprintFrames[body];
+    }
+
+    /**
+     * Copies the mean fingerprint of the player of a slot. Dimensions measured
+     * in fewer than half of the measurements are set to NaN.
+     *
+     * @param body The body index.
+     * @param target The array receiving the DIMENSIONS values.
+     * @return True if the required dimensions are known.
+     */
+    public boolean getFingerprint(int body, float[] target) {
+        int offset = body * BodyFingerprint.DIMENSIONS;
+        int frames = this.fingerprintFrames[body];
+        boolean valid = frames > 0;
+        for (int i = 0; i < BodyFingerprint.DIMENSIONS; i++) {
+            int count = this.fingerprintCounts[offset + i];
+            target[i] = count > 0 && count * 2 >= frames ? this.fingerprintSums[offset + i] / count : Float.NaN;
+            if (i < BodyFingerprint.REQUIRED && Float.isNaN(target[i])) {
+                valid = false;
+            }
+        }
+        return valid;
+    }
+}
@@ -0,0 +1,219 @@
+/**
+ * Project: ICON Lab - Kinect Hand to Shoulder Tracking
+ * Author: Eduardo Monteiro @ ICON LAB
+ * License: MIT License
+ */
+
+package com.icon.chick.utils.kinect;
+
+import KinectPV2.KinectPV2;
+
+/**
+ * The SkeletonFrame class holds one packed skeleton frame in the layout
+ * produced by the KinectPV2 native layer: BODY_COUNT bodies of
+ * (JointType_Count + 1) joints of 9 floats each (x, y, z, orientation w, x, y, z,
+ * tracking state, joint type). The last float of each body is its tracked flag.
+ */
+public class SkeletonFrame {
+    /**
+     * The maximum number of bodies in a frame.
+     */
+    public static final int BODY_COUNT = KinectPV2.BODY_COUNT;
+
+    /**
+     * The number of floats per joint.
+     */
+    public static final int JOINT_STRIDE = 9;
+
+    /**
+     * The number of floats per body.
+     */
+    public static final int BODY_STRIDE = (KinectPV2.JointType_Count + 1) * JOINT_STRIDE;
+
+    /**
+     * The number of floats per frame.
+     */
+    public static final int SIZE = KinectPV2.JOINTSIZE;
+
+    private static final int[] PLAYER_COLORS = {
+            0xffff0000, 0xff00ff00, 0xff0000ff, 0xffffff00, 0xff00ffff, 0xffff00ff
+    };
+
+    /**
+     * The packed frame data.
+     */
+    public final float[] data = new float[SIZE];
+
+    private long sequence;
+    private long timestamp;
+
+    /**
+     * Copies a packed frame into this frame.
+     *
+     * @param rawData The packed frame data.
+     * @param sequence The sequence number of the frame.
+     * @param timestamp The capture timestamp of the frame in nanoseconds.
+     */
+    public void set(float[] rawData, long sequence, long timestamp) {
+        System.arraycopy(rawData, 0, this.data, 0, SIZE);
+        this.sequence = sequence;
+        this.timestamp = timestamp;
+    }
+
+    /**
+     * Sets the sequence number and capture timestamp of the frame.
+     *
+     * @param sequence The sequence number of the frame.
+     * @param timestamp The capture timestamp of the frame in nanoseconds.
+     */
+    public void setHeader(long sequence, long timestamp) {
+        this.sequence = sequence;
+        this.timestamp = timestamp;
+    }
+
+    /**
+     * @return The sequence number of the frame.
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * @return The capture timestamp of the frame in nanoseconds.
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * Marks every body of the frame as untracked, leaving the header as it is.
+     *
+     * @return True if a body was tracked.
+     */
+    public boolean clearBodies() {
+        boolean tracked = false;
+        for (int body = 0; body < BODY_COUNT; body++) {
+            tracked |= isTracked(body);
+            data[body * BODY_STRIDE + BODY_STRIDE - 1] = 0;
+        }
+        return tracked;
+    }
+
+    /**
+     * Checks whether a body is tracked in this frame.
+     *
+     * @param body The body index.
+     * @return True if the body is tracked.
+     */
+    public boolean isTracked(int body) {
+        return data[body * BODY_STRIDE + BODY_STRIDE - 1] == 1.0f;
+    }
+
+    /**
+     * Returns the offset of a joint in the packed data.
+     *
+     * @param body The body index.
+     * @param joint The joint type.
+     * @return The index of the joint's first float.
+     */
+    public static int offset(int body, int joint) {
+        return body * BODY_STRIDE + joint * JOINT_STRIDE;
+    }
+
+    /**
+     * Returns the X position of a joint.
+     *
+     * @param body The body index.
+     * @param joint The joint type.
+     * @return The X position of the joint.
+     */
+    public float getX(int body, int joint) {
+        return data[offset(body, joint)];
+    }
+
+    /**
+     * Returns the Y position of a joint.
+     *
+     * @param body The body index.
+     * @param joint The joint type.
+     * @return The Y position of the joint.
+     */
+    public float getY(int body, int joint) {
+        return data[offset(body, joint) + 1];
+    }
+
+    /**
+     * Returns the Z position of a joint.
+     *
+     * @param body The body index.
+     * @param joint The joint type.
+     * @return The Z position of the joint.
+     */
+    public float getZ(int body, int joint) {
+        return data[offset(body, joint) + 2];
+    }
+
+    /**
+     * Returns the tracking state of a joint.
+     *
+     * @param body The body index.
+     * @param joint The joint type.
+     * @return The tracking state of the joint.
+     */
+    public int getState(int body, int joint) {
+        return (int) data[offset(body, joint) + 7];
+    }
+
+    /**
+     * Copies the positions of selected joints of every tracked body into caller-owned arrays.
+     * The n-th tracked body is written to bodies[n], and the (x, y, z) position of its
+     * joint jointTypes[j] to positions[(n * jointTypes.length + j) * 3].
+     *
+     * @param jointTypes The joint types to copy.
+     * @param bodies Receives the body indices of the tracked bodies, at least BODY_COUNT long.
+     * @param positions Receives the joint positions, at least BODY_COUNT * jointTypes.length * 3 long.
+     * @return The number of tracked bodies copied.
+     */
+    public int copyJoints(int[] jointTypes, int[] bodies, float[] positions) {
+        int count = 0;
+        int out = 0;
+        for (int body = 0; body < BODY_COUNT; body++) {
+            if (!isTracked(body)) {
+                continue;
+            }
+            bodies[count++] = body;
+            for (int jointType : jointTypes) {
+                int offset = offset(body, jointType);
+                positions[out++] = data[offset];
+                positions[out++] = data[offset + 1];
+                positions[out++] = data[offset + 2];
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the player color of a body, matching KSkeleton.getIndexColor().
+     *
+     * @param body The body index.
+     * @return The ARGB color used as player ID.
+     */
+    public static int playerColor(int body) {
+        return body >= 0 && body < PLAYER_COLORS.length ? PLAYER_COLORS[body] : 0xffffffff;
+    }
+
+    /**
+     * Returns the body index of a player color.
+     *
+     * @param playerColor The ARGB color used as player ID.
+     * @return The body index, -1 if the color is not a player color.
+     */
+    public static int bodyIndex(int playerColor) {
+        for (int body = 0; body < PLAYER_COLORS.length; body++) {
+            if (PLAYER_COLORS[body] == playerColor) {
+                return body;
+            }
+        }
+        return -1;
+    }
+}
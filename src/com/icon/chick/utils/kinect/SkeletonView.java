@@ -0,0 +1,80 @@
+/**
+ * Project: ICON Lab - Kinect Hand to Shoulder Tracking
+ * Author: Eduardo Monteiro @ ICON LAB
+ * License: MIT License
+ */
+
+package com.icon.chick.utils.kinect;
+
+import KinectPV2.KinectPV2;
+
+/**
+ * The SkeletonView class is a reusable view over one body of a packed skeleton
+ * frame, replacing the KSkeleton objects decoded by KinectPV2. A view and its
+ * joint view are meant to be kept and re-pointed every frame; they are not
+ * thread-safe. For bulk reads across bodies, see SkeletonFrame.copyJoints.
+ */
+public class SkeletonView {
+    private final JointView joint = new JointView();
+    private SkeletonFrame frame;
+    private int body;
+
+    /**
+     * Points this view at a body of a frame.
+     *
+     * @param frame The skeleton frame.
+     * @param body The body index.
+     * @return This view.
+     */
+    public SkeletonView wrap(SkeletonFrame frame, int body) {
+        this.frame = frame;
+        this.body = body;
+        return this;
+    }
+
+    /**
+     * @return The body index of the skeleton.
+     */
+    public int getBody() {
+        return body;
+    }
+
+    /**
+     * @return True if the skeleton is tracked.
+     */
+    public boolean isTracked() {
+        return frame.isTracked(body);
+    }
+
+    /**
+     * @return The player ID of the skeleton, matching KSkeleton.getIndexColor().
+     */
+    public int getPlayerId() {
+        return SkeletonFrame.playerColor(body);
+    }
+
+    /**
+     * Returns a view of one joint of the skeleton. The returned view is shared
+     * by all calls on this skeleton view.
+     *
+     * @param type The joint type.
+     * @return The joint view.
+     */
+    public JointView joint(int type) {
+        return joint.wrap(frame, body, type);
+    }
+
+    /**
+     * @return The left hand state of the skeleton.
+     */
+    public int getLeftHandState() {
+        return frame.getState(body, KinectPV2.JointType_HandLeft);
+    }
+
+    /**
+     * @return The right hand state of the skeleton.
+     */
+    public int getRightHandState() {
+        return frame.getState(body, KinectPV2.JointType_HandRight);
+    }
+}
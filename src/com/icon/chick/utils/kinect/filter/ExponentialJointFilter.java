@@ -0,0 +1,174 @@
+/**
+ * Project: ICON Lab - Kinect Hand to Shoulder Tracking
+ * Author: Eduardo Monteiro @ ICON LAB
+ * License: MIT License
+ */
+
+package com.icon.chick.utils.kinect.filter;
+
+/**
+ * The ExponentialJointFilter class keeps the windowed exponential smoothing of
+ * CoordinateMapper.smoothHandPositions up to date incrementally, in O(1) per
+ * sample and without allocation. Sample timestamps are ignored.
+ * <p>
+ * For a window h[0..n-1] and factor a, that smoothing equals
+ * E + (1 - a)^n * h[0], where E = sum of a * (1 - a)^(n-1-i) * h[i]. E is updated
+ * as E' = (1 - a) * E + a * x for each new sample x, minus the weight of the
+ * sample leaving the window. E is recomputed from the window periodically to
+ * bound rounding drift, and after NaN samples have left the window.
+ */
+public class ExponentialJointFilter implements JointFilter {
+    private static final int RENORMALIZE_INTERVAL = 1024;
+
+    private final int window;
+    private final double factor;
+    private final double decay;
+    // (1 - a)^window: the extra weight of the oldest sample in a full window.
+    private final double oldestWeight;
+    // a * (1 - a)^(window - 1): the weight of the oldest sample in E for a full window.
+    private final double evictWeight;
+
+    private final float[] samples;
+    private int head;
+    private int size;
+    private int nanCount;
+    private boolean stale;
+    private int sinceRenormalize;
+
+    private double sumX, sumY, sumZ;
+    private float x = Float.NaN, y = Float.NaN, z = Float.NaN;
+
+    /**
+     * Constructor for the ExponentialJointFilter class.
+     *
+     * @param window The number of samples in the smoothing window.
+     * @param factor The exponential smoothing factor.
+     */
+    public ExponentialJointFilter(int window, float factor) {
+        if (window < 1) {
+            throw new IllegalArgumentException("Invalid smoothing window: " + window);
+        }
+        this.window = window;
+        this.factor = factor;
+        this.decay = 1 - (double) factor;
+        this.oldestWeight = Math.pow(this.decay, window);
+        this.evictWeight = this.factor * Math.pow(this.decay, window - 1);
+        this.samples = new float[window * 3];
+    }
+
+    /**
+     * Adds a sample to the window and updates the smoothed position.
+     *
+     * @param sampleX The X position of the sample.
+     * @param sampleY The Y position of the sample.
+     * @param sampleZ The Z position of the sample.
+     * @param timestamp The capture timestamp of the sample, unused.
+     */
+    @Override
+    public void update(float sampleX, float sampleY, float sampleZ, long timestamp) {
+        int slot = (head + size) % window;
+        if (size == window) {
+            int oldest = head * 3;
+            if (isNaN(oldest)) {
+                nanCount--;
+            } else {
+                sumX -= evictWeight * samples[oldest];
+                sumY -= evictWeight * samples[oldest + 1];
+                sumZ -= evictWeight * samples[oldest + 2];
+            }
+            head = (head + 1) % window;
+            size--;
+        }
+
+        int offset = slot * 3;
+        samples[offset] = sampleX;
+        samples[offset + 1] = sampleY;
+        samples[offset + 2] = sampleZ;
+        size++;
+
+        if (isNaN(offset)) {
+            nanCount++;
+        }
+
+        if (nanCount > 0) {
+            // The sums are not maintained while the window holds a NaN sample.
+            stale = true;
+            x = y = z = Float.NaN;
+            return;
+        }
+        if (stale || ++sinceRenormalize >= RENORMALIZE_INTERVAL || size == 1) {
+            renormalize();
+        } else {
+            sumX = decay * sumX + factor * sampleX;
+            sumY = decay * sumY + factor * sampleY;
+            sumZ = decay * sumZ + factor * sampleZ;
+        }
+
+        double weight = size == window ? oldestWeight : Math.pow(decay, size);
+        int oldest = head * 3;
+        x = (float) (sumX + weight * samples[oldest]);
+        y = (float) (sumY + weight * samples[oldest + 1]);
+        z = (float) (sumZ + weight * samples[oldest + 2]);
+    }
+
+    /**
+     * Recomputes the weighted sum from the samples in the window.
+     */
+    private void renormalize() {
+        sumX = sumY = sumZ = 0;
+        for (int i = 0; i < size; i++) {
+            int offset = ((head + i) % window) * 3;
+            sumX = decay * sumX + factor * samples[offset];
+            sumY = decay * sumY + factor * samples[offset + 1];
+            sumZ = decay * sumZ + factor * samples[offset + 2];
+        }
+        sinceRenormalize = 0;
+        stale = false;
+    }
+
+    private boolean isNaN(int offset) {
+        return Float.isNaN(samples[offset]) || Float.isNaN(samples[offset + 1]) || Float.isNaN(samples[offset + 2]);
+    }
+
+    /**
+     * Clears the window.
+     */
+    @Override
+    public void reset() {
+        head = size = nanCount = sinceRenormalize = 0;
+        stale = false;
+        sumX = sumY = sumZ = 0;
+        x = y = z = Float.NaN;
+    }
+
+    /**
+     * @return The number of samples in the window.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return The smoothed X position, NaN if the window is empty or holds a NaN sample.
+     */
+    @Override
+    public float getX() {
+        return x;
+    }
+
+    /**
+     * @return The smoothed Y position, NaN if the window is empty or holds a NaN sample.
+     */
+    @Override
+    public float getY() {
+        return y;
+    }
+
+    /**
+     * @return The smoothed Z position, NaN if the window is empty or holds a NaN sample.
+     */
+    @Override
+    public float getZ() {
+        return z;
+    }
+}
@@ -0,0 +1,145 @@
+/**
+ * Project: ICON Lab - Kinect Hand to Shoulder Tracking
+ * Author: Eduardo Monteiro @ ICON LAB
+ * License: MIT License
+ */
+
+package com.icon.chick.utils.kinect.filter;
+
+import com.icon.chick.utils.math.VectorMath;
+
+/**
+ * The HoltJointFilter class implements Holt double exponential smoothing with
+ * the parameters of the Kinect SDK joint smoothing (TRANSFORM_SMOOTH_PARAMETERS).
+ * The filter tracks a position and a trend, predicts ahead along the trend,
+ * damps movements within the jitter radius and clamps the prediction to the
+ * maximum deviation radius from the raw sample. Radii are in the units of the
+ * filtered coordinates, not in meters as in the SDK.
+ */
+public class HoltJointFilter implements JointFilter {
+    private final float smoothing;
+    private final float correction;
+    private final float prediction;
+    private final float jitterRadius;
+    private final float maxDeviationRadius;
+
+    private int frameCount;
+    private float rawX, rawY, rawZ;
+    private float filteredX, filteredY, filteredZ;
+    private float trendX, trendY, trendZ;
+    private float x = Float.NaN, y = Float.NaN, z = Float.NaN;
+
+    /**
+     * Constructor for the HoltJointFilter class.
+     *
+     * @param smoothing The smoothing of the position, from 0 (raw) to 1 (frozen).
+     * @param correction The correction of the trend towards the new samples, from 0 to 1.
+     * @param prediction The number of frames to predict ahead along the trend.
+     * @param jitterRadius The distance under which movements are treated as jitter.
+     * @param maxDeviationRadius The maximum distance of the output from the raw sample.
+     */
+    public HoltJointFilter(float smoothing, float correction, float prediction, float jitterRadius, float maxDeviationRadius) {
+        if (!(smoothing >= 0 && smoothing < 1) || !(correction >= 0 && correction <= 1) || !(prediction >= 0)
+                || !(jitterRadius > 0) || !(maxDeviationRadius > 0)) {
+            throw new IllegalArgumentException("Invalid Holt parameters: " + smoothing + ", " + correction + ", "
+                    + prediction + ", " + jitterRadius + ", " + maxDeviationRadius);
+        }
+        this.smoothing = smoothing;
+        this.correction = correction;
+        this.prediction = prediction;
+        this.jitterRadius = jitterRadius;
+        this.maxDeviationRadius = maxDeviationRadius;
+    }
+
+    @Override
+    public void update(float sampleX, float sampleY, float sampleZ, long timestamp) {
+        if (Float.isNaN(sampleX) || Float.isNaN(sampleY) || Float.isNaN(sampleZ)) {
+            return;
+        }
+
+        float newX, newY, newZ;
+        if (frameCount == 0) {
+            newX = sampleX;
+            newY = sampleY;
+            newZ = sampleZ;
+            trendX = trendY = trendZ = 0;
+        } else if (frameCount == 1) {
+            newX = (sampleX + rawX) * 0.5f;
+            newY = (sampleY + rawY) * 0.5f;
+            newZ = (sampleZ + rawZ) * 0.5f;
+            updateTrend(newX, newY, newZ);
+        } else {
+            // Damp movements within the jitter radius towards the last filtered position.
+            float inputX = sampleX, inputY = sampleY, inputZ = sampleZ;
+            float distance = VectorMath.length(sampleX - filteredX, sampleY - filteredY, sampleZ - filteredZ);
+            if (distance <= jitterRadius) {
+                float weight = distance / jitterRadius;
+                inputX = sampleX * weight + filteredX * (1 - weight);
+                inputY = sampleY * weight + filteredY * (1 - weight);
+                inputZ = sampleZ * weight + filteredZ * (1 - weight);
+            }
+
+            newX = inputX * (1 - smoothing) + (filteredX + trendX) * smoothing;
+            newY = inputY * (1 - smoothing) + (filteredY + trendY) * smoothing;
+            newZ = inputZ * (1 - smoothing) + (filteredZ + trendZ) * smoothing;
+            updateTrend(newX, newY, newZ);
+        }
+
+        filteredX = newX;
+        filteredY = newY;
+        filteredZ = newZ;
+        rawX = sampleX;
+        rawY = sampleY;
+        rawZ = sampleZ;
+        if (frameCount < 2) {
+            frameCount++;
+        }
+
+        // Predict ahead along the trend, without straying too far from the raw sample.
+        x = newX + trendX * prediction;
+        y = newY + trendY * prediction;
+        z = newZ + trendZ * prediction;
+        float deviation = VectorMath.length(x - sampleX, y - sampleY, z - sampleZ);
+        if (deviation > maxDeviationRadius) {
+            float weight = maxDeviationRadius / deviation;
+            x = x * weight + sampleX * (1 - weight);
+            y = y * weight + sampleY * (1 - weight);
+            z = z * weight + sampleZ * (1 - weight);
+        }
+    }
+
+    /**
+     * Updates the trend from the change of the filtered position.
+     *
+     * @param newX The new filtered X position.
+     * @param newY The new filtered Y position.
+     * @param newZ The new filtered Z position.
+     */
+    private void updateTrend(float newX, float newY, float newZ) {
+        trendX = (newX - filteredX) * correction + trendX * (1 - correction);
+        trendY = (newY - filteredY) * correction + trendY * (1 - correction);
+        trendZ = (newZ - filteredZ) * correction + trendZ * (1 - correction);
+    }
+
+    @Override
+    public float getX() {
+        return x;
+    }
+
+    @Override
+    public float getY() {
+        return y;
+    }
+
+    @Override
+    public float getZ() {
+        return z;
+    }
+
+    @Override
+    public void reset() {
+        frameCount = 0;
+        trendX = trendY = trendZ = 0;
+        x = y = z = Float.NaN;
+    }
+}
@@ -0,0 +1,46 @@
+/**
+ * Project: ICON Lab - Kinect Hand to Shoulder Tracking
+ * Author: Eduardo Monteiro @ ICON LAB
+ * License: MIT License
+ */
+
+package com.icon.chick.utils.kinect.filter;
+
+/**
+ * A JointFilter smooths the successive positions of one joint of one body.
+ * Implementations keep their state in primitive fields and must not allocate
+ * in update(). Filters are not thread-safe; JointFilterBank keeps one instance
+ * per body and joint.
+ */
+public interface JointFilter {
+
+    /**
+     * Adds a new joint position sample.
+     *
+     * @param x The X position of the joint.
+     * @param y The Y position of the joint.
+     * @param z The Z position of the joint.
+     * @param timestamp The capture timestamp of the sample in nanoseconds.
+     */
+    void update(float x, float y, float z, long timestamp);
+
+    /**
+     * @return The filtered X position.
+     */
+    float getX();
+
+    /**
+     * @return The filtered Y position.
+     */
+    float getY();
+
+    /**
+     * @return The filtered Z position.
+     */
+    float getZ();
+
+    /**
+     * Clears the filter state, for example when a new body takes the slot.
+     */
+    void reset();
+}
@@ -0,0 +1,291 @@
+/**
+ * Project: ICON Lab - Kinect Hand to Shoulder Tracking
+ * Author: Eduardo Monteiro @ ICON LAB
+ * License: MIT License
+ */
+
+package com.icon.chick.utils.kinect.filter;
+
+import com.icon.chick.utils.kinect.SkeletonFrame;
+import com.icon.chick.utils.math.VectorMath;
+import KinectPV2.KinectPV2;
+
+import java.util.function.Supplier;
+
+/**
+ * The JointFilterBank class holds one JointFilter per body and joint, with the
+ * filter implementation selected per joint type. Joints without a filter are
+ * passed through unchanged.
+ * <p>
+ * The bank also measures each filter while it runs. The effective latency is the
+ * lag of the output behind the raw samples along their direction of movement,
+ * (raw - filtered) . v / |v|^2 for the raw velocity v, averaged over moving
+ * samples. The jitter is the average change of the output velocity between two
+ * samples. Lower latency usually comes at the price of more jitter.
+ * <p>
+ * Filters are created when a joint is configured; update() does not allocate.
+ * Each body slot is only touched by the updates of that body, so different
+ * bodies may be updated from different threads.
+ */
+public class JointFilterBank {
+    public static final int JOINT_COUNT = KinectPV2.JointType_Count;
+
+    /**
+     * Raw speed under which samples are not used to measure latency, in units per second.
+     */
+    private static final float MIN_SPEED = 50;
+    private static final float STATS_FACTOR = 0.05f;
+
+    private final JointFilter[][] filters = new JointFilter[JOINT_COUNT][];
+    private final float[] positions = new float[SkeletonFrame.BODY_COUNT * JOINT_COUNT * 3];
+
+    // Measurement state, per body and joint.
+    private final float[] lastRaw = new float[SkeletonFrame.BODY_COUNT * JOINT_COUNT * 3];
+    private final float[] lastVelocity = new float[SkeletonFrame.BODY_COUNT * JOINT_COUNT * 3];
+    private final long[] lastTimestamp = new long[SkeletonFrame.BODY_COUNT * JOINT_COUNT];
+    private final int[] sampleCount = new int[SkeletonFrame.BODY_COUNT * JOINT_COUNT];
+    private final float[] latency = new float[SkeletonFrame.BODY_COUNT * JOINT_COUNT];
+    private final int[] latencyCount = new int[SkeletonFrame.BODY_COUNT * JOINT_COUNT];
+    private final float[] jitter = new float[SkeletonFrame.BODY_COUNT * JOINT_COUNT];
+
+    /**
+     * Selects the filter of a joint type for all bodies.
+     *
+     * @param jointType The joint type, for example KinectPV2.JointType_HandLeft.
+     * @param factory The factory creating one filter per body, or null to pass the joint through.
+     */
+    public void setFilter(int jointType, Supplier<? extends JointFilter> factory) {
+        checkJoint(jointType);
+        if (factory == null) {
+            this.filters[jointType] = null;
+        } else {
+            JointFilter[] bodies = new JointFilter[SkeletonFrame.BODY_COUNT];
+            for (int body = 0; body < bodies.length; body++) {
+                bodies[body] = factory.get();
+            }
+            this.filters[jointType] = bodies;
+        }
+        for (int body = 0; body < SkeletonFrame.BODY_COUNT; body++) {
+            resetStats(body, jointType);
+        }
+    }
+
+    /**
+     * Returns the filter of a joint of a body.
+     *
+     * @param body The body index.
+     * @param jointType The joint type.
+     * @return The filter, or null if the joint is passed through.
+     */
+    public JointFilter getFilter(int body, int jointType) {
+        checkJoint(jointType);
+        JointFilter[] bodies = this.filters[jointType];
+        return bodies == null ? null : bodies[body];
+    }
+
+    /**
+     * Filters a new position of a joint of a body.
+     *
+     * @param body The body index.
+     * @param jointType The joint type.
+     * @param x The X position of the joint.
+     * @param y The Y position of the joint.
+     * @param z The Z position of the joint.
+     * @param timestamp The capture timestamp of the sample in nanoseconds.
+     */
+    public void update(int body, int jointType, float x, float y, float z, long timestamp) {
+        int slot = body * JOINT_COUNT + jointType;
+        int offset = slot * 3;
+        JointFilter[] bodies = this.filters[jointType];
+        float filteredX = x, filteredY = y, filteredZ = z;
+        if (bodies != null) {
+            JointFilter filter = bodies[body];
+            filter.update(x, y, z, timestamp);
+            filteredX = filter.getX();
+            filteredY = filter.getY();
+            filteredZ = filter.getZ();
+        }
+
+        if (!Float.isNaN(x) && !Float.isNaN(y) && !Float.isNaN(z)
+                && !Float.isNaN(filteredX) && !Float.isNaN(filteredY) && !Float.isNaN(filteredZ)) {
+            measure(slot, x, y, z, filteredX, filteredY, filteredZ, timestamp);
+        } else {
+            this.sampleCount[slot] = 0;
+        }
+
+        this.positions[offset] = filteredX;
+        this.positions[offset + 1] = filteredY;
+        this.positions[offset + 2] = filteredZ;
+    }
+
+    /**
+     * Updates the latency and jitter measurements of a joint of a body.
+     */
+    private void measure(int slot, float x, float y, float z, float filteredX, float filteredY, float filteredZ, long timestamp) {
+        int offset = slot * 3;
+        int count = this.sampleCount[slot];
+        if (count > 0) {
+            float dt = (timestamp - this.lastTimestamp[slot]) * 1e-9f;
+            if (!(dt > 0)) {
+                return;
+            }
+
+            float vx = (x - this.lastRaw[offset]) / dt;
+            float vy = (y - this.lastRaw[offset + 1]) / dt;
+            float vz = (z - this.lastRaw[offset + 2]) / dt;
+            float speedSquared = vx * vx + vy * vy + vz * vz;
+            if (speedSquared > MIN_SPEED * MIN_SPEED) {
+                float lag = ((x - filteredX) * vx + (y - filteredY) * vy + (z - filteredZ) * vz) / speedSquared;
+                this.latency[slot] = this.latencyCount[slot]++ == 0 ? lag : this.latency[slot] + STATS_FACTOR * (lag - this.latency[slot]);
+            }
+
+            // The output velocity is kept per sample, in units per sample.
+            float dx = filteredX - this.positions[offset];
+            float dy = filteredY - this.positions[offset + 1];
+            float dz = filteredZ - this.positions[offset + 2];
+            if (count > 1) {
+                float ax = dx - this.lastVelocity[offset];
+                float ay = dy - this.lastVelocity[offset + 1];
+                float az = dz - this.lastVelocity[offset + 2];
+                float change = VectorMath.length(ax, ay, az);
+                this.jitter[slot] = count == 2 ? change : this.jitter[slot] + STATS_FACTOR * (change - this.jitter[slot]);
+            }
+            this.lastVelocity[offset] = dx;
+            this.lastVelocity[offset + 1] = dy;
+            this.lastVelocity[offset + 2] = dz;
+        }
+
+        this.lastRaw[offset] = x;
+        this.lastRaw[offset + 1] = y;
+        this.lastRaw[offset + 2] = z;
+        this.lastTimestamp[slot] = timestamp;
+        if (count < Integer.MAX_VALUE) {
+            this.sampleCount[slot] = count + 1;
+        }
+    }
+
+    /**
+     * Returns the filtered X position of a joint of a body.
+     *
+     * @param body The body index.
+     * @param jointType The joint type.
+     * @return The filtered X position.
+     */
+    public float getX(int body, int jointType) {
+        return this.positions[(body * JOINT_COUNT + jointType) * 3];
+    }
+
+    /**
+     * Returns the filtered Y position of a joint of a body.
+     *
+     * @param body The body index.
+     * @param jointType The joint type.
+     * @return The filtered Y position.
+     */
+    public float getY(int body, int jointType) {
+        return this.positions[(body * JOINT_COUNT + jointType) * 3 + 1];
+    }
+
+    /**
+     * Returns the filtered Z position of a joint of a body.
+     *
+     * @param body The body index.
+     * @param jointType The joint type.
+     * @return The filtered Z position.
+     */
+    public float getZ(int body, int jointType) {
+        return this.positions[(body * JOINT_COUNT + jointType) * 3 + 2];
+    }
+
+    /**
+     * Resets the filters of a body, for example when a new person takes its slot.
+     * The latency and jitter measured so far are kept.
+     *
+     * @param body The body index.
+     */
+    public void reset(int body) {
+        for (int jointType = 0; jointType < JOINT_COUNT; jointType++) {
+            JointFilter[] bodies = this.filters[jointType];
+            if (bodies != null) {
+                bodies[body].reset();
+            }
+            int slot = body * JOINT_COUNT + jointType;
+            this.sampleCount[slot] = 0;
+            this.positions[slot * 3] = this.positions[slot * 3 + 1] = this.positions[slot * 3 + 2] = Float.NaN;
+        }
+    }
+
+    private void resetStats(int body, int jointType) {
+        int slot = body * JOINT_COUNT + jointType;
+        this.sampleCount[slot] = 0;
+        this.latencyCount[slot] = 0;
+        this.latency[slot] = 0;
+        this.jitter[slot] = 0;
+    }
+
+    /**
+     * Returns the measured effective latency of a joint type, averaged over the bodies.
+     *
+     * @param jointType The joint type.
+     * @return The latency in seconds, NaN if the joint has not moved yet.
+     */
+    public float getLatency(int jointType) {
+        checkJoint(jointType);
+        float total = 0;
+        int count = 0;
+        for (int body = 0; body < SkeletonFrame.BODY_COUNT; body++) {
+            int slot = body * JOINT_COUNT + jointType;
+            if (this.latencyCount[slot] > 0) {
+                total += this.latency[slot];
+                count++;
+            }
+        }
+        return count == 0 ? Float.NaN : total / count;
+    }
+
+    /**
+     * Returns the measured jitter of a joint type, averaged over the bodies.
+     *
+     * @param jointType The joint type.
+     * @return The average change of the output velocity between samples, in units per sample, NaN if not measured yet.
+     */
+    public float getJitter(int jointType) {
+        checkJoint(jointType);
+        float total = 0;
+        int count = 0;
+        for (int body = 0; body < SkeletonFrame.BODY_COUNT; body++) {
+            int slot = body * JOINT_COUNT + jointType;
+            if (this.sampleCount[slot] > 2) {
+                total += this.jitter[slot];
+                count++;
+            }
+        }
+        return count == 0 ? Float.NaN : total / count;
+    }
+
+    /**
+     * Measures the steady-state lag of a filter following a joint moving at constant speed.
+     *
+     * @param factory The factory of the filter to measure.
+     * @param frameRate The sampling rate in Hz.
+     * @param speed The speed of the joint in units per second.
+     * @return The lag in seconds after two seconds of movement.
+     */
+    public static float measureRampLatency(Supplier<? extends JointFilter> factory, float frameRate, float speed) {
+        JointFilter filter = factory.get();
+        long period = (long) (1e9 / frameRate);
+        int samples = (int) (frameRate * 2);
+        float position = 0;
+        for (int i = 0; i < samples; i++) {
+            position = speed * i / frameRate;
+            filter.update(position, 0, 0, i * period);
+        }
+        return (position - filter.getX()) / speed;
+    }
+
+    private static void checkJoint(int jointType) {
+        if (jointType < 0 || jointType >= JOINT_COUNT) {
+            throw new IllegalArgumentException("Invalid joint type: " + jointType);
+        }
+    }
+}
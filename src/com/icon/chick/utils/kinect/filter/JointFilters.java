@@ -0,0 +1,44 @@
+/**
+ * Project: ICON Lab - Kinect Hand to Shoulder Tracking
+ * Author: Eduardo Monteiro @ ICON LAB
+ * License: MIT License
+ */
+
+package com.icon.chick.utils.kinect.filter;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * The JointFilters class provides the named filter presets selectable from the
+ * command line. Parameters are tuned for hand positions in screen pixels at 30 Hz.
+ */
+public final class JointFilters {
+    /**
+     * The names of the presets.
+     */
+    public static final List<String> NAMES = List.of("oneeuro", "holt", "kalman");
+
+    private JointFilters() {
+    }
+
+    /**
+     * Returns the factory of a named filter preset.
+     *
+     * @param name The preset name: oneeuro, holt or kalman.
+     * @return The filter factory.
+     */
+    public static Supplier<JointFilter> byName(String name) {
+        switch (name) {
+            case "oneeuro":
+                return () -> new OneEuroJointFilter(1.0f, 0.007f, 1.0f);
+            case "holt":
+                // Kinect SDK default smoothing; the 0.05 m / 0.04 m radii are about 25 / 20 pixels at 2 m.
+                return () -> new HoltJointFilter(0.5f, 0.5f, 0.5f, 25f, 20f);
+            case "kalman":
+                return () -> new KalmanJointFilter(5e6f, 25f);
+            default:
+                throw new IllegalArgumentException("Unknown joint filter: " + name);
+        }
+    }
+}
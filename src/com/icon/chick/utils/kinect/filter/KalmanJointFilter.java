@@ -0,0 +1,115 @@
+/**
+ * Project: ICON Lab - Kinect Hand to Shoulder Tracking
+ * Author: Eduardo Monteiro @ ICON LAB
+ * License: MIT License
+ */
+
+package com.icon.chick.utils.kinect.filter;
+
+/**
+ * The KalmanJointFilter class implements a constant-velocity Kalman filter per
+ * axis, with a white-noise acceleration process model. The three axes share
+ * the same noise parameters and sampling times, so they share one 2x2 error
+ * covariance, which does not depend on the measured values.
+ */
+public class KalmanJointFilter implements JointFilter {
+    private final float processNoise;
+    private final float measurementNoise;
+
+    private boolean initialized;
+    private long lastTimestamp;
+    private float x = Float.NaN, y = Float.NaN, z = Float.NaN;
+    private float vx, vy, vz;
+    // Error covariance of (position, velocity), shared by the three axes.
+    private float p00, p01, p11;
+
+    /**
+     * Constructor for the KalmanJointFilter class.
+     *
+     * @param processNoise The spectral density of the acceleration noise, in units squared per second cubed.
+     * @param measurementNoise The variance of the measured positions, in units squared.
+     */
+    public KalmanJointFilter(float processNoise, float measurementNoise) {
+        if (!(processNoise > 0) || !(measurementNoise > 0)) {
+            throw new IllegalArgumentException("Invalid Kalman parameters: " + processNoise + ", " + measurementNoise);
+        }
+        this.processNoise = processNoise;
+        this.measurementNoise = measurementNoise;
+    }
+
+    @Override
+    public void update(float sampleX, float sampleY, float sampleZ, long timestamp) {
+        if (Float.isNaN(sampleX) || Float.isNaN(sampleY) || Float.isNaN(sampleZ)) {
+            return;
+        }
+        if (!initialized) {
+            x = sampleX;
+            y = sampleY;
+            z = sampleZ;
+            vx = vy = vz = 0;
+            // Known position, unknown velocity.
+            p00 = measurementNoise;
+            p01 = 0;
+            p11 = measurementNoise * 1e4f;
+            lastTimestamp = timestamp;
+            initialized = true;
+            return;
+        }
+
+        float dt = (timestamp - lastTimestamp) * 1e-9f;
+        if (!(dt > 0)) {
+            return;
+        }
+        lastTimestamp = timestamp;
+
+        // Predict: P = F P F' + Q.
+        float dt2 = dt * dt;
+        float q00 = processNoise * dt2 * dt / 3;
+        float q01 = processNoise * dt2 / 2;
+        float q11 = processNoise * dt;
+        float n00 = p00 + 2 * dt * p01 + dt2 * p11 + q00;
+        float n01 = p01 + dt * p11 + q01;
+        float n11 = p11 + q11;
+        x += vx * dt;
+        y += vy * dt;
+        z += vz * dt;
+
+        // Correct with the measured position.
+        float s = n00 + measurementNoise;
+        float k0 = n00 / s;
+        float k1 = n01 / s;
+        float ex = sampleX - x, ey = sampleY - y, ez = sampleZ - z;
+        x += k0 * ex;
+        y += k0 * ey;
+        z += k0 * ez;
+        vx += k1 * ex;
+        vy += k1 * ey;
+        vz += k1 * ez;
+
+        p00 = (1 - k0) * n00;
+        p01 = (1 - k0) * n01;
+        p11 = n11 - k1 * n01;
+    }
+
+    @Override
+    public float getX() {
+        return x;
+    }
+
+    @Override
+    public float getY() {
+        return y;
+    }
+
+    @Override
+    public float getZ() {
+        return z;
+    }
+
+    @Override
+    public void reset() {
+        initialized = false;
+        x = y = z = Float.NaN;
+        vx = vy = vz = 0;
+    }
+}
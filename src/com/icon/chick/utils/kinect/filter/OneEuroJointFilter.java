@@ -0,0 +1,109 @@
+/**
+ * Project: ICON Lab - Kinect Hand to Shoulder Tracking
+ * Author: Eduardo Monteiro @ ICON LAB
+ * License: MIT License
+ */
+
+package com.icon.chick.utils.kinect.filter;
+
+import com.icon.chick.utils.math.VectorMath;
+
+/**
+ * The OneEuroJointFilter class implements the One Euro filter (Casiez et al.,
+ * CHI 2012): a low-pass filter whose cutoff frequency rises with the joint
+ * speed, so slow movements are smoothed strongly and fast sweeps keep little lag.
+ * The speed is the norm of the filtered 3D velocity, so all axes share one cutoff.
+ */
+public class OneEuroJointFilter implements JointFilter {
+    private final float minCutoff;
+    private final float beta;
+    private final float derivativeCutoff;
+
+    private boolean initialized;
+    private long lastTimestamp;
+    private float x = Float.NaN, y = Float.NaN, z = Float.NaN;
+    private float dx, dy, dz;
+
+    /**
+     * Constructor for the OneEuroJointFilter class.
+     *
+     * @param minCutoff The cutoff frequency at rest in Hz, lower for less jitter.
+     * @param beta The cutoff increase per unit of speed, higher for less lag on fast movements.
+     * @param derivativeCutoff The cutoff frequency of the speed estimate in Hz.
+     */
+    public OneEuroJointFilter(float minCutoff, float beta, float derivativeCutoff) {
+        if (!(minCutoff > 0) || !(derivativeCutoff > 0) || !(beta >= 0)) {
+            throw new IllegalArgumentException("Invalid One Euro parameters: " + minCutoff + ", " + beta + ", " + derivativeCutoff);
+        }
+        this.minCutoff = minCutoff;
+        this.beta = beta;
+        this.derivativeCutoff = derivativeCutoff;
+    }
+
+    @Override
+    public void update(float sampleX, float sampleY, float sampleZ, long timestamp) {
+        if (Float.isNaN(sampleX) || Float.isNaN(sampleY) || Float.isNaN(sampleZ)) {
+            return;
+        }
+        if (!initialized) {
+            x = sampleX;
+            y = sampleY;
+            z = sampleZ;
+            dx = dy = dz = 0;
+            lastTimestamp = timestamp;
+            initialized = true;
+            return;
+        }
+
+        float dt = (timestamp - lastTimestamp) * 1e-9f;
+        if (!(dt > 0)) {
+            return;
+        }
+        lastTimestamp = timestamp;
+
+        float derivativeAlpha = alpha(dt, derivativeCutoff);
+        dx += derivativeAlpha * ((sampleX - x) / dt - dx);
+        dy += derivativeAlpha * ((sampleY - y) / dt - dy);
+        dz += derivativeAlpha * ((sampleZ - z) / dt - dz);
+
+        float speed = VectorMath.length(dx, dy, dz);
+        float alpha = alpha(dt, minCutoff + beta * speed);
+        x += alpha * (sampleX - x);
+        y += alpha * (sampleY - y);
+        z += alpha * (sampleZ - z);
+    }
+
+    /**
+     * Computes the smoothing factor of a first-order low-pass filter.
+     *
+     * @param dt The sampling period in seconds.
+     * @param cutoff The cutoff frequency in Hz.
+     * @return The smoothing factor.
+     */
+    private static float alpha(float dt, float cutoff) {
+        float tau = 1 / (2 * (float) Math.PI * cutoff);
+        return 1 / (1 + tau / dt);
+    }
+
+    @Override
+    public float getX() {
+        return x;
+    }
+
+    @Override
+    public float getY() {
+        return y;
+    }
+
+    @Override
+    public float getZ() {
+        return z;
+    }
+
+    @Override
+    public void reset() {
+        initialized = false;
+        x = y = z = Float.NaN;
+        dx = dy = dz = 0;
+    }
+}
@@ -0,0 +1,308 @@
+/**
+ * Project: ICON Lab - Kinect Hand to Shoulder Tracking
+ * Author: Eduardo Monteiro @ ICON LAB
+ * License: MIT License
+ */
+
+package com.icon.chick.utils.kinect.output;
+
+import com.icon.chick.utils.kinect.SkeletonFrame;
+import com.icon.chick.utils.kinect.source.TripleBuffer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The AsyncHandOutput class hands the samples of the render thread to a
+ * HandOutputSink running on a background thread. offer() never blocks and does
+ * not allocate; when the sink falls behind, the overflow policy decides which
+ * samples are lost, and the loss is counted.
+ * <p>
+ * With DROP_OLDEST and DROP_NEWEST, samples go through a bounded single-producer
+ * single-consumer ring of preallocated samples. The consumer copies a sample out
+ * before claiming it with a compare-and-set on the head, so a sample the
+ * producer dropped (and may be overwriting) during the copy is discarded.
+ * With COALESCE_LATEST_PER_PLAYER, each player has a triple-buffered mailbox
+ * holding its latest sample, and a newer sample replaces one not yet written.
+ * <p>
+ * One thread offers samples and one output thread writes them to the sink.
+ * Outputs are created with start(), which starts the output thread.
+ */
+public class AsyncHandOutput implements Runnable {
+
+    /**
+     * What happens to samples offered while the output is full.
+     */
+    public enum OverflowPolicy {
+        /** Drops the oldest queued sample to make room for the new one. */
+        DROP_OLDEST,
+        /** Drops the new sample. */
+        DROP_NEWEST,
+        /** Keeps only the latest sample of each player. */
+        COALESCE_LATEST_PER_PLAYER
+    }
+
+    private static final long IDLE_PARK = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final HandOutputSink sink;
+    private final OverflowPolicy policy;
+
+    private final HandSample[] ring;
+    private final int mask;
+    private final AtomicLong head = new AtomicLong();
+    private volatile long tail;
+
+    private final List<TripleBuffer<HandSample>> mailboxes;
+
+    private final HandSample[] batch;
+    private Thread thread;
+    private volatile boolean running = true;
+
+    // Written by the producer only.
+    private volatile long offered;
+    private volatile long dropped;
+    private volatile long coalesced;
+    // Written by the output thread only.
+    private volatile long written;
+    private volatile long batches;
+    private volatile long sinkErrors;
+    private volatile long failed;
+
+    /**
+     * Creates an output and starts its output thread.
+     *
+     * @param sink The sink receiving the samples.
+     * @param capacity The number of queued samples, rounded up to a power of two.
+     * @param batchSize The maximum number of samples per sink write.
+     * @param policy The overflow policy.
+     * @return The started output.
+     */
+    public static AsyncHandOutput start(HandOutputSink sink, int capacity, int batchSize, OverflowPolicy policy) {
+        AsyncHandOutput output = new AsyncHandOutput(sink, capacity, batchSize, policy);
+        output.thread = new Thread(output, "kinect-output");
+        output.thread.setDaemon(true);
+        output.thread.start();
+        return output;
+    }
+
+    /**
+     * Constructor for the AsyncHandOutput class.
+     *
+     * @param sink The sink receiving the samples.
+     * @param capacity The number of queued samples, rounded up to a power of two.
+     * @param batchSize The maximum number of samples per sink write.
+     * @param policy The overflow policy.
+     */
+    private AsyncHandOutput(HandOutputSink sink, int capacity, int batchSize, OverflowPolicy policy) {
+        if (capacity < 1 || capacity > 1 << 20 || batchSize < 1) {
+            throw new IllegalArgumentException("Invalid output queue configuration: " + capacity + ", " + batchSize);
+        }
+        this.sink = sink;
+        this.policy = policy;
+
+        int size = Integer.highestOneBit(capacity - 1) << 1;
+        this.ring = new HandSample[Math.max(size, 1)];
+        this.mask = this.ring.length - 1;
+        for (int i = 0; i < this.ring.length; i++) {
+            this.ring[i] = new HandSample();
+        }
+
+        List<TripleBuffer<HandSample>> mailboxes = new ArrayList<>(SkeletonFrame.BODY_COUNT);
+        for (int body = 0; body < SkeletonFrame.BODY_COUNT; body++) {
+            mailboxes.add(new TripleBuffer<>(HandSample::new));
+        }
+        this.mailboxes = List.copyOf(mailboxes);
+
+        this.batch = new HandSample[Math.max(batchSize, SkeletonFrame.BODY_COUNT)];
+        for (int i = 0; i < this.batch.length; i++) {
+            this.batch[i] = new HandSample();
+        }
+
+    }
+
+    /**
+     * Queues a sample for the sink. Never blocks. Producer thread only.
+     *
+     * @param sample The sample, copied before the call returns.
+     * @return False if the sample was dropped.
+     */
+    public boolean offer(HandSample sample) {
+        offered++;
+        if (policy == OverflowPolicy.COALESCE_LATEST_PER_PLAYER) {
+            int body = sample.getBody();
+            if (body < 0 || body >= mailboxes.size()) {
+                dropped++;
+                return false;
+            }
+            TripleBuffer<HandSample> mailbox = mailboxes.get(body);
+            mailbox.getWriteBuffer().copyFrom(sample);
+            if (mailbox.publish()) {
+                coalesced++;
+            }
+            return true;
+        }
+
+        long t = tail;
+        while (true) {
+            long h = head.get();
+            if (t - h < ring.length) {
+                break;
+            }
+            if (policy == OverflowPolicy.DROP_NEWEST) {
+                dropped++;
+                return false;
+            }
+            if (head.compareAndSet(h, h + 1)) {
+                dropped++;
+            }
+        }
+        ring[(int) t & mask].copyFrom(sample);
+        tail = t + 1;
+        return true;
+    }
+
+    @Override
+    public void run() {
+        while (running) {
+            if (drain() == 0) {
+                LockSupport.parkNanos(this, IDLE_PARK);
+            }
+        }
+        // Deliver what was queued before close().
+        int count;
+        do {
+            count = drain();
+        } while (count > 0);
+    }
+
+    /**
+     * Writes one batch of pending samples to the sink. Output thread only.
+     *
+     * @return The number of samples written.
+     */
+    private int drain() {
+        int count = 0;
+        if (policy == OverflowPolicy.COALESCE_LATEST_PER_PLAYER) {
+            for (int body = 0; body < mailboxes.size(); body++) {
+                TripleBuffer<HandSample> mailbox = mailboxes.get(body);
+                if (mailbox.update()) {
+                    batch[count++].copyFrom(mailbox.getReadBuffer());
+                }
+            }
+        } else {
+            while (count < batch.length) {
+                long h = head.get();
+                if (h >= tail) {
+                    break;
+                }
+                batch[count].copyFrom(ring[(int) h & mask]);
+                // Fails if the producer dropped this sample while it was copied.
+                if (head.compareAndSet(h, h + 1)) {
+                    count++;
+                }
+            }
+        }
+        if (count == 0) {
+            return 0;
+        }
+
+        try {
+            sink.write(batch, count);
+            written += count;
+        } catch (RuntimeException e) {
+            // Logged once: a broken sink fails every batch.
+            if (sinkErrors++ == 0) {
+                System.err.println("HAND OUTPUT WRITE FAILED: " + e);
+                e.printStackTrace();
+            }
+            failed += count;
+        }
+        batches++;
+        return count;
+    }
+
+    /**
+     * Stops the output thread after writing the pending samples, and closes the sink.
+     */
+    public void close() {
+        running = false;
+        LockSupport.unpark(thread);
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        sink.close();
+    }
+
+    /**
+     * @return The overflow policy.
+     */
+    public OverflowPolicy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * @return The number of samples offered.
+     */
+    public long getOfferedCount() {
+        return offered;
+    }
+
+    /**
+     * @return The number of samples dropped by the overflow policy.
+     */
+    public long getDroppedCount() {
+        return dropped;
+    }
+
+    /**
+     * @return The number of samples replaced by a newer sample of the same player.
+     */
+    public long getCoalescedCount() {
+        return coalesced;
+    }
+
+    /**
+     * @return The number of samples written to the sink, without those of failed writes.
+     */
+    public long getWrittenCount() {
+        return written;
+    }
+
+    /**
+     * Returns the number of samples waiting for the sink. Safe to call from any thread.
+     *
+     * @return The queued samples, or the players with an unwritten sample when coalescing.
+     */
+    public long getQueueDepth() {
+        if (policy == OverflowPolicy.COALESCE_LATEST_PER_PLAYER) {
+            return Math.max(0, offered - coalesced - written - failed);
+        }
+        return Math.max(0, tail - head.get());
+    }
+
+    /**
+     * @return The number of batches written to the sink.
+     */
+    public long getBatchCount() {
+        return batches;
+    }
+
+    /**
+     * @return The number of sink writes that threw an exception.
+     */
+    public long getSinkErrorCount() {
+        return sinkErrors;
+    }
+
+    /**
+     * @return The number of samples lost to sink writes that threw an exception.
+     */
+    public long getFailedCount() {
+        return failed;
+    }
+}
@@ -0,0 +1,41 @@
+/**
+ * Project: ICON Lab - Kinect Hand to Shoulder Tracking
+ * Author: Eduardo Monteiro @ ICON LAB
+ * License: MIT License
+ */
+
+package com.icon.chick.utils.kinect.output;
+
+import java.io.PrintStream;
+
+/**
+ * HandOutputSink printing one line per player, in the format Kinect.run()
+ * used to print directly. Each batch is written with a single print call.
+ */
+public class ConsoleHandOutputSink implements HandOutputSink {
+    private final PrintStream out;
+    private final StringBuilder text = new StringBuilder();
+
+    /**
+     * Constructor for the ConsoleHandOutputSink class.
+     *
+     * @param out The stream to print to.
+     */
+    public ConsoleHandOutputSink(PrintStream out) {
+        this.out = out;
+    }
+
+    @Override
+    public void write(HandSample[] batch, int count) {
+        text.setLength(0);
+        for (int i = 0; i < count; i++) {
+            HandSample sample = batch[i];
+            text.append("Player: ").append(sample.getPlayerId())
+                    .append(" | LEFT: [ ").append(sample.getLeftCorrectedX()).append(", ").append(sample.getLeftCorrectedY()).append(", 0.0 ]")
+                    .append(" | RIGHT: [ ").append(sample.getRightCorrectedX()).append(", ").append(sample.getRightCorrectedY()).append(", 0.0 ]")
+                    .append(System.lineSeparator());
+        }
+        out.print(text);
+        out.flush();
+    }
+}
@@ -0,0 +1,29 @@
+/**
+ * Project: ICON Lab - Kinect Hand to Shoulder Tracking
+ * Author: Eduardo Monteiro @ ICON LAB
+ * License: MIT License
+ */
+
+package com.icon.chick.utils.kinect.output;
+
+/**
+ * A HandOutputSink receives the hand samples of the tracking pipeline, in
+ * batches, on the output thread of an AsyncHandOutput. It may block or do I/O
+ * without slowing down the render loop.
+ */
+public interface HandOutputSink {
+
+    /**
+     * Writes a batch of samples. The samples are reused after the call returns.
+     *
+     * @param batch The samples, oldest first.
+     * @param count The number of samples in the batch.
+     */
+    void write(HandSample[] batch, int count);
+
+    /**
+     * Releases the resources of the sink once the output is closed.
+     */
+    default void close() {
+    }
+}
@@ -0,0 +1,306 @@
+/**
+ * Project: ICON Lab - Kinect Hand to Shoulder Tracking
+ * Author: Eduardo Monteiro @ ICON LAB
+ * License: MIT License
+ */
+
+package com.icon.chick.utils.kinect.output;
+
+import com.icon.chick.utils.kinect.HandFrame;
+import com.icon.chick.utils.kinect.MappedCoordinates;
+import com.icon.chick.utils.kinect.SkeletonFrame;
+import processing.core.PVector;
+
+/**
+ * The HandSample class holds the mapped hand positions of one player in one
+ * frame. Samples are preallocated and reused by the output queue; sinks must
+ * copy what they keep beyond the write() call.
+ */
+public class HandSample {
+    private int playerId;
+    private int body;
+    private long sequence;
+    private long timestamp;
+    private float leftX, leftY, leftCorrectedX, leftCorrectedY;
+    private float rightX, rightY, rightCorrectedX, rightCorrectedY;
+    private float shoulderLeftX, shoulderLeftY, shoulderLeftZ;
+    private float shoulderRightX, shoulderRightY, shoulderRightZ;
+
+    /**
+     * Sets the sample from the mapped hand positions of a player.
+     *
+     * @param playerId The player ID.
+     * @param body The body index of the player.
+     * @param sequence The sequence number of the sensor frame.
+     * @param timestamp The capture timestamp of the sensor frame in nanoseconds.
+     * @param left The mapped left hand.
+     * @param right The mapped right hand.
+     */
+    public void set(int playerId, int body, long sequence, long timestamp, MappedCoordinates left, MappedCoordinates right) {
+        setFrame(playerId, body, sequence, timestamp);
+        setLeft(left.original.x, left.original.y, left.corrected.x, left.corrected.y);
+        setRight(right.original.x, right.original.y, right.corrected.x, right.corrected.y);
+    }
+
+    /**
+     * Sets the sample from the hand positions of a body of a hand frame.
+     *
+     * @param frame The hand frame.
+     * @param body The body index of a valid body of the frame.
+     */
+    public void set(HandFrame frame, int body) {
+        setFrame(frame.getPlayerId(body), body, frame.getSequence(), frame.getTimestamp());
+        setLeft(frame.getLeftX(body), frame.getLeftY(body), frame.getLeftCorrectedX(body), frame.getLeftCorrectedY(body));
+        setRight(frame.getRightX(body), frame.getRightY(body), frame.getRightCorrectedX(body), frame.getRightCorrectedY(body));
+    }
+
+    /**
+     * Sets the player and frame of the sample.
+     *
+     * @param playerId The player ID.
+     * @param body The body index of the player.
+     * @param sequence The sequence number of the sensor frame.
+     * @param timestamp The capture timestamp of the sensor frame in nanoseconds.
+     */
+    public void setFrame(int playerId, int body, long sequence, long timestamp) {
+        this.playerId = playerId;
+        this.body = body;
+        this.sequence = sequence;
+        this.timestamp = timestamp;
+    }
+
+    /**
+     * Sets the left hand position.
+     *
+     * @param x The X position in the shoulder box, before clamping.
+     * @param y The Y position in the shoulder box, before clamping.
+     * @param correctedX The X position clamped to [-1, 1].
+     * @param correctedY The Y position clamped to [-1, 1].
+     */
+    public void setLeft(float x, float y, float correctedX, float correctedY) {
+        this.leftX = x;
+        this.leftY = y;
+        this.leftCorrectedX = correctedX;
+        this.leftCorrectedY = correctedY;
+    }
+
+    /**
+     * Sets the right hand position.
+     *
+     * @param x The X position in the shoulder box, before clamping.
+     * @param y The Y position in the shoulder box, before clamping.
+     * @param correctedX The X position clamped to [-1, 1].
+     * @param correctedY The Y position clamped to [-1, 1].
+     */
+    public void setRight(float x, float y, float correctedX, float correctedY) {
+        this.rightX = x;
+        this.rightY = y;
+        this.rightCorrectedX = correctedX;
+        this.rightCorrectedY = correctedY;
+    }
+
+    /**
+     * Sets the shoulder positions on the application screen.
+     *
+     * @param left The left shoulder.
+     * @param right The right shoulder.
+     */
+    public void setShoulders(PVector left, PVector right) {
+        setShoulders(left.x, left.y, left.z, right.x, right.y, right.z);
+    }
+
+    /**
+     * Sets the shoulder positions on the application screen.
+     *
+     * @param leftX The X position of the left shoulder.
+     * @param leftY The Y position of the left shoulder.
+     * @param leftZ The Z position of the left shoulder.
+     * @param rightX The X position of the right shoulder.
+     * @param rightY The Y position of the right shoulder.
+     * @param rightZ The Z position of the right shoulder.
+     */
+    public void setShoulders(float leftX, float leftY, float leftZ, float rightX, float rightY, float rightZ) {
+        this.shoulderLeftX = leftX;
+        this.shoulderLeftY = leftY;
+        this.shoulderLeftZ = leftZ;
+        this.shoulderRightX = rightX;
+        this.shoulderRightY = rightY;
+        this.shoulderRightZ = rightZ;
+    }
+
+    /**
+     * Copies another sample into this one.
+     *
+     * @param other The sample to copy.
+     */
+    public void copyFrom(HandSample other) {
+        this.playerId = other.playerId;
+        this.body = other.body;
+        this.sequence = other.sequence;
+        this.timestamp = other.timestamp;
+        this.leftX = other.leftX;
+        this.leftY = other.leftY;
+        this.leftCorrectedX = other.leftCorrectedX;
+        this.leftCorrectedY = other.leftCorrectedY;
+        this.rightX = other.rightX;
+        this.rightY = other.rightY;
+        this.rightCorrectedX = other.rightCorrectedX;
+        this.rightCorrectedY = other.rightCorrectedY;
+        this.shoulderLeftX = other.shoulderLeftX;
+        this.shoulderLeftY = other.shoulderLeftY;
+        this.shoulderLeftZ = other.shoulderLeftZ;
+        this.shoulderRightX = other.shoulderRightX;
+        this.shoulderRightY = other.shoulderRightY;
+        this.shoulderRightZ = other.shoulderRightZ;
+    }
+
+    /**
+     * Returns the end of the run of samples of one frame starting at an index:
+     * consecutive samples with the same sequence number, at most one per body.
+     *
+     * @param batch The samples.
+     * @param from The index of the first sample of the frame.
+     * @param count The number of samples in the batch.
+     * @return The index after the last sample of the frame.
+     */
+    public static int frameEnd(HandSample[] batch, int from, int count) {
+        long sequence = batch[from].sequence;
+        int bodies = 0;
+        int end = from;
+        while (end < count && batch[end].sequence == sequence && end - from < SkeletonFrame.BODY_COUNT) {
+            int bit = 1 << (batch[end].body & 31);
+            if ((bodies & bit) != 0) {
+                break;
+            }
+            bodies |= bit;
+            end++;
+        }
+        return end;
+    }
+
+    /**
+     * @return The player ID, matching KSkeleton.getIndexColor().
+     */
+    public int getPlayerId() {
+        return playerId;
+    }
+
+    /**
+     * @return The body index of the player.
+     */
+    public int getBody() {
+        return body;
+    }
+
+    /**
+     * @return The sequence number of the sensor frame.
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * @return The capture timestamp of the sensor frame in nanoseconds.
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * @return The X position of the left hand in the shoulder box, before clamping.
+     */
+    public float getLeftX() {
+        return leftX;
+    }
+
+    /**
+     * @return The Y position of the left hand in the shoulder box, before clamping.
+     */
+    public float getLeftY() {
+        return leftY;
+    }
+
+    /**
+     * @return The X position of the left hand, clamped to [-1, 1].
+     */
+    public float getLeftCorrectedX() {
+        return leftCorrectedX;
+    }
+
+    /**
+     * @return The Y position of the left hand, clamped to [-1, 1].
+     */
+    public float getLeftCorrectedY() {
+        return leftCorrectedY;
+    }
+
+    /**
+     * @return The X position of the right hand in the shoulder box, before clamping.
+     */
+    public float getRightX() {
+        return rightX;
+    }
+
+    /**
+     * @return The Y position of the right hand in the shoulder box, before clamping.
+     */
+    public float getRightY() {
+        return rightY;
+    }
+
+    /**
+     * @return The X position of the right hand, clamped to [-1, 1].
+     */
+    public float getRightCorrectedX() {
+        return rightCorrectedX;
+    }
+
+    /**
+     * @return The Y position of the right hand, clamped to [-1, 1].
+     */
+    public float getRightCorrectedY() {
+        return rightCorrectedY;
+    }
+
+    /**
+     * @return The X position of the left shoulder on the application screen.
+     */
+    public float getShoulderLeftX() {
+        return shoulderLeftX;
+    }
+
+    /**
+     * @return The Y position of the left shoulder on the application screen.
+     */
+    public float getShoulderLeftY() {
+        return shoulderLeftY;
+    }
+
+    /**
+     * @return The Z position of the left shoulder.
+     */
+    public float getShoulderLeftZ() {
+        return shoulderLeftZ;
+    }
+
+    /**
+     * @return The X position of the right shoulder on the application screen.
+     */
+    public float getShoulderRightX() {
+        return shoulderRightX;
+    }
+
+    /**
+     * @return The Y position of the right shoulder on the application screen.
+     */
+    public float getShoulderRightY() {
+        return shoulderRightY;
+    }
+
+    /**
+     * @return The Z position of the right shoulder.
+     */
+    public float getShoulderRightZ() {
+        return shoulderRightZ;
+    }
+}
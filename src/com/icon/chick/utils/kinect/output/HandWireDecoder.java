@@ -0,0 +1,168 @@
+/**
+ * Project: ICON Lab - Kinect Hand to Shoulder Tracking
+ * Author: Eduardo Monteiro @ ICON LAB
+ * License: MIT License
+ */
+
+package com.icon.chick.utils.kinect.output;
+
+import com.icon.chick.utils.kinect.SkeletonFrame;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static com.icon.chick.utils.kinect.output.HandWireFormat.*;
+
+/**
+ * The HandWireDecoder class decodes frames written by HandWireEncoder. Invalid
+ * input is reported through the return value, never by an exception, and
+ * leaves the decoder state unchanged. It does not allocate.
+ */
+public class HandWireDecoder {
+    /**
+     * Returned for a delta frame whose previous frame was not decoded.
+     */
+    public static final int MISSING_REFERENCE = -1;
+
+    /**
+     * Returned for input that is not a valid frame.
+     */
+    public static final int MALFORMED = -2;
+
+    private final short[] older = new short[SkeletonFrame.BODY_COUNT * COORDINATES];
+    private final short[] previous = new short[SkeletonFrame.BODY_COUNT * COORDINATES];
+    private final short[] current = new short[SkeletonFrame.BODY_COUNT * COORDINATES];
+    private final int[] depths = new int[SkeletonFrame.BODY_COUNT];
+    private int previousMask;
+    private int previousFrame = -1;
+    private long frames;
+
+    /**
+     * Decodes one frame.
+     *
+     * @param in The buffer holding exactly one frame from its position to its limit.
+     * @param samples The samples receiving the players, BODY_COUNT of them.
+     * @return The number of players, MISSING_REFERENCE or MALFORMED.
+     */
+    public int decode(ByteBuffer in, HandSample[] samples) {
+        ByteOrder order = in.order();
+        in.order(ByteOrder.LITTLE_ENDIAN);
+        try {
+            return decodeFrame(in, samples);
+        } finally {
+            in.order(order);
+        }
+    }
+
+    private int decodeFrame(ByteBuffer in, HandSample[] samples) {
+        if (in.remaining() < 4) {
+            return MALFORMED;
+        }
+        int header = in.get() & 0xff;
+        if (header >>> 4 != VERSION || (header & 0x0e) != 0) {
+            return MALFORMED;
+        }
+        boolean keyframe = (header & KEYFRAME) != 0;
+        int frameNumber = in.getShort() & 0xffff;
+        int mask = in.get() & 0xff;
+        if (mask >>> SkeletonFrame.BODY_COUNT != 0) {
+            return MALFORMED;
+        }
+
+        int changed = 0;
+        if (!keyframe) {
+            if (!in.hasRemaining()) {
+                return MALFORMED;
+            }
+            if (previousFrame < 0 || frameNumber != ((previousFrame + 1) & 0xffff)) {
+                return MISSING_REFERENCE;
+            }
+            changed = in.get() & 0xff;
+            if ((changed & ~(mask & previousMask)) != 0) {
+                return MALFORMED;
+            }
+        }
+
+        for (int body = 0; body < SkeletonFrame.BODY_COUNT; body++) {
+            if ((mask & (1 << body)) == 0) {
+                continue;
+            }
+            int offset = body * COORDINATES;
+            if (keyframe || (previousMask & (1 << body)) == 0) {
+                if (in.remaining() < COORDINATES * Short.BYTES) {
+                    return MALFORMED;
+                }
+                for (int c = 0; c < COORDINATES; c++) {
+                    current[offset + c] = in.getShort();
+                }
+            } else {
+                boolean hasDelta = (changed & (1 << body)) != 0;
+                for (int c = 0; c < COORDINATES; c++) {
+                    int value = predict(previous[offset + c], older[offset + c], depths[body]);
+                    if (hasDelta) {
+                        int delta = getVarint(in);
+                        if (delta == Integer.MIN_VALUE) {
+                            return MALFORMED;
+                        }
+                        value += (delta >>> 1) ^ -(delta & 1);
+                        if (value < Short.MIN_VALUE || value > Short.MAX_VALUE) {
+                            return MALFORMED;
+                        }
+                    }
+                    current[offset + c] = (short) value;
+                }
+            }
+        }
+        if (in.hasRemaining()) {
+            return MALFORMED;
+        }
+
+        // The frame is valid: commit it as the reference of the next one.
+        long sequence = frames == 0 ? frameNumber : frames + ((frameNumber - previousFrame) & 0xffff);
+        int count = 0;
+        for (int body = 0; body < SkeletonFrame.BODY_COUNT; body++) {
+            if ((mask & (1 << body)) == 0) {
+                depths[body] = 0;
+                continue;
+            }
+            int offset = body * COORDINATES;
+            depths[body] = keyframe || (previousMask & (1 << body)) == 0 ? 1 : depths[body] + 1;
+            System.arraycopy(previous, offset, older, offset, COORDINATES);
+            System.arraycopy(current, offset, previous, offset, COORDINATES);
+            float leftX = dequantize(current[offset]);
+            float leftY = dequantize(current[offset + 1]);
+            float rightX = dequantize(current[offset + 2]);
+            float rightY = dequantize(current[offset + 3]);
+
+            HandSample sample = samples[count++];
+            sample.setFrame(SkeletonFrame.playerColor(body), body, sequence, 0);
+            sample.setLeft(leftX, leftY, leftX, leftY);
+            sample.setRight(rightX, rightY, rightX, rightY);
+            sample.setShoulders(Float.NaN, Float.NaN, Float.NaN, Float.NaN, Float.NaN, Float.NaN);
+        }
+        previousMask = mask;
+        previousFrame = frameNumber;
+        frames = sequence;
+        return count;
+    }
+
+    /**
+     * Reads a varint of at most 3 bytes, enough for the difference of two i16.
+     *
+     * @return The value, Integer.MIN_VALUE if truncated or too long.
+     */
+    private static int getVarint(ByteBuffer in) {
+        int value = 0;
+        for (int shift = 0; shift < 21; shift += 7) {
+            if (!in.hasRemaining()) {
+                return Integer.MIN_VALUE;
+            }
+            int b = in.get() & 0xff;
+            value |= (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        return Integer.MIN_VALUE;
+    }
+}
@@ -0,0 +1,151 @@
+/**
+ * Project: ICON Lab - Kinect Hand to Shoulder Tracking
+ * Author: Eduardo Monteiro @ ICON LAB
+ * License: MIT License
+ */
+
+package com.icon.chick.utils.kinect.output;
+
+import com.icon.chick.utils.kinect.SkeletonFrame;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static com.icon.chick.utils.kinect.output.HandWireFormat.*;
+
+/**
+ * The HandWireEncoder class encodes frames of hand samples in the
+ * HandWireFormat, delta encoding each frame against the previous one and
+ * emitting a keyframe at a fixed interval. It does not allocate.
+ */
+public class HandWireEncoder {
+    private final int keyframeInterval;
+    private final short[] older = new short[SkeletonFrame.BODY_COUNT * COORDINATES];
+    private final short[] previous = new short[SkeletonFrame.BODY_COUNT * COORDINATES];
+    private final short[] current = new short[SkeletonFrame.BODY_COUNT * COORDINATES];
+    private final int[] depths = new int[SkeletonFrame.BODY_COUNT];
+    private int previousMask;
+    private int frameNumber;
+    private int sinceKeyframe;
+    private boolean keyframeRequested = true;
+
+    /**
+     * Constructor for the HandWireEncoder class.
+     *
+     * @param keyframeInterval The number of frames between keyframes, 1 for keyframes only.
+     */
+    public HandWireEncoder(int keyframeInterval) {
+        if (keyframeInterval < 1) {
+            throw new IllegalArgumentException("Invalid keyframe interval: " + keyframeInterval);
+        }
+        this.keyframeInterval = keyframeInterval;
+    }
+
+    /**
+     * Makes the next frame a keyframe, for example when a receiver reports a loss.
+     */
+    public void requestKeyframe() {
+        keyframeRequested = true;
+    }
+
+    /**
+     * Encodes the samples of one frame.
+     *
+     * @param samples The samples, at most one per body.
+     * @param from The index of the first sample.
+     * @param to The index after the last sample.
+     * @param out The buffer receiving the frame, with at least MAX_FRAME_BYTES remaining.
+     * @return The number of bytes written.
+     */
+    public int encode(HandSample[] samples, int from, int to, ByteBuffer out) {
+        if (out.remaining() < MAX_FRAME_BYTES) {
+            throw new IllegalArgumentException("Buffer too small for a frame: " + out.remaining());
+        }
+
+        int mask = 0;
+        for (int i = from; i < to; i++) {
+            HandSample sample = samples[i];
+            int body = sample.getBody();
+            if (body < 0 || body >= SkeletonFrame.BODY_COUNT || (mask & (1 << body)) != 0) {
+                throw new IllegalArgumentException("Invalid or duplicate body in frame: " + body);
+            }
+            mask |= 1 << body;
+            int offset = body * COORDINATES;
+            current[offset] = quantize(sample.getLeftCorrectedX());
+            current[offset + 1] = quantize(sample.getLeftCorrectedY());
+            current[offset + 2] = quantize(sample.getRightCorrectedX());
+            current[offset + 3] = quantize(sample.getRightCorrectedY());
+        }
+
+        boolean keyframe = keyframeRequested || ++sinceKeyframe >= keyframeInterval;
+        if (keyframe) {
+            keyframeRequested = false;
+            sinceKeyframe = 0;
+        }
+
+        ByteOrder order = out.order();
+        out.order(ByteOrder.LITTLE_ENDIAN);
+        int start = out.position();
+        out.put((byte) (VERSION << 4 | (keyframe ? KEYFRAME : 0)));
+        out.putShort((short) frameNumber);
+        out.put((byte) mask);
+
+        int changedPosition = out.position();
+        int changed = 0;
+        if (!keyframe) {
+            out.put((byte) 0);
+        }
+        for (int body = 0; body < SkeletonFrame.BODY_COUNT; body++) {
+            if ((mask & (1 << body)) == 0) {
+                depths[body] = 0;
+                continue;
+            }
+            int offset = body * COORDINATES;
+            if (keyframe || (previousMask & (1 << body)) == 0) {
+                depths[body] = 1;
+                for (int c = 0; c < COORDINATES; c++) {
+                    out.putShort(current[offset + c]);
+                }
+                continue;
+            }
+            if (differs(offset, depths[body])) {
+                changed |= 1 << body;
+                for (int c = 0; c < COORDINATES; c++) {
+                    putVarint(out, zigzag(current[offset + c] - predict(previous[offset + c], older[offset + c], depths[body])));
+                }
+            }
+            depths[body]++;
+        }
+        if (!keyframe) {
+            out.put(changedPosition, (byte) changed);
+        }
+        out.order(order);
+
+        System.arraycopy(previous, 0, older, 0, previous.length);
+        System.arraycopy(current, 0, previous, 0, current.length);
+        previousMask = mask;
+        frameNumber = (frameNumber + 1) & 0xffff;
+        return out.position() - start;
+    }
+
+    private boolean differs(int offset, int depth) {
+        for (int c = 0; c < COORDINATES; c++) {
+            if (current[offset + c] != predict(previous[offset + c], older[offset + c], depth)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int zigzag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private static void putVarint(ByteBuffer out, int value) {
+        while ((value & ~0x7f) != 0) {
+            out.put((byte) (value & 0x7f | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+}
@@ -0,0 +1,99 @@
+/**
+ * Project: ICON Lab - Kinect Hand to Shoulder Tracking
+ * Author: Eduardo Monteiro @ ICON LAB
+ * License: MIT License
+ */
+
+package com.icon.chick.utils.kinect.output;
+
+/**
+ * The HandWireFormat class defines the compact binary frame format of the
+ * corrected hand positions, written by HandWireEncoder and read by
+ * HandWireDecoder. All multi-byte values are little-endian.
+ * <pre>
+ * u8   header: version (1) in the upper 4 bits, KEYFRAME flag in bit 0
+ * u16  frame number, incremented for each encoded frame
+ * u8   player mask, bit b set when body b is present
+ * u8   changed mask, delta frames only: players present in the previous
+ *      frame whose coordinates differ from their prediction
+ * then for each present body in ascending order, its left X, left Y,
+ * right X and right Y, as:
+ *      i16 each       in keyframes, and for players absent from the previous frame
+ *      zigzag varint  of the difference with the prediction, for changed players
+ *      nothing        for players matching their prediction
+ * </pre>
+ * A coordinate is predicted by linear extrapolation of the previous two frames
+ * when the player was in both since the last keyframe, and by the previous
+ * frame otherwise, clamped to [-32767, 32767]. Smooth motion at 30 Hz then
+ * mostly fits 1-byte varints.
+ * Coordinates are quantized to 16-bit fixed point: q = round(v * 32767) for v
+ * in [-1, 1], with -32768 standing for NaN. Decoding returns q / 32767, so the
+ * quantization error is at most 0.5 / 32767 (about 1.53e-5) for values in
+ * [-1, 1]; values outside the range are clamped first. Deltas are taken
+ * between quantized values, so they add no error and errors do not accumulate.
+ * <p>
+ * A delta frame only decodes after the frame before it; after a loss, the
+ * decoder skips frames until the next keyframe. Player IDs are implied by the
+ * body index (SkeletonFrame.playerColor), and sequence numbers are replaced by
+ * the frame number. The format has no checksum and relies on the transport
+ * for integrity.
+ */
+public final class HandWireFormat {
+    public static final int VERSION = 1;
+    public static final int KEYFRAME = 0x01;
+    public static final int SCALE = 32767;
+    public static final short NAN = Short.MIN_VALUE;
+    public static final float MAX_ERROR = 0.5f / SCALE;
+
+    /**
+     * The size of the largest frame: header, masks and six players of four
+     * 3-byte varints.
+     */
+    public static final int MAX_FRAME_BYTES = 5 + 6 * 4 * 3;
+
+    /**
+     * The number of coordinates per player.
+     */
+    static final int COORDINATES = 4;
+
+    private HandWireFormat() {
+    }
+
+    /**
+     * Predicts a quantized coordinate from its previous values.
+     *
+     * @param previous The value in the previous frame.
+     * @param older The value in the frame before it.
+     * @param depth The number of consecutive frames the player was in, since the last keyframe.
+     * @return The predicted value.
+     */
+    static int predict(short previous, short older, int depth) {
+        if (depth < 2) {
+            return previous;
+        }
+        return Math.max(-SCALE, Math.min(SCALE, 2 * previous - older));
+    }
+
+    /**
+     * Quantizes a corrected coordinate.
+     *
+     * @param value The coordinate, clamped to [-1, 1].
+     * @return The fixed-point value, NAN for NaN.
+     */
+    public static short quantize(float value) {
+        if (Float.isNaN(value)) {
+            return NAN;
+        }
+        return (short) Math.round(Math.max(-1f, Math.min(1f, value)) * (double) SCALE);
+    }
+
+    /**
+     * Restores a quantized coordinate.
+     *
+     * @param value The fixed-point value.
+     * @return The coordinate, NaN for NAN.
+     */
+    public static float dequantize(int value) {
+        return value == NAN ? Float.NaN : (float) value / SCALE;
+    }
+}
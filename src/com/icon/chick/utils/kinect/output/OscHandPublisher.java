@@ -0,0 +1,178 @@
+/**
+ * Project: ICON Lab - Kinect Hand to Shoulder Tracking
+ * Author: Eduardo Monteiro @ ICON LAB
+ * License: MIT License
+ */
+
+package com.icon.chick.utils.kinect.output;
+
+import com.icon.chick.utils.kinect.SkeletonFrame;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * HandOutputSink publishing the corrected hand positions as OSC over UDP.
+ * <p>
+ * Each frame is sent as one OSC bundle, with the immediate time tag, holding:
+ * <pre>
+ * /kinect/frame ,hhi  sequence, capture timestamp (ns), player count
+ * /kinect/hand  ,iiffff  player ID, body index, left X, left Y, right X, right Y
+ * </pre>
+ * with one /kinect/hand message per player. Consecutive samples of the same
+ * frame are grouped into one bundle. Bundles are encoded into one reused direct
+ * buffer and sent through a connected non-blocking channel, so publishing does
+ * not allocate. Datagrams the socket cannot take right away are dropped and counted.
+ */
+public class OscHandPublisher implements HandOutputSink {
+    static final byte[] BUNDLE = oscString("#bundle");
+    static final byte[] FRAME_ADDRESS = oscString("/kinect/frame");
+    static final byte[] FRAME_TAGS = oscString(",hhi");
+    static final byte[] HAND_ADDRESS = oscString("/kinect/hand");
+    static final byte[] HAND_TAGS = oscString(",iiffff");
+    static final long IMMEDIATELY = 1;
+
+    static final int FRAME_SIZE = FRAME_ADDRESS.length + FRAME_TAGS.length + 2 * Long.BYTES + Integer.BYTES;
+    static final int HAND_SIZE = HAND_ADDRESS.length + HAND_TAGS.length + 2 * Integer.BYTES + 4 * Float.BYTES;
+    static final int MAX_DATAGRAM = BUNDLE.length + Long.BYTES
+            + Integer.BYTES + FRAME_SIZE + SkeletonFrame.BODY_COUNT * (Integer.BYTES + HAND_SIZE);
+
+    private final DatagramChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(MAX_DATAGRAM);
+
+    private long datagrams;
+    private long droppedDatagrams;
+    private long sendErrors;
+
+    /**
+     * Constructor for the OscHandPublisher class.
+     *
+     * @param target The address of the OSC receiver.
+     */
+    public OscHandPublisher(InetSocketAddress target) {
+        try {
+            this.channel = DatagramChannel.open();
+            this.channel.configureBlocking(false);
+            this.channel.connect(target);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open OSC channel to " + target, e);
+        }
+    }
+
+    /**
+     * Encodes an OSC string: ASCII, null terminated and padded to four bytes.
+     *
+     * @param value The string.
+     * @return The encoded string.
+     */
+    static byte[] oscString(String value) {
+        byte[] text = value.getBytes(StandardCharsets.US_ASCII);
+        byte[] padded = new byte[(text.length + 4) & ~3];
+        System.arraycopy(text, 0, padded, 0, text.length);
+        return padded;
+    }
+
+    @Override
+    public void write(HandSample[] batch, int count) {
+        int start = 0;
+        while (start < count) {
+            int end = HandSample.frameEnd(batch, start, count);
+            send(batch, start, end);
+            start = end;
+        }
+    }
+
+    /**
+     * Sends the samples of one frame as one bundle.
+     *
+     * @param samples The samples.
+     * @param from The index of the first sample.
+     * @param to The index after the last sample, at most BODY_COUNT after from.
+     */
+    public void send(HandSample[] samples, int from, int to) {
+        encode(buffer, samples, from, to);
+        try {
+            if (channel.write(buffer) == 0) {
+                droppedDatagrams++;
+            } else {
+                datagrams++;
+            }
+        } catch (IOException e) {
+            // For example a port unreachable report while no receiver is listening.
+            sendErrors++;
+        }
+    }
+
+    /**
+     * Encodes the samples of one frame as one bundle.
+     *
+     * @param buffer The buffer, cleared and flipped for reading.
+     * @param samples The samples.
+     * @param from The index of the first sample.
+     * @param to The index after the last sample, at most BODY_COUNT after from.
+     */
+    static void encode(ByteBuffer buffer, HandSample[] samples, int from, int to) {
+        if (to - from > SkeletonFrame.BODY_COUNT || to <= from) {
+            throw new IllegalArgumentException("Invalid bundle size: " + (to - from));
+        }
+        buffer.clear();
+        buffer.put(BUNDLE);
+        buffer.putLong(IMMEDIATELY);
+
+        HandSample first = samples[from];
+        buffer.putInt(FRAME_SIZE);
+        buffer.put(FRAME_ADDRESS);
+        buffer.put(FRAME_TAGS);
+        buffer.putLong(first.getSequence());
+        buffer.putLong(first.getTimestamp());
+        buffer.putInt(to - from);
+
+        for (int i = from; i < to; i++) {
+            HandSample sample = samples[i];
+            buffer.putInt(HAND_SIZE);
+            buffer.put(HAND_ADDRESS);
+            buffer.put(HAND_TAGS);
+            buffer.putInt(sample.getPlayerId());
+            buffer.putInt(sample.getBody());
+            buffer.putFloat(sample.getLeftCorrectedX());
+            buffer.putFloat(sample.getLeftCorrectedY());
+            buffer.putFloat(sample.getRightCorrectedX());
+            buffer.putFloat(sample.getRightCorrectedY());
+        }
+        buffer.flip();
+    }
+
+    /**
+     * @return The number of datagrams sent.
+     */
+    public long getDatagramCount() {
+        return datagrams;
+    }
+
+    /**
+     * @return The number of datagrams dropped because the socket buffer was full.
+     */
+    public long getDroppedDatagramCount() {
+        return droppedDatagrams;
+    }
+
+    /**
+     * @return The number of datagrams that failed to send.
+     */
+    public long getSendErrorCount() {
+        return sendErrors;
+    }
+
+    @Override
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to close OSC channel", e);
+        }
+    }
+}
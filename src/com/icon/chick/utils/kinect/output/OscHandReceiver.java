@@ -0,0 +1,155 @@
+/**
+ * Project: ICON Lab - Kinect Hand to Shoulder Tracking
+ * Author: Eduardo Monteiro @ ICON LAB
+ * License: MIT License
+ */
+
+package com.icon.chick.utils.kinect.output;
+
+import com.icon.chick.utils.kinect.SkeletonFrame;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+
+import static com.icon.chick.utils.kinect.output.OscHandPublisher.*;
+
+/**
+ * The OscHandReceiver class receives the bundles of an OscHandPublisher and
+ * decodes them back into hand samples, for loopback checks and benchmarks.
+ * Only the corrected positions are published; the unclamped positions of the
+ * decoded samples are NaN.
+ */
+public class OscHandReceiver implements Closeable {
+    private final DatagramChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(MAX_DATAGRAM);
+    private final HandSample[] samples = new HandSample[SkeletonFrame.BODY_COUNT];
+
+    private long malformed;
+
+    /**
+     * Constructor for the OscHandReceiver class.
+     *
+     * @param address The local address to listen on, port 0 for any free port.
+     */
+    public OscHandReceiver(InetSocketAddress address) {
+        try {
+            this.channel = DatagramChannel.open();
+            this.channel.bind(address);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open OSC receiver on " + address, e);
+        }
+        for (int i = 0; i < samples.length; i++) {
+            samples[i] = new HandSample();
+        }
+    }
+
+    /**
+     * @return The local address the receiver listens on.
+     */
+    public InetSocketAddress getAddress() {
+        try {
+            return (InetSocketAddress) channel.getLocalAddress();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read OSC receiver address", e);
+        }
+    }
+
+    /**
+     * Waits for the next datagram and passes its samples to a sink.
+     *
+     * @param sink The sink receiving the decoded samples of the bundle.
+     * @return The number of samples, -1 if the datagram was not a hand bundle.
+     */
+    public int receive(HandOutputSink sink) {
+        buffer.clear();
+        try {
+            channel.receive(buffer);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to receive OSC datagram", e);
+        }
+        buffer.flip();
+
+        int count = decode(buffer, samples);
+        if (count < 0) {
+            malformed++;
+            return -1;
+        }
+        sink.write(samples, count);
+        return count;
+    }
+
+    /**
+     * Decodes a bundle encoded by OscHandPublisher.
+     *
+     * @param buffer The datagram.
+     * @param samples The samples receiving the players, BODY_COUNT of them.
+     * @return The number of samples, -1 if the datagram is not a hand bundle.
+     */
+    static int decode(ByteBuffer buffer, HandSample[] samples) {
+        if (!skip(buffer, BUNDLE) || buffer.remaining() < Long.BYTES + Integer.BYTES + FRAME_SIZE) {
+            return -1;
+        }
+        buffer.getLong();
+        if (buffer.getInt() != FRAME_SIZE || !skip(buffer, FRAME_ADDRESS) || !skip(buffer, FRAME_TAGS)) {
+            return -1;
+        }
+        long sequence = buffer.getLong();
+        long timestamp = buffer.getLong();
+        int count = buffer.getInt();
+        if (count < 0 || count > samples.length || buffer.remaining() != count * (Integer.BYTES + HAND_SIZE)) {
+            return -1;
+        }
+
+        for (int i = 0; i < count; i++) {
+            if (buffer.getInt() != HAND_SIZE || !skip(buffer, HAND_ADDRESS) || !skip(buffer, HAND_TAGS)) {
+                return -1;
+            }
+            HandSample sample = samples[i];
+            sample.setFrame(buffer.getInt(), buffer.getInt(), sequence, timestamp);
+            sample.setLeft(Float.NaN, Float.NaN, buffer.getFloat(), buffer.getFloat());
+            sample.setRight(Float.NaN, Float.NaN, buffer.getFloat(), buffer.getFloat());
+        }
+        return count;
+    }
+
+    /**
+     * Consumes an expected byte sequence.
+     *
+     * @param buffer The buffer.
+     * @param expected The expected bytes.
+     * @return False if the buffer does not continue with the expected bytes.
+     */
+    private static boolean skip(ByteBuffer buffer, byte[] expected) {
+        if (buffer.remaining() < expected.length) {
+            return false;
+        }
+        int position = buffer.position();
+        for (int i = 0; i < expected.length; i++) {
+            if (buffer.get(position + i) != expected[i]) {
+                return false;
+            }
+        }
+        buffer.position(position + expected.length);
+        return true;
+    }
+
+    /**
+     * @return The number of datagrams that were not hand bundles.
+     */
+    public long getMalformedCount() {
+        return malformed;
+    }
+
+    @Override
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to close OSC receiver", e);
+        }
+    }
+}
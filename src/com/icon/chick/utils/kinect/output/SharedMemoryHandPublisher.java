@@ -0,0 +1,185 @@
+/**
+ * Project: ICON Lab - Kinect Hand to Shoulder Tracking
+ * Author: Eduardo Monteiro @ ICON LAB
+ * License: MIT License
+ */
+
+package com.icon.chick.utils.kinect.output;
+
+import com.icon.chick.utils.kinect.SkeletonFrame;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * HandOutputSink publishing the players of each frame into a memory-mapped
+ * file, for consumers running on the same machine.
+ * <p>
+ * The file starts with a 64 byte header, followed by a ring of frame slots.
+ * All values are little-endian:
+ * <pre>
+ * header  0 int   magic 'KHS1' (0x3153484B)
+ *         4 int   version (1)
+ *         8 int   slot size in bytes
+ *        12 int   ring size in slots
+ *        16 int   players per slot (BODY_COUNT)
+ *        20 int   player record size in bytes
+ *        24 long  number of frames published; frame n is in slot n % ring size
+ * slot    0 long  seqlock counter, odd while the slot is being written
+ *         8 long  frame index n
+ *        16 long  sensor frame sequence number, 0 without players
+ *        24 long  capture timestamp (System.nanoTime of the publisher, ns), 0 without players
+ *        32 long  publish time (System.nanoTime of the publisher, ns)
+ *        40 int   player count
+ *        44 int   reserved
+ *        48       player records: int player ID, int body index, then floats
+ *                 left X, left Y, left corrected X, left corrected Y,
+ *                 right X, right Y, right corrected X, right corrected Y,
+ *                 left shoulder X, Y, Z, right shoulder X, Y, Z
+ * </pre>
+ * To read the latest frame, a reader reads the frame count n (acquire), then
+ * the slot of frame n - 1 with the seqlock protocol: read the counter
+ * (acquire), retry if it is odd, copy the slot, then read the counter again
+ * and retry if it changed or if the slot holds another frame index. The
+ * publisher writes a different slot than the latest one, so with a ring of
+ * two slots or more a reader never waits for the publisher unless it is
+ * slower than a whole ring of frames. Older slots give a short history.
+ * <p>
+ * Writes are plain memory stores, so publishing is cheap enough for the
+ * render thread. One thread publishes.
+ */
+public class SharedMemoryHandPublisher implements HandOutputSink {
+    static final int MAGIC = 0x3153484B;
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 64;
+    static final int FRAME_COUNT_OFFSET = 24;
+    static final int PLAYERS_OFFSET = 48;
+    static final int PLAYER_BYTES = 2 * Integer.BYTES + 14 * Float.BYTES;
+    static final int SLOT_BYTES = (PLAYERS_OFFSET + SkeletonFrame.BODY_COUNT * PLAYER_BYTES + 63) & ~63;
+
+    static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private final Path path;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int ringSize;
+    private long frames;
+
+    /**
+     * Creates the shared file, replacing any existing one.
+     *
+     * @param path The shared file, for example on a tmpfs such as /dev/shm.
+     * @param ringSize The number of frames kept, at least 2.
+     */
+    public SharedMemoryHandPublisher(Path path, int ringSize) {
+        if (ringSize < 2) {
+            throw new IllegalArgumentException("Invalid ring size: " + ringSize);
+        }
+        this.path = path;
+        this.ringSize = ringSize;
+        try {
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            this.buffer = this.channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES + (long) ringSize * SLOT_BYTES);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to create shared memory file " + path, e);
+        }
+
+        this.buffer.order(ByteOrder.LITTLE_ENDIAN);
+        this.buffer.putInt(4, VERSION);
+        this.buffer.putInt(8, SLOT_BYTES);
+        this.buffer.putInt(12, ringSize);
+        this.buffer.putInt(16, SkeletonFrame.BODY_COUNT);
+        this.buffer.putInt(20, PLAYER_BYTES);
+        LONGS.setRelease(this.buffer, FRAME_COUNT_OFFSET, 0L);
+        // Readers check the magic last, once the header is complete.
+        VarHandle.releaseFence();
+        this.buffer.putInt(0, MAGIC);
+    }
+
+    @Override
+    public void write(HandSample[] batch, int count) {
+        if (count == 0) {
+            publish(batch, 0, 0);
+            return;
+        }
+        int start = 0;
+        while (start < count) {
+            int end = HandSample.frameEnd(batch, start, count);
+            publish(batch, start, end);
+            start = end;
+        }
+    }
+
+    /**
+     * Publishes the samples of one frame.
+     *
+     * @param samples The samples.
+     * @param from The index of the first sample.
+     * @param to The index after the last sample, at most BODY_COUNT after from.
+     */
+    public void publish(HandSample[] samples, int from, int to) {
+        if (to - from > SkeletonFrame.BODY_COUNT || to < from) {
+            throw new IllegalArgumentException("Invalid frame size: " + (to - from));
+        }
+        long frame = frames;
+        int slot = HEADER_BYTES + (int) (frame % ringSize) * SLOT_BYTES;
+
+        long lock = (long) LONGS.getOpaque(buffer, slot);
+        LONGS.setOpaque(buffer, slot, lock + 1);
+        VarHandle.storeStoreFence();
+
+        buffer.putLong(slot + 8, frame);
+        buffer.putLong(slot + 16, to > from ? samples[from].getSequence() : 0);
+        buffer.putLong(slot + 24, to > from ? samples[from].getTimestamp() : 0);
+        buffer.putLong(slot + 32, System.nanoTime());
+        buffer.putInt(slot + 40, to - from);
+        int offset = slot + PLAYERS_OFFSET;
+        for (int i = from; i < to; i++, offset += PLAYER_BYTES) {
+            HandSample sample = samples[i];
+            buffer.putInt(offset, sample.getPlayerId());
+            buffer.putInt(offset + 4, sample.getBody());
+            buffer.putFloat(offset + 8, sample.getLeftX());
+            buffer.putFloat(offset + 12, sample.getLeftY());
+            buffer.putFloat(offset + 16, sample.getLeftCorrectedX());
+            buffer.putFloat(offset + 20, sample.getLeftCorrectedY());
+            buffer.putFloat(offset + 24, sample.getRightX());
+            buffer.putFloat(offset + 28, sample.getRightY());
+            buffer.putFloat(offset + 32, sample.getRightCorrectedX());
+            buffer.putFloat(offset + 36, sample.getRightCorrectedY());
+            buffer.putFloat(offset + 40, sample.getShoulderLeftX());
+            buffer.putFloat(offset + 44, sample.getShoulderLeftY());
+            buffer.putFloat(offset + 48, sample.getShoulderLeftZ());
+            buffer.putFloat(offset + 52, sample.getShoulderRightX());
+            buffer.putFloat(offset + 56, sample.getShoulderRightY());
+            buffer.putFloat(offset + 60, sample.getShoulderRightZ());
+        }
+
+        LONGS.setRelease(buffer, slot, lock + 2);
+        frames = frame + 1;
+        LONGS.setRelease(buffer, FRAME_COUNT_OFFSET, frames);
+    }
+
+    /**
+     * @return The number of frames published.
+     */
+    public long getFrameCount() {
+        return frames;
+    }
+
+    @Override
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to close shared memory file " + path, e);
+        }
+    }
+}
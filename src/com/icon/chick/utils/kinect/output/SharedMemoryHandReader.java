@@ -0,0 +1,166 @@
+/**
+ * Project: ICON Lab - Kinect Hand to Shoulder Tracking
+ * Author: Eduardo Monteiro @ ICON LAB
+ * License: MIT License
+ */
+
+package com.icon.chick.utils.kinect.output;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static com.icon.chick.utils.kinect.output.SharedMemoryHandPublisher.*;
+
+/**
+ * Reference reader of the file written by SharedMemoryHandPublisher, following
+ * the seqlock protocol described there. Reads never block the publisher and
+ * never return a torn frame.
+ */
+public class SharedMemoryHandReader implements Closeable {
+    private final Path path;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int ringSize;
+
+    private long frameIndex = -1;
+    private long publishTime;
+    private long retries;
+
+    /**
+     * Opens a shared file written by a SharedMemoryHandPublisher.
+     *
+     * @param path The shared file.
+     */
+    public SharedMemoryHandReader(Path path) {
+        this.path = path;
+        try {
+            this.channel = FileChannel.open(path, StandardOpenOption.READ);
+            this.buffer = this.channel.map(FileChannel.MapMode.READ_ONLY, 0, this.channel.size());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open shared memory file " + path, e);
+        }
+        this.buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+        if (this.buffer.capacity() < HEADER_BYTES || this.buffer.getInt(0) != MAGIC) {
+            throw new IllegalArgumentException("Not a shared hand file: " + path);
+        }
+        VarHandle.acquireFence();
+        if (this.buffer.getInt(4) != VERSION || this.buffer.getInt(8) != SLOT_BYTES || this.buffer.getInt(20) != PLAYER_BYTES) {
+            throw new IllegalArgumentException("Unsupported shared hand file layout: " + path);
+        }
+        this.ringSize = this.buffer.getInt(12);
+        if (this.ringSize < 2 || this.buffer.capacity() < HEADER_BYTES + (long) this.ringSize * SLOT_BYTES) {
+            throw new IllegalArgumentException("Truncated shared hand file: " + path);
+        }
+    }
+
+    /**
+     * @return The number of frames published so far.
+     */
+    public long getPublishedCount() {
+        return (long) LONGS.getAcquire(buffer, FRAME_COUNT_OFFSET);
+    }
+
+    /**
+     * Reads the latest published frame.
+     *
+     * @param samples The samples receiving the players, BODY_COUNT of them.
+     * @return The number of players, -1 if no frame was published yet.
+     */
+    public int readLatest(HandSample[] samples) {
+        while (true) {
+            long published = getPublishedCount();
+            if (published == 0) {
+                return -1;
+            }
+            int count = read(published - 1, samples);
+            if (count >= 0) {
+                return count;
+            }
+            // The publisher lapped this reader; read the new latest frame.
+        }
+    }
+
+    /**
+     * Reads a frame of the recent history.
+     *
+     * @param frame The frame index, from 0 for the first published frame.
+     * @param samples The samples receiving the players, BODY_COUNT of them.
+     * @return The number of players, -1 if the frame is not in the ring.
+     */
+    public int read(long frame, HandSample[] samples) {
+        int slot = HEADER_BYTES + (int) (frame % ringSize) * SLOT_BYTES;
+        while (true) {
+            long lock = (long) LONGS.getAcquire(buffer, slot);
+            if ((lock & 1) != 0) {
+                retries++;
+                Thread.onSpinWait();
+                continue;
+            }
+
+            long index = buffer.getLong(slot + 8);
+            long sequence = buffer.getLong(slot + 16);
+            long timestamp = buffer.getLong(slot + 24);
+            long published = buffer.getLong(slot + 32);
+            int count = Math.min(Math.max(buffer.getInt(slot + 40), 0), samples.length);
+            int offset = slot + PLAYERS_OFFSET;
+            for (int i = 0; i < count; i++, offset += PLAYER_BYTES) {
+                HandSample sample = samples[i];
+                sample.setFrame(buffer.getInt(offset), buffer.getInt(offset + 4), sequence, timestamp);
+                sample.setLeft(buffer.getFloat(offset + 8), buffer.getFloat(offset + 12), buffer.getFloat(offset + 16), buffer.getFloat(offset + 20));
+                sample.setRight(buffer.getFloat(offset + 24), buffer.getFloat(offset + 28), buffer.getFloat(offset + 32), buffer.getFloat(offset + 36));
+                sample.setShoulders(buffer.getFloat(offset + 40), buffer.getFloat(offset + 44), buffer.getFloat(offset + 48),
+                        buffer.getFloat(offset + 52), buffer.getFloat(offset + 56), buffer.getFloat(offset + 60));
+            }
+
+            VarHandle.loadLoadFence();
+            if ((long) LONGS.getOpaque(buffer, slot) != lock) {
+                retries++;
+                continue;
+            }
+            if (index != frame) {
+                return -1;
+            }
+            this.frameIndex = index;
+            this.publishTime = published;
+            return count;
+        }
+    }
+
+    /**
+     * @return The index of the last frame read, -1 before the first read.
+     */
+    public long getFrameIndex() {
+        return frameIndex;
+    }
+
+    /**
+     * @return The publish time of the last frame read, in System.nanoTime of the publisher.
+     */
+    public long getPublishTime() {
+        return publishTime;
+    }
+
+    /**
+     * @return The number of reads retried because the publisher was writing the slot.
+     */
+    public long getRetryCount() {
+        return retries;
+    }
+
+    @Override
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to close shared memory file " + path, e);
+        }
+    }
+}
@@ -0,0 +1,189 @@
+/**
+ * Project: ICON Lab - Kinect Hand to Shoulder Tracking
+ * Author: Eduardo Monteiro @ ICON LAB
+ * License: MIT License
+ */
+
+package com.icon.chick.utils.kinect.source;
+
+import com.icon.chick.utils.kinect.SkeletonFrame;
+import processing.core.PConstants;
+import processing.core.PImage;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * SkeletonSource decorator moving sensor reads off the animation thread.
+ * A dedicated acquisition thread polls the wrapped source and hands frames
+ * (and optionally color images) over through lock-free triple buffers, so a
+ * slow render frame never delays sensor reads and a slow sensor read never
+ * stalls rendering. Reads return the latest completed frame without blocking.
+ * Only frames with a new sequence number are handed over.
+ * <p>
+ * A read of the wrapped source that throws is counted, the first failure is
+ * logged, and the thread keeps polling after a pause: read() serves the last
+ * acquired frame until the source recovers.
+ */
+public class AcquisitionSkeletonSource implements SkeletonSource, Runnable {
+    private static final long COLOR_PERIOD = 1_000_000_000L / 30;
+    private static final long ERROR_PAUSE = 100_000_000L;
+
+    private final SkeletonSource source;
+    private final long pollInterval;
+    private final boolean captureColor;
+    private final TripleBuffer<SkeletonFrame> frames = new TripleBuffer<>(SkeletonFrame::new);
+    private TripleBuffer<int[]> colors;
+
+    private volatile boolean running;
+    private volatile boolean hasFrame;
+    // Written by the acquisition thread only.
+    private volatile long acquiredFrames;
+    private volatile long droppedFrames;
+    private volatile long errors;
+    private Thread thread;
+    private PImage colorImage;
+
+    /**
+     * Constructor for the AcquisitionSkeletonSource class.
+     *
+     * @param source The source to read on the acquisition thread.
+     * @param pollInterval The delay between two skeleton reads, in nanoseconds.
+     * @param captureColor Whether to also acquire the color image of the source.
+     */
+    public AcquisitionSkeletonSource(SkeletonSource source, long pollInterval, boolean captureColor) {
+        this.source = source;
+        this.pollInterval = pollInterval;
+        this.captureColor = captureColor;
+    }
+
+    @Override
+    public void start() {
+        this.source.start();
+        if (this.captureColor) {
+            int size = this.source.getWidth() * this.source.getHeight();
+            this.colors = new TripleBuffer<>(() -> new int[size]);
+            this.colorImage = new PImage(this.source.getWidth(), this.source.getHeight(), PConstants.ARGB);
+        }
+
+        this.running = true;
+        this.thread = new Thread(this, "kinect-acquisition");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Acquisition loop, reading the wrapped source at the poll interval.
+     */
+    @Override
+    public void run() {
+        long lastColor = 0;
+        long lastSequence = -1;
+        while (this.running) {
+            long start = System.nanoTime();
+            long interval = this.pollInterval;
+
+            try {
+                SkeletonFrame frame = this.frames.getWriteBuffer();
+                if (this.source.read(frame) && frame.getSequence() != lastSequence) {
+                    lastSequence = frame.getSequence();
+                    if (this.frames.publish()) {
+                        // The previous frame was never read by the render thread.
+                        this.droppedFrames++;
+                    }
+                    this.acquiredFrames++;
+                    this.hasFrame = true;
+                }
+
+                if (this.colors != null && start - lastColor >= COLOR_PERIOD) {
+                    PImage image = this.source.getColorImage();
+                    if (image != null && image.pixels != null) {
+                        int[] pixels = this.colors.getWriteBuffer();
+                        System.arraycopy(image.pixels, 0, pixels, 0, Math.min(pixels.length, image.pixels.length));
+                        this.colors.publish();
+                    }
+                    lastColor = start;
+                }
+            } catch (RuntimeException e) {
+                if (this.errors++ == 0) {
+                    System.err.println("SENSOR READ FAILED, RETRYING: " + e);
+                    e.printStackTrace();
+                }
+                interval = Math.max(interval, ERROR_PAUSE);
+            }
+
+            long remaining = interval - (System.nanoTime() - start);
+            if (remaining > 0) {
+                LockSupport.parkNanos(remaining);
+            }
+        }
+    }
+
+    /**
+     * @return The number of new frames acquired from the wrapped source.
+     */
+    public long getAcquiredFrameCount() {
+        return this.acquiredFrames;
+    }
+
+    /**
+     * @return The number of acquired frames replaced by a newer one before being read.
+     */
+    public long getDroppedFrameCount() {
+        return this.droppedFrames;
+    }
+
+    /**
+     * @return The number of reads of the wrapped source that threw an exception.
+     */
+    public long getErrorCount() {
+        return this.errors;
+    }
+
+    @Override
+    public boolean read(SkeletonFrame frame) {
+        if (!this.hasFrame) {
+            return false;
+        }
+        this.frames.update();
+        SkeletonFrame latest = this.frames.getReadBuffer();
+        frame.set(latest.data, latest.getSequence(), latest.getTimestamp());
+        return true;
+    }
+
+    @Override
+    public int getWidth() {
+        return this.source.getWidth();
+    }
+
+    @Override
+    public int getHeight() {
+        return this.source.getHeight();
+    }
+
+    @Override
+    public PImage getColorImage() {
+        if (this.colors == null) {
+            return null;
+        }
+        if (this.colors.update()) {
+            this.colorImage.loadPixels();
+            System.arraycopy(this.colors.getReadBuffer(), 0, this.colorImage.pixels, 0, this.colorImage.pixels.length);
+            this.colorImage.updatePixels();
+        }
+        return this.colorImage;
+    }
+
+    @Override
+    public void stop() {
+        this.running = false;
+        if (this.thread != null) {
+            try {
+                this.thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            this.thread = null;
+        }
+        this.source.stop();
+    }
+}
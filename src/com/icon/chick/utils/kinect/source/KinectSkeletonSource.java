@@ -0,0 +1,98 @@
+/**
+ * Project: ICON Lab - Kinect Hand to Shoulder Tracking
+ * Author: Eduardo Monteiro @ ICON LAB
+ * License: MIT License
+ */
+
+package com.icon.chick.utils.kinect.source;
+
+import com.icon.chick.utils.kinect.SkeletonFrame;
+import KinectPV2.Device;
+import KinectPV2.KinectPV2;
+import processing.core.PApplet;
+import processing.core.PImage;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Arrays;
+
+/**
+ * SkeletonSource backed by the Kinect v2 sensor through KinectPV2.
+ * Frames are read as the raw color-mapped skeleton array, skipping the
+ * KSkeleton object decoding done by KinectPV2.getSkeletonColorMap().
+ * The native layer always returns its latest frame, so the sequence number
+ * and timestamp only advance when the skeleton data actually changes.
+ */
+public class KinectSkeletonSource implements SkeletonSource {
+    private final KinectPV2 kinect;
+    private final MethodHandle getSkeletonColor;
+    private final float[] lastData = new float[SkeletonFrame.SIZE];
+    private long sequence;
+    private long timestamp;
+
+    /**
+     * Constructor for the KinectSkeletonSource class.
+     *
+     * @param app The Processing application owning the sensor.
+     */
+    public KinectSkeletonSource(PApplet app) {
+        this.kinect = new KinectPV2(app);
+        this.kinect.enableSkeletonColorMap(true);
+        this.kinect.enableColorImg(true);
+
+        // KinectPV2 only exposes decoded KSkeleton lists, the packed array is private.
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(Device.class, MethodHandles.lookup());
+            this.getSkeletonColor = lookup.findVirtual(Device.class, "jniGetSkeletonColor", MethodType.methodType(float[].class));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("KinectPV2 skeleton data is not accessible", e);
+        }
+    }
+
+    @Override
+    public void start() {
+        this.kinect.init();
+    }
+
+    @Override
+    public boolean read(SkeletonFrame frame) {
+        float[] rawData;
+        try {
+            rawData = (float[]) this.getSkeletonColor.invokeExact((Device) this.kinect);
+        } catch (Throwable e) {
+            throw new IllegalStateException("Failed to read skeleton data", e);
+        }
+        if (rawData == null || rawData.length < SkeletonFrame.SIZE) {
+            return false;
+        }
+
+        if (this.sequence == 0 || !Arrays.equals(rawData, 0, SkeletonFrame.SIZE, this.lastData, 0, SkeletonFrame.SIZE)) {
+            System.arraycopy(rawData, 0, this.lastData, 0, SkeletonFrame.SIZE);
+            this.sequence++;
+            this.timestamp = System.nanoTime();
+        }
+        frame.set(rawData, this.sequence, this.timestamp);
+        return true;
+    }
+
+    @Override
+    public int getWidth() {
+        return KinectPV2.WIDTHColor;
+    }
+
+    @Override
+    public int getHeight() {
+        return KinectPV2.HEIGHTColor;
+    }
+
+    @Override
+    public PImage getColorImage() {
+        return this.kinect.getColorImage();
+    }
+
+    @Override
+    public void stop() {
+        this.kinect.dispose();
+    }
+}
@@ -0,0 +1,101 @@
+/**
+ * Project: ICON Lab - Kinect Hand to Shoulder Tracking
+ * Author: Eduardo Monteiro @ ICON LAB
+ * License: MIT License
+ */
+
+package com.icon.chick.utils.kinect.source;
+
+import com.icon.chick.utils.kinect.SkeletonFrame;
+import processing.core.PImage;
+
+/**
+ * SkeletonSource decorator releasing the frames of another source at a fixed
+ * rate, like the sensor does. The wrapped source must return a new frame on
+ * every read, such as SyntheticSkeletonSource or a RecordedSkeletonSource at
+ * AS_FAST_AS_POSSIBLE.
+ * <p>
+ * Frame n is due n - 1 periods after start(); each read returns the latest due
+ * frame, so a reader falling behind skips frames. Frames are numbered from 1
+ * and stamped with their due time on the System.nanoTime() clock, the moment
+ * the sensor would have delivered them.
+ */
+public class PacedSkeletonSource implements SkeletonSource {
+    private final SkeletonSource source;
+    private final long period;
+    private final SkeletonFrame current = new SkeletonFrame();
+    private long startTime;
+    // Written by the reading thread, read by anyone.
+    private volatile long released;
+
+    /**
+     * Constructor for the PacedSkeletonSource class.
+     *
+     * @param source The source of the frames, returning a new frame on every read.
+     * @param frameRate The number of frames released per second.
+     */
+    public PacedSkeletonSource(SkeletonSource source, float frameRate) {
+        if (!(frameRate > 0)) {
+            throw new IllegalArgumentException("Invalid frame rate: " + frameRate);
+        }
+        this.source = source;
+        this.period = (long) (1_000_000_000d / frameRate);
+    }
+
+    @Override
+    public void start() {
+        this.source.start();
+        this.released = 0;
+        this.startTime = System.nanoTime();
+    }
+
+    /**
+     * @return The number of frames released since start(), whether they were read or skipped.
+     */
+    public long getReleasedCount() {
+        return this.released;
+    }
+
+    /**
+     * @return The time between two frames, in nanoseconds.
+     */
+    public long getPeriod() {
+        return this.period;
+    }
+
+    @Override
+    public boolean read(SkeletonFrame frame) {
+        long due = (System.nanoTime() - this.startTime) / this.period + 1;
+        while (this.released < due) {
+            if (!this.source.read(this.current)) {
+                break;
+            }
+            this.released++;
+        }
+        if (this.released == 0) {
+            return false;
+        }
+        frame.set(this.current.data, this.released, this.startTime + (this.released - 1) * this.period);
+        return true;
+    }
+
+    @Override
+    public int getWidth() {
+        return this.source.getWidth();
+    }
+
+    @Override
+    public int getHeight() {
+        return this.source.getHeight();
+    }
+
+    @Override
+    public PImage getColorImage() {
+        return this.source.getColorImage();
+    }
+
+    @Override
+    public void stop() {
+        this.source.stop();
+    }
+}
@@ -0,0 +1,163 @@
+/**
+ * Project: ICON Lab - Kinect Hand to Shoulder Tracking
+ * Author: Eduardo Monteiro @ ICON LAB
+ * License: MIT License
+ */
+
+package com.icon.chick.utils.kinect.source;
+
+import com.icon.chick.utils.kinect.SkeletonFrame;
+
+import java.nio.file.Path;
+
+/**
+ * SkeletonSource replaying a SkeletonRecording.
+ * <p>
+ * With a finite speed, frames are released on the recorded timeline scaled by
+ * the speed (1 is real time), and each read returns the latest frame due, like
+ * the sensor does. With AS_FAST_AS_POSSIBLE, every read returns the next frame.
+ * Replayed frames keep their recorded data bit-exact; their sequence numbers keep
+ * increasing across loops and their timestamps are moved onto the replay clock.
+ */
+public class RecordedSkeletonSource implements SkeletonSource {
+    /**
+     * Replay speed returning a new frame on every read.
+     */
+    public static final double AS_FAST_AS_POSSIBLE = Double.POSITIVE_INFINITY;
+
+    private static final long DEFAULT_FRAME_PERIOD = 1_000_000_000L / 30;
+
+    private final Path path;
+    private final double speed;
+    private final boolean loop;
+    private SkeletonRecording recording;
+
+    private long frameCount;
+    private long firstTimestamp;
+    private long duration;
+    private long startTime;
+    private long position;
+    private long loops;
+
+    /**
+     * Constructor for the RecordedSkeletonSource class.
+     *
+     * @param path The recording to replay.
+     * @param speed The replay speed, 1 for real time or AS_FAST_AS_POSSIBLE.
+     * @param loop Whether to restart from the first frame at the end of the recording.
+     */
+    public RecordedSkeletonSource(Path path, double speed, boolean loop) {
+        if (!(speed > 0)) {
+            throw new IllegalArgumentException("Invalid replay speed: " + speed);
+        }
+        this.path = path;
+        this.speed = speed;
+        this.loop = loop;
+    }
+
+    @Override
+    public void start() {
+        this.recording = new SkeletonRecording(this.path);
+        this.frameCount = this.recording.getFrameCount();
+        if (this.frameCount > 0) {
+            this.firstTimestamp = this.recording.getTimestamp(0);
+            long last = this.recording.getTimestamp(this.frameCount - 1);
+            // One mean frame period between the last frame and the next loop.
+            this.duration = this.frameCount > 1
+                    ? (last - this.firstTimestamp) * this.frameCount / (this.frameCount - 1)
+                    : DEFAULT_FRAME_PERIOD;
+            this.duration = Math.max(this.duration, DEFAULT_FRAME_PERIOD);
+        }
+        seek(0);
+    }
+
+    /**
+     * Restarts the replay at a given frame.
+     *
+     * @param index The frame index.
+     */
+    public void seek(long index) {
+        this.position = index;
+        this.loops = 0;
+        this.startTime = System.nanoTime();
+        if (this.frameCount > 0 && index > 0) {
+            this.startTime -= (long) ((this.recording.getTimestamp(index) - this.firstTimestamp) / this.speed);
+        }
+    }
+
+    /**
+     * @return The number of frames in the recording.
+     */
+    public long getFrameCount() {
+        return this.frameCount;
+    }
+
+    @Override
+    public boolean read(SkeletonFrame frame) {
+        if (this.frameCount == 0) {
+            return false;
+        }
+
+        long now = System.nanoTime();
+        if (this.speed == AS_FAST_AS_POSSIBLE) {
+            if (this.position >= this.frameCount && !nextLoop()) {
+                return false;
+            }
+            this.recording.read(this.position, frame);
+            frame.setHeader(this.loops * this.frameCount + ++this.position, now);
+            return true;
+        }
+
+        // Advance to the latest frame due on the scaled replay clock.
+        long elapsed = (long) ((now - this.startTime) * this.speed) - this.loops * this.duration;
+        while (true) {
+            if (this.position >= this.frameCount) {
+                if (elapsed < this.duration || !nextLoop()) {
+                    break;
+                }
+                elapsed -= this.duration;
+                continue;
+            }
+            if (this.recording.getTimestamp(this.position) - this.firstTimestamp > elapsed) {
+                break;
+            }
+            this.position++;
+        }
+
+        long index = this.position - 1;
+        if (index < 0) {
+            return false;
+        }
+        this.recording.read(index, frame);
+        long due = this.startTime + (long) ((this.loops * this.duration + frame.getTimestamp() - this.firstTimestamp) / this.speed);
+        frame.setHeader(this.loops * this.frameCount + this.position, due);
+        return true;
+    }
+
+    private boolean nextLoop() {
+        if (!this.loop) {
+            return false;
+        }
+        this.loops++;
+        this.position = 0;
+        return true;
+    }
+
+    @Override
+    public int getWidth() {
+        return this.recording.getWidth();
+    }
+
+    @Override
+    public int getHeight() {
+        return this.recording.getHeight();
+    }
+
+    @Override
+    public void stop() {
+        if (this.recording != null) {
+            this.recording.close();
+            this.recording = null;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+/**
+ * Project: ICON Lab - Kinect Hand to Shoulder Tracking
+ * Author: Eduardo Monteiro @ ICON LAB
+ * License: MIT License
+ */
+
+package com.icon.chick.utils.kinect.source;
+
+import com.icon.chick.utils.kinect.SkeletonFrame;
+import processing.core.PImage;
+
+import java.nio.file.Path;
+
+/**
+ * SkeletonSource decorator recording every new frame read from another source
+ * into a SkeletonRecording file, to capture sessions for later replay.
+ */
+public class RecordingSkeletonSource implements SkeletonSource {
+    private final SkeletonSource source;
+    private final Path path;
+    private SkeletonRecorder recorder;
+    private long lastSequence = -1;
+
+    /**
+     * Constructor for the RecordingSkeletonSource class.
+     *
+     * @param source The source to record.
+     * @param path The recording file to create.
+     */
+    public RecordingSkeletonSource(SkeletonSource source, Path path) {
+        this.source = source;
+        this.path = path;
+    }
+
+    @Override
+    public void start() {
+        this.source.start();
+        this.recorder = new SkeletonRecorder(this.path, this.source.getWidth(), this.source.getHeight());
+    }
+
+    @Override
+    public boolean read(SkeletonFrame frame) {
+        if (!this.source.read(frame)) {
+            return false;
+        }
+        if (frame.getSequence() != this.lastSequence) {
+            this.recorder.append(frame);
+            this.lastSequence = frame.getSequence();
+        }
+        return true;
+    }
+
+    @Override
+    public int getWidth() {
+        return this.source.getWidth();
+    }
+
+    @Override
+    public int getHeight() {
+        return this.source.getHeight();
+    }
+
+    @Override
+    public PImage getColorImage() {
+        return this.source.getColorImage();
+    }
+
+    @Override
+    public void stop() {
+        this.source.stop();
+        if (this.recorder != null) {
+            this.recorder.close();
+            this.recorder = null;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+/**
+ * Project: ICON Lab - Kinect Hand to Shoulder Tracking
+ * Author: Eduardo Monteiro @ ICON LAB
+ * License: MIT License
+ */
+
+package com.icon.chick.utils.kinect.source;
+
+import com.icon.chick.utils.kinect.SkeletonFrame;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static com.icon.chick.utils.kinect.source.SkeletonRecording.*;
+
+/**
+ * The SkeletonRecorder class appends skeleton frames to a memory-mapped
+ * recording (see SkeletonRecording for the format). The file grows one mapped
+ * segment at a time, and the header frame count is updated after each record,
+ * so a recording stays readable even if the application is killed.
+ */
+public class SkeletonRecorder implements Closeable {
+    private final Path path;
+    private final FileChannel channel;
+    private final MappedByteBuffer header;
+
+    private long frameCount;
+    private int segmentIndex = -1;
+    private MappedByteBuffer segment;
+    private FloatBuffer segmentFloats;
+
+    /**
+     * Creates a new recording, replacing any existing file.
+     *
+     * @param path The recording file.
+     * @param width The width of the coordinate space of the recorded frames.
+     * @param height The height of the coordinate space of the recorded frames.
+     */
+    public SkeletonRecorder(Path path, int width, int height) {
+        this.path = path;
+        try {
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            this.header = this.channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to create recording " + path, e);
+        }
+
+        this.header.order(ByteOrder.LITTLE_ENDIAN);
+        this.header.putInt(0, MAGIC);
+        this.header.putInt(4, VERSION);
+        this.header.putInt(8, SkeletonFrame.BODY_COUNT);
+        this.header.putInt(12, SkeletonFrame.SIZE);
+        this.header.putInt(16, RECORD_STRIDE);
+        this.header.putInt(20, width);
+        this.header.putInt(24, height);
+        this.header.putLong(FRAME_COUNT_OFFSET, 0);
+    }
+
+    /**
+     * Appends a frame with its sequence number and capture timestamp.
+     *
+     * @param frame The frame to record.
+     */
+    public void append(SkeletonFrame frame) {
+        int segmentIndex = (int) (this.frameCount / FRAMES_PER_SEGMENT);
+        if (segmentIndex != this.segmentIndex) {
+            try {
+                this.segment = this.channel.map(FileChannel.MapMode.READ_WRITE, HEADER_BYTES + segmentIndex * SEGMENT_BYTES, SEGMENT_BYTES);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to grow recording " + this.path, e);
+            }
+            this.segment.order(ByteOrder.LITTLE_ENDIAN);
+            this.segmentFloats = this.segment.asFloatBuffer();
+            this.segmentIndex = segmentIndex;
+        }
+
+        int position = (int) (this.frameCount % FRAMES_PER_SEGMENT) * RECORD_STRIDE;
+        this.segment.putLong(position, frame.getSequence());
+        this.segment.putLong(position + Long.BYTES, frame.getTimestamp());
+        this.segmentFloats.put((position + RECORD_HEADER_BYTES) / Float.BYTES, frame.data, 0, SkeletonFrame.SIZE);
+
+        this.header.putLong(FRAME_COUNT_OFFSET, ++this.frameCount);
+    }
+
+    /**
+     * @return The number of frames recorded so far.
+     */
+    public long getFrameCount() {
+        return this.frameCount;
+    }
+
+    /**
+     * Flushes the recording to disk and closes it. The file keeps its last
+     * segment padding; readers rely on the header frame count.
+     */
+    @Override
+    public void close() {
+        try {
+            if (this.segment != null) {
+                this.segment.force();
+            }
+            this.header.force();
+            this.channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to close recording " + this.path, e);
+        }
+    }
+}
@@ -0,0 +1,165 @@
+/**
+ * Project: ICON Lab - Kinect Hand to Shoulder Tracking
+ * Author: Eduardo Monteiro @ ICON LAB
+ * License: MIT License
+ */
+
+package com.icon.chick.utils.kinect.source;
+
+import com.icon.chick.utils.kinect.SkeletonFrame;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The SkeletonRecording class reads a memory-mapped skeleton recording.
+ * <p>
+ * A recording is a 64 byte little-endian header followed by fixed-stride records:
+ * <pre>
+ * header: int magic, int version, int bodyCount, int floatsPerFrame,
+ *         int recordStride, int width, int height, int reserved,
+ *         long frameCount, 24 reserved bytes
+ * record: long sequence, long captureTimestamp (ns), float[floatsPerFrame] frame
+ * </pre>
+ * Record i starts at HEADER_BYTES + i * RECORD_STRIDE, so any frame can be read
+ * without scanning the file. The file is mapped in segments of FRAMES_PER_SEGMENT
+ * records, which keeps recordings larger than 2 GB addressable. Each segment
+ * also maps the first record of the next one: a replay reads a frame and looks
+ * up the timestamp of the frame after it, and both then resolve to the same
+ * segment instead of remapping two segments in turn at every boundary.
+ */
+public class SkeletonRecording implements Closeable {
+    static final int MAGIC = 0x534B4C31; // "SKL1"
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 64;
+    static final int RECORD_HEADER_BYTES = 2 * Long.BYTES;
+    static final int RECORD_STRIDE = RECORD_HEADER_BYTES + SkeletonFrame.SIZE * Float.BYTES;
+    static final int FRAMES_PER_SEGMENT = 1024;
+    static final long SEGMENT_BYTES = (long) FRAMES_PER_SEGMENT * RECORD_STRIDE;
+    static final int FRAME_COUNT_OFFSET = 32;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final ByteBuffer header;
+    private final int width;
+    private final int height;
+
+    // The records [segmentFirst, segmentEnd) of the mapped segment.
+    private long segmentFirst;
+    private long segmentEnd;
+    private MappedByteBuffer segment;
+    private FloatBuffer segmentFloats;
+
+    /**
+     * Opens a recording for reading.
+     *
+     * @param path The recording file.
+     */
+    public SkeletonRecording(Path path) {
+        this.path = path;
+        try {
+            this.channel = FileChannel.open(path, StandardOpenOption.READ);
+            this.header = this.channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open recording " + path, e);
+        }
+
+        if (this.header.getInt(0) != MAGIC || this.header.getInt(4) != VERSION) {
+            throw new IllegalArgumentException("Not a skeleton recording: " + path);
+        }
+        if (this.header.getInt(12) != SkeletonFrame.SIZE || this.header.getInt(16) != RECORD_STRIDE) {
+            throw new IllegalArgumentException("Unsupported frame layout in recording: " + path);
+        }
+        this.width = this.header.getInt(20);
+        this.height = this.header.getInt(24);
+    }
+
+    /**
+     * @return The number of frames in the recording.
+     */
+    public long getFrameCount() {
+        return this.header.getLong(FRAME_COUNT_OFFSET);
+    }
+
+    /**
+     * @return The width of the coordinate space the frames were captured in.
+     */
+    public int getWidth() {
+        return this.width;
+    }
+
+    /**
+     * @return The height of the coordinate space the frames were captured in.
+     */
+    public int getHeight() {
+        return this.height;
+    }
+
+    /**
+     * Returns the capture timestamp of a frame without reading the frame data.
+     *
+     * @param index The frame index.
+     * @return The capture timestamp in nanoseconds.
+     */
+    public long getTimestamp(long index) {
+        int position = mapRecord(index);
+        return this.segment.getLong(position + Long.BYTES);
+    }
+
+    /**
+     * Reads a frame, keeping its recorded sequence number and timestamp.
+     *
+     * @param index The frame index.
+     * @param frame The frame to fill.
+     */
+    public void read(long index, SkeletonFrame frame) {
+        int position = mapRecord(index);
+        this.segmentFloats.get((position + RECORD_HEADER_BYTES) / Float.BYTES, frame.data, 0, SkeletonFrame.SIZE);
+        frame.setHeader(this.segment.getLong(position), this.segment.getLong(position + Long.BYTES));
+    }
+
+    /**
+     * Maps the segment containing a record, unless the mapped segment holds it.
+     *
+     * @param index The frame index.
+     * @return The position of the record in the mapped segment.
+     */
+    private int mapRecord(long index) {
+        if (index < 0 || index >= getFrameCount()) {
+            throw new IndexOutOfBoundsException("Frame " + index + " of " + getFrameCount());
+        }
+
+        if (this.segment == null || index < this.segmentFirst || index >= this.segmentEnd) {
+            long first = index / FRAMES_PER_SEGMENT * FRAMES_PER_SEGMENT;
+            long start = HEADER_BYTES + first * RECORD_STRIDE;
+            try {
+                long size = Math.min(SEGMENT_BYTES + RECORD_STRIDE, this.channel.size() - start);
+                this.segment = this.channel.map(FileChannel.MapMode.READ_ONLY, start, size);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to map recording " + this.path, e);
+            }
+            this.segment.order(ByteOrder.LITTLE_ENDIAN);
+            this.segmentFloats = this.segment.asFloatBuffer();
+            this.segmentFirst = first;
+            this.segmentEnd = first + this.segment.capacity() / RECORD_STRIDE;
+        }
+        return (int) (index - this.segmentFirst) * RECORD_STRIDE;
+    }
+
+    @Override
+    public void close() {
+        try {
+            this.channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to close recording " + this.path, e);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+/**
+ * Project: ICON Lab - Kinect Hand to Shoulder Tracking
+ * Author: Eduardo Monteiro @ ICON LAB
+ * License: MIT License
+ */
+
+package com.icon.chick.utils.kinect.source;
+
+import com.icon.chick.utils.kinect.SkeletonFrame;
+import processing.core.PImage;
+
+/**
+ * A SkeletonSource supplies packed skeleton frames to the tracking pipeline,
+ * in the same layout as the KinectPV2 native skeleton arrays (see SkeletonFrame).
+ * Implementations exist for the Kinect sensor, for recorded sessions and for
+ * synthetic motion, so the pipeline can run without the sensor.
+ */
+public interface SkeletonSource {
+
+    /**
+     * Starts the source. Must be called before the first read.
+     */
+    void start();
+
+    /**
+     * Reads the latest skeleton frame into the given frame.
+     *
+     * @param frame The frame to fill.
+     * @return True if a frame was read, false if the source has no frame available, the frame left unchanged.
+     */
+    boolean read(SkeletonFrame frame);
+
+    /**
+     * @return The width of the coordinate space the joint positions are expressed in.
+     */
+    int getWidth();
+
+    /**
+     * @return The height of the coordinate space the joint positions are expressed in.
+     */
+    int getHeight();
+
+    /**
+     * Returns the color image matching the latest frame, if the source provides one.
+     *
+     * @return The color image, or null if the source has no image stream.
+     */
+    default PImage getColorImage() {
+        return null;
+    }
+
+    /**
+     * Stops the source and releases its resources.
+     */
+    void stop();
+}
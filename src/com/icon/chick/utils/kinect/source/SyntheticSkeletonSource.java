@@ -0,0 +1,143 @@
+/**
+ * Project: ICON Lab - Kinect Hand to Shoulder Tracking
+ * Author: Eduardo Monteiro @ ICON LAB
+ * License: MIT License
+ */
+
+package com.icon.chick.utils.kinect.source;
+
+import com.icon.chick.utils.kinect.SkeletonFrame;
+import KinectPV2.KinectPV2;
+
+/**
+ * SkeletonSource generating deterministic synthetic motion: standing bodies
+ * evenly spread across the color space, sweeping their arms in circles.
+ * Every read produces the next frame, so the caller sets the frame rate.
+ */
+public class SyntheticSkeletonSource implements SkeletonSource {
+    private static final float SHOULDER_HALF_WIDTH = 90;
+    private static final float ARM_LENGTH = 200;
+
+    // Standing pose relative to the spine shoulder, in color space pixels.
+    private static final float[][] POSE = new float[KinectPV2.JointType_Count][];
+
+    static {
+        POSE[KinectPV2.JointType_SpineBase] = new float[]{0, 330};
+        POSE[KinectPV2.JointType_SpineMid] = new float[]{0, 160};
+        POSE[KinectPV2.JointType_Neck] = new float[]{0, -40};
+        POSE[KinectPV2.JointType_Head] = new float[]{0, -110};
+        POSE[KinectPV2.JointType_ShoulderLeft] = new float[]{-SHOULDER_HALF_WIDTH, 10};
+        POSE[KinectPV2.JointType_ElbowLeft] = new float[]{-110, 140};
+        POSE[KinectPV2.JointType_WristLeft] = new float[]{-120, 250};
+        POSE[KinectPV2.JointType_HandLeft] = new float[]{-120, 280};
+        POSE[KinectPV2.JointType_ShoulderRight] = new float[]{SHOULDER_HALF_WIDTH, 10};
+        POSE[KinectPV2.JointType_ElbowRight] = new float[]{110, 140};
+        POSE[KinectPV2.JointType_WristRight] = new float[]{120, 250};
+        POSE[KinectPV2.JointType_HandRight] = new float[]{120, 280};
+        POSE[KinectPV2.JointType_HipLeft] = new float[]{-60, 340};
+        POSE[KinectPV2.JointType_KneeLeft] = new float[]{-65, 520};
+        POSE[KinectPV2.JointType_AnkleLeft] = new float[]{-70, 690};
+        POSE[KinectPV2.JointType_FootLeft] = new float[]{-90, 710};
+        POSE[KinectPV2.JointType_HipRight] = new float[]{60, 340};
+        POSE[KinectPV2.JointType_KneeRight] = new float[]{65, 520};
+        POSE[KinectPV2.JointType_AnkleRight] = new float[]{70, 690};
+        POSE[KinectPV2.JointType_FootRight] = new float[]{90, 710};
+        POSE[KinectPV2.JointType_SpineShoulder] = new float[]{0, 0};
+        POSE[KinectPV2.JointType_HandTipLeft] = new float[]{-120, 310};
+        POSE[KinectPV2.JointType_ThumbLeft] = new float[]{-105, 290};
+        POSE[KinectPV2.JointType_HandTipRight] = new float[]{120, 310};
+        POSE[KinectPV2.JointType_ThumbRight] = new float[]{105, 290};
+    }
+
+    private final int bodyCount;
+    private final float frameRate;
+    private final long startTime;
+    private long sequence;
+
+    /**
+     * Constructor for the SyntheticSkeletonSource class.
+     *
+     * @param bodyCount The number of tracked bodies, from 0 to BODY_COUNT.
+     * @param frameRate The nominal frame rate used to advance the motion and timestamps.
+     */
+    public SyntheticSkeletonSource(int bodyCount, float frameRate) {
+        if (bodyCount < 0 || bodyCount > SkeletonFrame.BODY_COUNT) {
+            throw new IllegalArgumentException("Invalid body count: " + bodyCount);
+        }
+        if (frameRate <= 0) {
+            throw new IllegalArgumentException("Invalid frame rate: " + frameRate);
+        }
+        this.bodyCount = bodyCount;
+        this.frameRate = frameRate;
+        this.startTime = System.nanoTime();
+    }
+
+    @Override
+    public void start() {
+        this.sequence = 0;
+    }
+
+    @Override
+    public boolean read(SkeletonFrame frame) {
+        long current = ++this.sequence;
+        float time = current / this.frameRate;
+        float[] data = frame.data;
+
+        for (int body = 0; body < SkeletonFrame.BODY_COUNT; body++) {
+            int bodyOffset = body * SkeletonFrame.BODY_STRIDE;
+            if (body >= this.bodyCount) {
+                data[bodyOffset + SkeletonFrame.BODY_STRIDE - 1] = 0;
+                continue;
+            }
+
+            float centerX = getWidth() * (body + 1f) / (this.bodyCount + 1f);
+            float centerY = getHeight() * 0.3f;
+            float depth = 1500 + body * 400;
+            float phase = time * (1.2f + 0.15f * body) + body;
+
+            for (int joint = 0; joint < KinectPV2.JointType_Count; joint++) {
+                int offset = SkeletonFrame.offset(body, joint);
+                data[offset] = centerX + POSE[joint][0];
+                data[offset + 1] = centerY + POSE[joint][1];
+                data[offset + 2] = depth;
+                data[offset + 3] = 1;
+                data[offset + 4] = 0;
+                data[offset + 5] = 0;
+                data[offset + 6] = 0;
+                data[offset + 7] = KinectPV2.TrackingState_Tracked;
+                data[offset + 8] = joint;
+            }
+
+            setHand(data, body, KinectPV2.JointType_ShoulderLeft, KinectPV2.JointType_HandLeft, phase);
+            setHand(data, body, KinectPV2.JointType_ShoulderRight, KinectPV2.JointType_HandRight, -phase);
+            data[bodyOffset + SkeletonFrame.BODY_STRIDE - 1] = 1;
+        }
+
+        frame.setHeader(current, this.startTime + (long) (current * 1_000_000_000d / this.frameRate));
+        return true;
+    }
+
+    /**
+     * Places a hand on a circle around its shoulder.
+     */
+    private void setHand(float[] data, int body, int shoulder, int hand, float angle) {
+        int shoulderOffset = SkeletonFrame.offset(body, shoulder);
+        int handOffset = SkeletonFrame.offset(body, hand);
+        data[handOffset] = data[shoulderOffset] + ARM_LENGTH * (float) Math.cos(angle);
+        data[handOffset + 1] = data[shoulderOffset + 1] + ARM_LENGTH * (float) Math.sin(angle);
+    }
+
+    @Override
+    public int getWidth() {
+        return KinectPV2.WIDTHColor;
+    }
+
+    @Override
+    public int getHeight() {
+        return KinectPV2.HEIGHTColor;
+    }
+
+    @Override
+    public void stop() {
+    }
+}
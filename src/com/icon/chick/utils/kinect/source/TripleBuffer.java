@@ -0,0 +1,85 @@
+/**
+ * Project: ICON Lab - Kinect Hand to Shoulder Tracking
+ * Author: Eduardo Monteiro @ ICON LAB
+ * License: MIT License
+ */
+
+package com.icon.chick.utils.kinect.source;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Lock-free triple buffer handing the latest value from one writer thread to
+ * one reader thread. The writer fills its private buffer and publishes it; the
+ * reader picks up the latest published buffer. Neither side ever waits for the
+ * other, and intermediate values the reader did not pick up are overwritten.
+ *
+ * @param <T> The buffer type.
+ */
+public class TripleBuffer<T> {
+    private static final int INDEX_MASK = 0b11;
+    private static final int FRESH = 0b100;
+
+    private final Object[] buffers = new Object[3];
+    // Index of the shared middle buffer, with FRESH set when it holds an unread value.
+    private final AtomicInteger middle = new AtomicInteger(1);
+    private int writeIndex = 0;
+    private int readIndex = 2;
+
+    /**
+     * Constructor for the TripleBuffer class.
+     *
+     * @param factory Creates each of the three buffers.
+     */
+    public TripleBuffer(Supplier<T> factory) {
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = factory.get();
+        }
+    }
+
+    /**
+     * Returns the buffer owned by the writer. Writer thread only.
+     *
+     * @return The buffer to fill.
+     */
+    @SuppressWarnings("unchecked")
+    public T getWriteBuffer() {
+        return (T) buffers[writeIndex];
+    }
+
+    /**
+     * Publishes the write buffer to the reader. Writer thread only.
+     *
+     * @return True if this replaced a published value the reader had not taken.
+     */
+    public boolean publish() {
+        int previous = middle.getAndSet(writeIndex | FRESH);
+        writeIndex = previous & INDEX_MASK;
+        return (previous & FRESH) != 0;
+    }
+
+    /**
+     * Takes the latest published buffer, if a new one was published since the
+     * last call. Reader thread only.
+     *
+     * @return True if the read buffer changed.
+     */
+    public boolean update() {
+        if ((middle.get() & FRESH) == 0) {
+            return false;
+        }
+        readIndex = middle.getAndSet(readIndex) & INDEX_MASK;
+        return true;
+    }
+
+    /**
+     * Returns the buffer owned by the reader. Reader thread only.
+     *
+     * @return The latest buffer taken by update().
+     */
+    @SuppressWarnings("unchecked")
+    public T getReadBuffer() {
+        return (T) buffers[readIndex];
+    }
+}
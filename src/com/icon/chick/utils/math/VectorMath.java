@@ -0,0 +1,186 @@
+/**
+ * Project: ICON Lab - Kinect Hand to Shoulder Tracking
+ * Author: Eduardo Monteiro @ ICON LAB
+ * License: MIT License
+ */
+
+package com.icon.chick.utils.math;
+
+/**
+ * The VectorMath class is the math kernel of the tracking path: static
+ * operations on primitive values and on 3D vectors stored as three consecutive
+ * floats at an offset of an array. Quaternions are stored as four consecutive
+ * floats w, x, y, z, the order of the joint orientations of SkeletonFrame.
+ * <p>
+ * Methods never allocate, read all their inputs before writing their output,
+ * so the output may overwrite an input, and are small and branch-free so the
+ * JIT inlines them into their callers.
+ */
+public final class VectorMath {
+
+    private VectorMath() {
+    }
+
+    /**
+     * Subtracts two vectors: out = a - b.
+     *
+     * @param a The array of the first vector.
+     * @param aOffset The offset of the first vector.
+     * @param b The array of the second vector.
+     * @param bOffset The offset of the second vector.
+     * @param out The array receiving the difference.
+     * @param outOffset The offset of the difference.
+     */
+    public static void subtract(float[] a, int aOffset, float[] b, int bOffset, float[] out, int outOffset) {
+        float x = a[aOffset] - b[bOffset];
+        float y = a[aOffset + 1] - b[bOffset + 1];
+        float z = a[aOffset + 2] - b[bOffset + 2];
+        out[outOffset] = x;
+        out[outOffset + 1] = y;
+        out[outOffset + 2] = z;
+    }
+
+    /**
+     * Scales a vector: out = v * factor.
+     *
+     * @param v The array of the vector.
+     * @param offset The offset of the vector.
+     * @param factor The scale factor.
+     * @param out The array receiving the scaled vector.
+     * @param outOffset The offset of the scaled vector.
+     */
+    public static void scale(float[] v, int offset, float factor, float[] out, int outOffset) {
+        out[outOffset] = v[offset] * factor;
+        out[outOffset + 1] = v[offset + 1] * factor;
+        out[outOffset + 2] = v[offset + 2] * factor;
+    }
+
+    /**
+     * Clamps each component of a vector to a range. NaN components stay NaN.
+     *
+     * @param v The array of the vector.
+     * @param offset The offset of the vector.
+     * @param min The lower bound.
+     * @param max The upper bound.
+     * @param out The array receiving the clamped vector.
+     * @param outOffset The offset of the clamped vector.
+     */
+    public static void clamp(float[] v, int offset, float min, float max, float[] out, int outOffset) {
+        out[outOffset] = clamp(v[offset], min, max);
+        out[outOffset + 1] = clamp(v[offset + 1], min, max);
+        out[outOffset + 2] = clamp(v[offset + 2], min, max);
+    }
+
+    /**
+     * Clamps a value to a range.
+     *
+     * @param value The value.
+     * @param min The lower bound.
+     * @param max The upper bound.
+     * @return The clamped value, NaN if the value is NaN.
+     */
+    public static float clamp(float value, float min, float max) {
+        return Math.max(min, Math.min(max, value));
+    }
+
+    /**
+     * Interpolates linearly between two values.
+     *
+     * @param from The value at amount 0.
+     * @param to The value at amount 1.
+     * @param amount The interpolation amount.
+     * @return (1 - amount) * from + amount * to.
+     */
+    public static float lerp(float from, float to, float amount) {
+        return amount * to + (1 - amount) * from;
+    }
+
+    /**
+     * @return The length of the vector (x, y, z).
+     */
+    public static float length(float x, float y, float z) {
+        return (float) Math.sqrt(x * x + y * y + z * z);
+    }
+
+    /**
+     * @return The distance between the points (x1, y1) and (x2, y2).
+     */
+    public static float distance(float x1, float y1, float x2, float y2) {
+        float dx = x2 - x1;
+        float dy = y2 - y1;
+        return (float) Math.sqrt(dx * dx + dy * dy);
+    }
+
+    /**
+     * Returns the distance between two points.
+     *
+     * @param a The array of the first point.
+     * @param aOffset The offset of the first point.
+     * @param b The array of the second point.
+     * @param bOffset The offset of the second point.
+     * @return The distance.
+     */
+    public static float distance(float[] a, int aOffset, float[] b, int bOffset) {
+        return length(a[aOffset] - b[bOffset], a[aOffset + 1] - b[bOffset + 1], a[aOffset + 2] - b[bOffset + 2]);
+    }
+
+    /**
+     * Rotates a vector by a unit quaternion: out = q v q*.
+     *
+     * @param q The array of the quaternion.
+     * @param qOffset The offset of the quaternion.
+     * @param v The array of the vector.
+     * @param offset The offset of the vector.
+     * @param out The array receiving the rotated vector.
+     * @param outOffset The offset of the rotated vector.
+     */
+    public static void rotate(float[] q, int qOffset, float[] v, int offset, float[] out, int outOffset) {
+        rotate(q[qOffset], q[qOffset + 1], q[qOffset + 2], q[qOffset + 3], v[offset], v[offset + 1], v[offset + 2], out, outOffset);
+    }
+
+    /**
+     * Rotates a vector by the inverse of a unit quaternion: out = q* v q.
+     *
+     * @param q The array of the quaternion.
+     * @param qOffset The offset of the quaternion.
+     * @param v The array of the vector.
+     * @param offset The offset of the vector.
+     * @param out The array receiving the rotated vector.
+     * @param outOffset The offset of the rotated vector.
+     */
+    public static void rotateInverse(float[] q, int qOffset, float[] v, int offset, float[] out, int outOffset) {
+        rotate(q[qOffset], -q[qOffset + 1], -q[qOffset + 2], -q[qOffset + 3], v[offset], v[offset + 1], v[offset + 2], out, outOffset);
+    }
+
+    /**
+     * Expresses a point in the local frame of a joint, such as the torso: the
+     * offset from the joint position, rotated by the inverse of its orientation.
+     *
+     * @param orientation The array of the unit orientation quaternion of the joint.
+     * @param orientationOffset The offset of the orientation.
+     * @param origin The array of the joint position.
+     * @param originOffset The offset of the joint position.
+     * @param point The array of the point.
+     * @param pointOffset The offset of the point.
+     * @param out The array receiving the local coordinates.
+     * @param outOffset The offset of the local coordinates.
+     */
+    public static void toLocal(float[] orientation, int orientationOffset, float[] origin, int originOffset,
+                               float[] point, int pointOffset, float[] out, int outOffset) {
+        subtract(point, pointOffset, origin, originOffset, out, outOffset);
+        rotateInverse(orientation, orientationOffset, out, outOffset, out, outOffset);
+    }
+
+    /**
+     * Rotates (vx, vy, vz) by the unit quaternion (w, x, y, z), as
+     * v + 2w (u x v) + 2u x (u x v) with u = (x, y, z).
+     */
+    private static void rotate(float w, float x, float y, float z, float vx, float vy, float vz, float[] out, int outOffset) {
+        float tx = 2 * (y * vz - z * vy);
+        float ty = 2 * (z * vx - x * vz);
+        float tz = 2 * (x * vy - y * vx);
+        out[outOffset] = vx + w * tx + (y * tz - z * ty);
+        out[outOffset + 1] = vy + w * ty + (z * tx - x * tz);
+        out[outOffset + 2] = vz + w * tz + (x * ty - y * tx);
+    }
+}
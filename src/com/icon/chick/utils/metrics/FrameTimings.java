@@ -0,0 +1,100 @@
+/**
+ * Project: ICON Lab - Kinect Hand to Shoulder Tracking
+ * Author: Eduardo Monteiro @ ICON LAB
+ * License: MIT License
+ */
+
+package com.icon.chick.utils.metrics;
+
+/**
+ * The FrameTimings class holds one LatencyHistogram of nanosecond durations
+ * per stage of the tracking pipeline. Stages are timed by chaining record()
+ * calls on a running timestamp, so each stage costs one System.nanoTime():
+ * <pre>
+ * long time = System.nanoTime();
+ * source.read(frame);
+ * time = timings.record(FrameTimings.Stage.ACQUISITION, time);
+ * </pre>
+ */
+public class FrameTimings {
+    /**
+     * The timed stages.
+     */
+    public enum Stage {
+        /**
+         * Reading the skeleton frame from the source.
+         */
+        ACQUISITION,
+        /**
+         * Decoding the frame into a snapshot and updating the players.
+         */
+        DECODE,
+        /**
+         * Filtering the hand positions of one body.
+         */
+        SMOOTHING,
+        /**
+         * Mapping the joints of one body to the screen and its boxes.
+         */
+        MAPPING,
+        /**
+         * Handing the hand positions to the outputs.
+         */
+        OUTPUT,
+        /**
+         * Drawing the color image and the overlays.
+         */
+        RENDER,
+        /**
+         * The whole draw() of the application.
+         */
+        FRAME
+    }
+
+    private static final Stage[] STAGES = Stage.values();
+
+    private final LatencyHistogram[] histograms = new LatencyHistogram[STAGES.length];
+
+    /**
+     * Constructor for the FrameTimings class.
+     */
+    public FrameTimings() {
+        for (int i = 0; i < this.histograms.length; i++) {
+            this.histograms[i] = new LatencyHistogram();
+        }
+    }
+
+    /**
+     * Records the duration of a stage ending now.
+     *
+     * @param stage The stage.
+     * @param start The System.nanoTime() at the start of the stage.
+     * @return The current System.nanoTime(), the start of the next stage.
+     */
+    public long record(Stage stage, long start) {
+        long now = System.nanoTime();
+        this.histograms[stage.ordinal()].record(now - start);
+        return now;
+    }
+
+    /**
+     * Returns the histogram of a stage.
+     *
+     * @param stage The stage.
+     * @return The histogram of its durations in nanoseconds.
+     */
+    public LatencyHistogram get(Stage stage) {
+        return this.histograms[stage.ordinal()];
+    }
+
+    /**
+     * Clears the histograms of every stage. Exported timings must never be
+     * reset, or their counts would go backwards; windows are read as a
+     * difference, see LatencyHistogram.setDifference.
+     */
+    public void reset() {
+        for (LatencyHistogram histogram : this.histograms) {
+            histogram.reset();
+        }
+    }
+}
@@ -0,0 +1,175 @@
+/**
+ * Project: ICON Lab - Kinect Hand to Shoulder Tracking
+ * Author: Eduardo Monteiro @ ICON LAB
+ * License: MIT License
+ */
+
+package com.icon.chick.utils.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The LatencyHistogram class counts durations in logarithmic buckets, like an
+ * HDR histogram: values below SUB_BUCKETS have their own bucket, and every
+ * power of two above is split into SUB_BUCKETS linear buckets, so percentiles
+ * are reported within 1 / SUB_BUCKETS (about 3%) of the recorded value.
+ * <p>
+ * Recording is lock-free and allocation-free, so any thread can record. Reads
+ * walk the live counters without stopping writers, and may miss the values
+ * recorded meanwhile.
+ * <p>
+ * A histogram that is never reset can be read over a window: copy it into a
+ * baseline at the start of the window, and the values recorded since are
+ * setDifference(histogram, baseline).
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    public static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = SUB_BUCKETS * (64 - SUB_BUCKET_BITS);
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Records a value.
+     *
+     * @param value The value, for example a duration in nanoseconds; negative values count as 0.
+     */
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        this.counts.getAndIncrement(index(value));
+        this.total.getAndAdd(value);
+        long current = this.max.get();
+        while (value > current && !this.max.compareAndSet(current, value)) {
+            current = this.max.get();
+        }
+    }
+
+    /**
+     * @return The number of recorded values.
+     */
+    public long getCount() {
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            count += this.counts.get(i);
+        }
+        return count;
+    }
+
+    /**
+     * @return The largest recorded value, 0 if none.
+     */
+    public long getMax() {
+        return this.max.get();
+    }
+
+    /**
+     * @return The sum of the recorded values.
+     */
+    public long getTotal() {
+        return this.total.get();
+    }
+
+    /**
+     * @return The mean of the recorded values, 0 if none.
+     */
+    public double getMean() {
+        long count = getCount();
+        return count == 0 ? 0 : (double) this.total.get() / count;
+    }
+
+    /**
+     * Returns a percentile of the recorded values.
+     *
+     * @param percentile The percentile, from 0 to 100.
+     * @return The highest value of the bucket holding the percentile, capped by the maximum; 0 if empty.
+     */
+    public long getPercentile(double percentile) {
+        long count = getCount();
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += this.counts.get(i);
+            if (seen >= rank) {
+                return Math.min(highestValue(i), this.max.get());
+            }
+        }
+        return this.max.get();
+    }
+
+    /**
+     * Clears the histogram. Values recorded concurrently may be kept or lost.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            this.counts.set(i, 0);
+        }
+        this.total.set(0);
+        this.max.set(0);
+    }
+
+    /**
+     * Copies the values of another histogram into this one.
+     *
+     * @param source The histogram to copy.
+     */
+    public void copyFrom(LatencyHistogram source) {
+        for (int i = 0; i < BUCKETS; i++) {
+            this.counts.set(i, source.counts.get(i));
+        }
+        this.total.set(source.total.get());
+        this.max.set(source.max.get());
+    }
+
+    /**
+     * Replaces the values of this histogram by the values recorded into a
+     * histogram since a baseline was copied from it. The maximum is the
+     * highest value of the highest bucket left, capped by the maximum of the
+     * histogram, so it is within the bucket precision like the percentiles.
+     *
+     * @param current The histogram, never reset since the baseline was copied.
+     * @param baseline The earlier copy of the histogram.
+     */
+    public void setDifference(LatencyHistogram current, LatencyHistogram baseline) {
+        int highest = -1;
+        for (int i = 0; i < BUCKETS; i++) {
+            long count = Math.max(0, current.counts.get(i) - baseline.counts.get(i));
+            this.counts.set(i, count);
+            if (count > 0) {
+                highest = i;
+            }
+        }
+        this.total.set(Math.max(0, current.total.get() - baseline.total.get()));
+        this.max.set(highest < 0 ? 0 : Math.min(highestValue(highest), current.max.get()));
+    }
+
+    /**
+     * Returns the bucket of a value.
+     */
+    static int index(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return SUB_BUCKETS * (shift + 1) + (int) (value >>> shift) - SUB_BUCKETS;
+    }
+
+    /**
+     * Returns the highest value of a bucket.
+     */
+    static long highestValue(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        long top = index % SUB_BUCKETS + SUB_BUCKETS;
+        return ((top + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,118 @@
+/**
+ * Project: ICON Lab - Kinect Hand to Shoulder Tracking
+ * Author: Eduardo Monteiro @ ICON LAB
+ * License: MIT License
+ */
+
+package com.icon.chick.utils.metrics;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The MetricsMBean class exposes a MetricsRegistry through JMX, as one
+ * read-only Double attribute per value written by MetricsRegistry.snapshot().
+ * Attributes are read from the registry on each request, so JMX clients such
+ * as JConsole see live values.
+ */
+public class MetricsMBean implements DynamicMBean {
+    /**
+     * The default object name of the tracking metrics.
+     */
+    public static final String DEFAULT_NAME = "com.icon.chick:type=Tracking";
+
+    private final MetricsRegistry registry;
+
+    /**
+     * Constructor for the MetricsMBean class.
+     *
+     * @param registry The registry to expose.
+     */
+    public MetricsMBean(MetricsRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Registers a registry with the platform MBean server.
+     *
+     * @param registry The registry to expose.
+     * @param name The object name, for example DEFAULT_NAME.
+     * @return The registered object name.
+     */
+    public static ObjectName register(MetricsRegistry registry, String name) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName(name);
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+            server.registerMBean(new MetricsMBean(registry), objectName);
+            return objectName;
+        } catch (JMException e) {
+            throw new IllegalStateException("Failed to register metrics MBean " + name, e);
+        }
+    }
+
+    @Override
+    public Object getAttribute(String attribute) throws AttributeNotFoundException {
+        Map<String, Double> values = new HashMap<>();
+        this.registry.snapshot(values);
+        Double value = values.get(attribute);
+        if (value == null) {
+            throw new AttributeNotFoundException("No metric " + attribute);
+        }
+        return value;
+    }
+
+    @Override
+    public AttributeList getAttributes(String[] attributes) {
+        Map<String, Double> values = new HashMap<>();
+        this.registry.snapshot(values);
+        AttributeList list = new AttributeList();
+        for (String attribute : attributes) {
+            Double value = values.get(attribute);
+            if (value != null) {
+                list.add(new Attribute(attribute, value));
+            }
+        }
+        return list;
+    }
+
+    @Override
+    public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+        throw new AttributeNotFoundException("Metrics are read-only: " + attribute.getName());
+    }
+
+    @Override
+    public AttributeList setAttributes(AttributeList attributes) {
+        return new AttributeList();
+    }
+
+    @Override
+    public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException {
+        throw new ReflectionException(new NoSuchMethodException(actionName));
+    }
+
+    @Override
+    public MBeanInfo getMBeanInfo() {
+        List<String> names = this.registry.getAttributeNames();
+        MBeanAttributeInfo[] attributes = new MBeanAttributeInfo[names.size()];
+        for (int i = 0; i < attributes.length; i++) {
+            attributes[i] = new MBeanAttributeInfo(names.get(i), Double.class.getName(), names.get(i), true, false, false);
+        }
+        return new MBeanInfo(getClass().getName(), "Kinect hand tracking metrics", attributes, null, new MBeanOperationInfo[0], null);
+    }
+}
@@ -0,0 +1,311 @@
+/**
+ * Project: ICON Lab - Kinect Hand to Shoulder Tracking
+ * Author: Eduardo Monteiro @ ICON LAB
+ * License: MIT License
+ */
+
+package com.icon.chick.utils.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.DoubleSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * The MetricsRegistry class names the counters and gauges already kept by the
+ * tracking pipeline, so they can be exported without the pipeline knowing how.
+ * Metrics are registered as suppliers reading the live values; the registry
+ * never updates a value itself.
+ * <p>
+ * Reading is wait-free for the threads being measured: suppliers only read
+ * volatile fields and histogram counters, and the list of metrics is an
+ * immutable array replaced on registration. A scrape never takes a lock the
+ * render thread could wait for, and may see values a few updates apart.
+ * <p>
+ * Summaries read histograms that are never reset: their sum and count cover
+ * all time, while their quantiles and maximum cover the recent values only,
+ * between one and two WINDOW_NANOS. Each summary keeps two copies of its
+ * histogram, taken one window apart, and reports the values recorded since
+ * the older one, so a slow frame stops showing in the p99 minutes later.
+ */
+public class MetricsRegistry {
+    /**
+     * The quantiles reported for each summary.
+     */
+    public static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    /**
+     * The time after which the quantiles of a summary start forgetting a value.
+     */
+    public static final long WINDOW_NANOS = 60_000_000_000L;
+
+    /**
+     * The kinds of metrics, as named by Prometheus.
+     */
+    public enum Type {
+        /** A value that only increases. */
+        COUNTER,
+        /** A value that goes up and down. */
+        GAUGE,
+        /** A distribution reported by quantiles, sum and count. */
+        SUMMARY
+    }
+
+    private final Object lock = new Object();
+    private volatile Metric[] metrics = new Metric[0];
+
+    /**
+     * Registers a counter.
+     *
+     * @param name The metric name, for example kinect_frames_processed_total.
+     * @param help The description of the metric.
+     * @param value The supplier of the current value.
+     */
+    public void counter(String name, String help, LongSupplier value) {
+        add(new Metric(name, help, Type.COUNTER, null, null, value::getAsLong, null, 1));
+    }
+
+    /**
+     * Registers a gauge.
+     *
+     * @param name The metric name.
+     * @param help The description of the metric.
+     * @param value The supplier of the current value.
+     */
+    public void gauge(String name, String help, DoubleSupplier value) {
+        add(new Metric(name, help, Type.GAUGE, null, null, value, null, 1));
+    }
+
+    /**
+     * Registers a summary over a histogram. Summaries sharing a name must have
+     * the same help and label name, and differ by the label value.
+     *
+     * @param name The metric name.
+     * @param help The description of the metric.
+     * @param label The label name, for example stage.
+     * @param labelValue The label value of this histogram.
+     * @param histogram The histogram.
+     * @param scale The factor converting histogram values to the metric unit, 1e-9 for nanoseconds to seconds.
+     */
+    public void summary(String name, String help, String label, String labelValue, LatencyHistogram histogram, double scale) {
+        add(new Metric(name, help, Type.SUMMARY, label, labelValue, null, histogram, scale));
+    }
+
+    private void add(Metric metric) {
+        checkName(metric.name);
+        if (metric.label != null) {
+            checkName(metric.label);
+        }
+        synchronized (this.lock) {
+            for (Metric existing : this.metrics) {
+                if (existing.name.equals(metric.name)
+                        && (existing.type != metric.type || metric.label == null || !metric.label.equals(existing.label)
+                        || metric.labelValue.equals(existing.labelValue))) {
+                    throw new IllegalArgumentException("Metric already registered: " + metric.name);
+                }
+            }
+            Metric[] metrics = new Metric[this.metrics.length + 1];
+            System.arraycopy(this.metrics, 0, metrics, 0, this.metrics.length);
+            metrics[this.metrics.length] = metric;
+            this.metrics = metrics;
+        }
+    }
+
+    /**
+     * Writes every metric in the Prometheus text exposition format. Summaries
+     * also get a NAME_max gauge with the largest recent value.
+     *
+     * @param out The builder receiving the text.
+     */
+    public void writePrometheus(StringBuilder out) {
+        Metric[] metrics = this.metrics;
+        long now = System.nanoTime();
+        double[] recent = new double[QUANTILES.length + 1];
+        List<String> written = new ArrayList<>();
+        for (Metric first : metrics) {
+            if (written.contains(first.name)) {
+                continue;
+            }
+            written.add(first.name);
+
+            // Series of a family are written together, after a single HELP and TYPE.
+            writeHeader(out, first.name, first.help, first.type);
+            for (Metric metric : metrics) {
+                if (!metric.name.equals(first.name)) {
+                    continue;
+                }
+                if (metric.type != Type.SUMMARY) {
+                    writeSample(out, metric.name, null, null, null, metric.value.getAsDouble());
+                    continue;
+                }
+                metric.readRecent(now, recent);
+                for (int i = 0; i < QUANTILES.length; i++) {
+                    writeSample(out, metric.name, metric.label, metric.labelValue, QUANTILES[i], recent[i]);
+                }
+                writeSample(out, metric.name + "_sum", metric.label, metric.labelValue, null, metric.histogram.getTotal() * metric.scale);
+                writeSample(out, metric.name + "_count", metric.label, metric.labelValue, null, metric.histogram.getCount());
+            }
+
+            if (first.type == Type.SUMMARY) {
+                writeHeader(out, first.name + "_max", "Largest recent value of " + first.name + ".", Type.GAUGE);
+                for (Metric metric : metrics) {
+                    if (metric.name.equals(first.name)) {
+                        metric.readRecent(now, recent);
+                        writeSample(out, metric.name + "_max", metric.label, metric.labelValue, null, recent[QUANTILES.length]);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads every metric into flat attributes, one per value: counters and
+     * gauges by name, summaries as NAME_LABELVALUE_p50, ..._p999, ..._count
+     * and ..._max.
+     *
+     * @param target The map receiving the values.
+     */
+    public void snapshot(Map<String, Double> target) {
+        long now = System.nanoTime();
+        double[] recent = new double[QUANTILES.length + 1];
+        for (Metric metric : this.metrics) {
+            if (metric.type != Type.SUMMARY) {
+                target.put(metric.name, metric.value.getAsDouble());
+                continue;
+            }
+            String prefix = metric.name + "_" + metric.labelValue;
+            metric.readRecent(now, recent);
+            for (int i = 0; i < QUANTILES.length; i++) {
+                target.put(prefix + "_p" + quantileName(QUANTILES[i]), recent[i]);
+            }
+            target.put(prefix + "_count", (double) metric.histogram.getCount());
+            target.put(prefix + "_max", recent[QUANTILES.length]);
+        }
+    }
+
+    /**
+     * @return The names snapshot() writes, in registration order.
+     */
+    public List<String> getAttributeNames() {
+        List<String> names = new ArrayList<>();
+        for (Metric metric : this.metrics) {
+            if (metric.type != Type.SUMMARY) {
+                names.add(metric.name);
+                continue;
+            }
+            String prefix = metric.name + "_" + metric.labelValue;
+            for (double quantile : QUANTILES) {
+                names.add(prefix + "_p" + quantileName(quantile));
+            }
+            names.add(prefix + "_count");
+            names.add(prefix + "_max");
+        }
+        return names;
+    }
+
+    /**
+     * Returns the attribute suffix of a quantile: 50 for 0.5, 999 for 0.999.
+     */
+    private static String quantileName(double quantile) {
+        String digits = Double.toString(quantile).substring(2);
+        return digits.length() == 1 ? digits + "0" : digits;
+    }
+
+    private static void writeHeader(StringBuilder out, String name, String help, Type type) {
+        out.append("# HELP ").append(name).append(' ').append(help.replace("\\", "\\\\").replace("\n", "\\n")).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type.name().toLowerCase(Locale.ROOT)).append('\n');
+    }
+
+    private static void writeSample(StringBuilder out, String name, String label, String labelValue, Double quantile, double value) {
+        out.append(name);
+        if (label != null || quantile != null) {
+            out.append('{');
+            if (label != null) {
+                out.append(label).append("=\"").append(labelValue.replace("\\", "\\\\").replace("\"", "\\\"")).append('"');
+            }
+            if (quantile != null) {
+                out.append(label != null ? "," : "").append("quantile=\"").append(quantile).append('"');
+            }
+            out.append('}');
+        }
+        out.append(' ');
+        if (Double.isNaN(value)) {
+            out.append("NaN");
+        } else if (Double.isInfinite(value)) {
+            out.append(value > 0 ? "+Inf" : "-Inf");
+        } else if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            out.append((long) value);
+        } else {
+            out.append(value);
+        }
+        out.append('\n');
+    }
+
+    private static void checkName(String name) {
+        if (!name.matches("[a-zA-Z_][a-zA-Z0-9_]*")) {
+            throw new IllegalArgumentException("Invalid metric name: " + name);
+        }
+    }
+
+    /**
+     * A registered metric.
+     */
+    private static final class Metric {
+        final String name;
+        final String help;
+        final Type type;
+        final String label;
+        final String labelValue;
+        final DoubleSupplier value;
+        final LatencyHistogram histogram;
+        final double scale;
+        // Copies of the histogram at the start of the previous and current windows, and their difference.
+        private final LatencyHistogram older;
+        private final LatencyHistogram newer;
+        private final LatencyHistogram recent;
+        private long rotated;
+
+        Metric(String name, String help, Type type, String label, String labelValue,
+               DoubleSupplier value, LatencyHistogram histogram, double scale) {
+            this.name = name;
+            this.help = help;
+            this.type = type;
+            this.label = label;
+            this.labelValue = labelValue;
+            this.value = value;
+            this.histogram = histogram;
+            this.scale = scale;
+            if (histogram != null) {
+                this.older = new LatencyHistogram();
+                this.newer = new LatencyHistogram();
+                this.recent = new LatencyHistogram();
+                this.rotated = System.nanoTime();
+            } else {
+                this.older = this.newer = this.recent = null;
+            }
+        }
+
+        /**
+         * Reads the quantiles and the maximum of the recent values of a
+         * summary, in the metric unit, starting a new window when the current
+         * one is WINDOW_NANOS old. Concurrent readers wait for each other.
+         *
+         * @param now The current System.nanoTime().
+         * @param target The array receiving the QUANTILES, then the maximum.
+         */
+        synchronized void readRecent(long now, double[] target) {
+            if (now - this.rotated >= WINDOW_NANOS) {
+                this.older.copyFrom(this.newer);
+                this.newer.copyFrom(this.histogram);
+                this.rotated = now;
+            }
+            this.recent.setDifference(this.histogram, this.older);
+            for (int i = 0; i < QUANTILES.length; i++) {
+                target[i] = this.recent.getPercentile(QUANTILES[i] * 100) * this.scale;
+            }
+            target[QUANTILES.length] = this.recent.getMax() * this.scale;
+        }
+    }
+}
@@ -0,0 +1,153 @@
+/**
+ * Project: ICON Lab - Kinect Hand to Shoulder Tracking
+ * Author: Eduardo Monteiro @ ICON LAB
+ * License: MIT License
+ */
+
+package com.icon.chick.utils.processing;
+
+import processing.core.PApplet;
+import processing.core.PConstants;
+import processing.core.PGraphics;
+import processing.core.PImage;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * The MessageOverlay class draws centered text messages from cached images.
+ * A message is rendered once into a single reused offscreen buffer, cropped to
+ * its bounds and kept in a small LRU cache keyed by text and style, so showing
+ * a message again costs one image blit. The last message drawn is checked
+ * first, without a cache lookup.
+ */
+public class MessageOverlay {
+    private final PApplet app;
+    private final Map<Key, PImage> cache;
+    private PGraphics buffer;
+
+    private String lastText;
+    private float lastSize;
+    private int lastColor;
+    private PImage lastImage;
+
+    private long renderCount;
+    private long hitCount;
+
+    /**
+     * Constructor for the MessageOverlay class.
+     *
+     * @param app The application drawing the messages.
+     * @param capacity The number of rendered messages kept in the cache.
+     */
+    public MessageOverlay(PApplet app, int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Invalid message cache capacity: " + capacity);
+        }
+        this.app = app;
+        this.cache = new LinkedHashMap<>(capacity * 2, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, PImage> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Draws a message centered on a point.
+     *
+     * @param text The message.
+     * @param size The text size.
+     * @param color The ARGB text color.
+     * @param x The X position of the center.
+     * @param y The Y position of the center.
+     */
+    public void display(String text, float size, int color, float x, float y) {
+        PImage image;
+        if (text.equals(this.lastText) && size == this.lastSize && color == this.lastColor) {
+            image = this.lastImage;
+            this.hitCount++;
+        } else {
+            Key key = new Key(text, size, color);
+            image = this.cache.get(key);
+            if (image == null) {
+                image = render(text, size, color);
+                this.cache.put(key, image);
+            } else {
+                this.hitCount++;
+            }
+            this.lastText = text;
+            this.lastSize = size;
+            this.lastColor = color;
+            this.lastImage = image;
+        }
+        this.app.image(image, x - image.width / 2f, y - image.height / 2f);
+    }
+
+    /**
+     * @return The number of messages rendered to the offscreen buffer.
+     */
+    public long getRenderCount() {
+        return this.renderCount;
+    }
+
+    /**
+     * @return The number of messages drawn from a cached image.
+     */
+    public long getHitCount() {
+        return this.hitCount;
+    }
+
+    /**
+     * Renders a message into the offscreen buffer and copies its bounds.
+     */
+    private PImage render(String text, float size, int color) {
+        int height = (int) Math.ceil(size * 2);
+        if (this.buffer == null || this.buffer.width < this.app.width || this.buffer.height < height) {
+            this.buffer = this.app.createGraphics(this.app.width, height);
+        }
+
+        PGraphics pg = this.buffer;
+        pg.beginDraw();
+        pg.clear();
+        pg.textAlign(PConstants.CENTER, PConstants.CENTER);
+        pg.textSize(size);
+        pg.fill(color);
+        pg.text(text, pg.width / 2f, height / 2f);
+        int width = Math.min(pg.width, (int) Math.ceil(pg.textWidth(text)) + 2);
+        pg.endDraw();
+
+        this.renderCount++;
+        return pg.get((pg.width - width) / 2, 0, width, height);
+    }
+
+    /**
+     * The cache key of a rendered message.
+     */
+    private static final class Key {
+        private final String text;
+        private final float size;
+        private final int color;
+
+        Key(String text, float size, int color) {
+            this.text = text;
+            this.size = size;
+            this.color = color;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) other;
+            return this.text.equals(key.text) && this.size == key.size && this.color == key.color;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(this.text, this.size, this.color);
+        }
+    }
+}
@@ -1,15 +1,17 @@
 package com.icon.chick.utils.processing;
 
-import processing.core.PApplet;
 import com.icon.chick.App;
-import processing.core.PConstants;
-import processing.core.PGraphics;
 
 /**
  * The Screen class provides methods to display frames per second (FPS) and messages on the screen.
  */
-public class Screen extends PApplet {
-    App app;
+public class Screen {
+    private static final int MESSAGE_CACHE_CAPACITY = 8;
+    private static final float MESSAGE_SIZE = 32;
+    private static final int MESSAGE_COLOR = 0xffffffff;
+
+    private final App app;
+    private final MessageOverlay overlay;
 
     /**
      * Constructor for the Screen class.
@@ -18,31 +20,31 @@ public class Screen extends PApplet {
      */
     public Screen(App app) {
         this.app = app;
+        this.overlay = new MessageOverlay(app, MESSAGE_CACHE_CAPACITY);
     }
 
     /**
      * Displays the current frames per second (FPS) on the screen.
      */
     public void showFPS() {
-        this.app.text("FPS: " + frameRate, 50, 50);
+        this.app.text("FPS: " + this.app.frameRate, 50, 50);
     }
 
     /**
-     * Displays a message on the screen.
+     * Displays a message centered on a black screen. The rendered message is
+     * cached, so showing the same message again only clears and blits.
      *
      * @param message The message to display.
      */
     public void displayMessage(String message) {
-        PGraphics pg = this.app.createGraphics(this.app.width, this.app.height);
-        pg.beginDraw();
-        pg.background(0);
-        pg.textAlign(PConstants.CENTER, PConstants.CENTER);
-        pg.textSize(32);
-        pg.fill(255);
-        pg.text(message, this.app.width / 2f, this.app.height / 2f);
-        pg.endDraw();
+        this.app.background(0);
+        this.overlay.display(message, MESSAGE_SIZE, MESSAGE_COLOR, this.app.width / 2f, this.app.height / 2f);
+    }
 
-        this.app.image(pg, 0, 0);
-        this.app.redraw();
+    /**
+     * @return The overlay drawing the messages, reporting its cache statistics.
+     */
+    public MessageOverlay getOverlay() {
+        return this.overlay;
     }
 }
\ No newline at end of file
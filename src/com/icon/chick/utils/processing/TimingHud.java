@@ -0,0 +1,104 @@
+/**
+ * Project: ICON Lab - Kinect Hand to Shoulder Tracking
+ * Author: Eduardo Monteiro @ ICON LAB
+ * License: MIT License
+ */
+
+package com.icon.chick.utils.processing;
+
+import com.icon.chick.utils.metrics.FrameTimings;
+import com.icon.chick.utils.metrics.LatencyHistogram;
+import processing.core.PApplet;
+import processing.core.PConstants;
+
+/**
+ * The TimingHud class draws a table of the stage timings over the sketch:
+ * p50, p99, p99.9 and maximum in microseconds, and the number of samples.
+ * The HUD covers the time it has been visible: it copies the timings when it
+ * is shown and draws the difference, leaving the exported timings untouched.
+ */
+public class TimingHud {
+    private static final float X = 50;
+    private static final float Y = 80;
+    private static final float ROW_HEIGHT = 18;
+    private static final float[] COLUMNS = {0, 110, 180, 250, 320, 400};
+    private static final String[] HEADERS = {"stage (us)", "p50", "p99", "p99.9", "max", "count"};
+
+    private final PApplet app;
+    private final FrameTimings timings;
+    private final LatencyHistogram[] baselines = new LatencyHistogram[FrameTimings.Stage.values().length];
+    private final LatencyHistogram window = new LatencyHistogram();
+    private boolean visible;
+
+    /**
+     * Constructor for the TimingHud class.
+     *
+     * @param app The application drawing the HUD.
+     * @param timings The timings to show.
+     */
+    public TimingHud(PApplet app, FrameTimings timings) {
+        this.app = app;
+        this.timings = timings;
+        for (int i = 0; i < this.baselines.length; i++) {
+            this.baselines[i] = new LatencyHistogram();
+        }
+    }
+
+    /**
+     * Shows or hides the HUD, starting a new window of timings when it is shown.
+     */
+    public void toggle() {
+        this.visible = !this.visible;
+        if (this.visible) {
+            for (FrameTimings.Stage stage : FrameTimings.Stage.values()) {
+                this.baselines[stage.ordinal()].copyFrom(this.timings.get(stage));
+            }
+        }
+    }
+
+    /**
+     * @return True if the HUD is shown.
+     */
+    public boolean isVisible() {
+        return this.visible;
+    }
+
+    /**
+     * Draws the HUD if it is shown.
+     */
+    public void draw() {
+        if (!this.visible) {
+            return;
+        }
+        FrameTimings.Stage[] stages = FrameTimings.Stage.values();
+
+        this.app.pushStyle();
+        this.app.noStroke();
+        this.app.fill(0, 180);
+        this.app.rect(X - 10, Y - 10, COLUMNS[COLUMNS.length - 1] + 90, (stages.length + 2) * ROW_HEIGHT + 20);
+        this.app.fill(255);
+        this.app.textSize(14);
+        this.app.textAlign(PConstants.LEFT, PConstants.TOP);
+
+        this.app.text(String.format("%.1f FPS", this.app.frameRate), X, Y);
+        for (int column = 0; column < HEADERS.length; column++) {
+            this.app.text(HEADERS[column], X + COLUMNS[column], Y + ROW_HEIGHT);
+        }
+        for (int row = 0; row < stages.length; row++) {
+            LatencyHistogram histogram = this.window;
+            histogram.setDifference(this.timings.get(stages[row]), this.baselines[row]);
+            float y = Y + (row + 2) * ROW_HEIGHT;
+            this.app.text(stages[row].name().toLowerCase(), X + COLUMNS[0], y);
+            this.app.text(micros(histogram.getPercentile(50)), X + COLUMNS[1], y);
+            this.app.text(micros(histogram.getPercentile(99)), X + COLUMNS[2], y);
+            this.app.text(micros(histogram.getPercentile(99.9)), X + COLUMNS[3], y);
+            this.app.text(micros(histogram.getMax()), X + COLUMNS[4], y);
+            this.app.text(Long.toString(histogram.getCount()), X + COLUMNS[5], y);
+        }
+        this.app.popStyle();
+    }
+
+    private static String micros(long nanos) {
+        return String.format("%.1f", nanos / 1000.0);
+    }
+}